@@ -0,0 +1,106 @@
+package io.crunch.mcp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Deterministic, in-memory template corpus for the benchmarks.
+ * <p>
+ * The corpus is derived from the template files shipped with the application: the templates are cycled
+ * until the requested size is reached, and every copy gets a distinct name, description and closing
+ * paragraph drawn from a fixed vocabulary with a fixed seed. The same size therefore always yields the
+ * same corpus, which keeps benchmark results comparable from run to run.
+ */
+final class MessageTemplateBenchmarkCorpus extends MessageTemplateCorpus {
+
+    static final Path RESOURCES = Path.of("src/main/jib/resources");
+
+    private static final long SEED = 42;
+
+    private static final List<String> VOCABULARY = List.of(
+            "account", "card", "loan", "mortgage", "savings", "deposit", "transfer", "statement", "payment",
+            "overdraft", "interest", "branch", "mobile", "online", "security", "verification", "limit", "fee",
+            "reminder", "confirmation", "notice", "approval", "rejection", "activation", "renewal", "update");
+
+    private final MessageTemplateCorpusSnapshot snapshot;
+
+    private MessageTemplateBenchmarkCorpus(MessageTemplateCorpusSnapshot snapshot) {
+        super(RESOURCES, MessageTemplateStorage.FILE, false, Duration.ZERO, false);
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Creates a corpus with the given number of templates.
+     *
+     * @param size the number of templates
+     * @return the corpus
+     */
+    static MessageTemplateBenchmarkCorpus of(int size) {
+        return new MessageTemplateBenchmarkCorpus(snapshot(size));
+    }
+
+    @Override
+    public MessageTemplateCorpusSnapshot snapshot() {
+        return snapshot;
+    }
+
+    static List<MessageTemplate> baseTemplates() {
+        try (var files = Files.list(RESOURCES.resolve("templates"))) {
+            return files.sorted()
+                    .map(file -> new MessageTemplate(file.getFileName().toString(),
+                            file.getFileName().toString().replace('_', ' '), read(file)))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MessageTemplateCorpusSnapshot snapshot(int size) {
+        var random = new Random(SEED);
+        var base = baseTemplates();
+        var templates = new ArrayList<MessageTemplate>(size);
+        for (int i = 0; i < size; i++) {
+            var template = base.get(i % base.size());
+            var topic = words(random, 3);
+            templates.add(new MessageTemplate(
+                    template.name() + "_" + i,
+                    template.description() + " for " + topic,
+                    template.content() + "<p>Further information about your " + topic + " is available at [[bank_name]].</p>"));
+        }
+        var names = new TreeSet<String>();
+        base.forEach(template -> names.addAll(MessageTemplatePlaceholders.extract(template.content())));
+        var parameters = names.stream()
+                .map(name -> {
+                    var parameter = new MessageTemplateParameter();
+                    parameter.setName(name);
+                    parameter.setDescription("The " + name.replace('_', ' ') + " of the message");
+                    return parameter;
+                })
+                .toList();
+        return new MessageTemplateCorpusSnapshot(1, "benchmark-" + size, parameters, templates, Instant.EPOCH);
+    }
+
+    private static String words(Random random, int count) {
+        var words = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            words.add(VOCABULARY.get(random.nextInt(VOCABULARY.size())));
+        }
+        return String.join(" ", words);
+    }
+
+    private static String read(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
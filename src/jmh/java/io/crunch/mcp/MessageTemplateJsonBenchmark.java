@@ -0,0 +1,61 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the JSON handling of the REST endpoints: reading a generation request and writing
+ * the streamed events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MessageTemplateJsonBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private byte[] request;
+
+    private MessageTemplateStreamEvent token;
+
+    private MessageTemplateStreamEvent completed;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        var template = MessageTemplateBenchmarkCorpus.baseTemplates().getFirst().content();
+        request = objectMapper.writeValueAsBytes(new MessageTemplateRequest(template, "Make the reminder shorter and friendlier"));
+        token = new MessageTemplateStreamEvent(MessageTemplateStreamEvent.Type.TOKEN, "<p>Dear [[customer_name]],");
+        completed = new MessageTemplateStreamEvent(MessageTemplateStreamEvent.Type.COMPLETED, template);
+    }
+
+    @Benchmark
+    public MessageTemplateRequest readRequest() throws IOException {
+        return objectMapper.readValue(request, MessageTemplateRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeTokenEvent() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(token);
+    }
+
+    @Benchmark
+    public byte[] writeCompletedEvent() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(completed);
+    }
+}
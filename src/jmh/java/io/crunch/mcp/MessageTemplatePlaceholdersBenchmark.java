@@ -0,0 +1,51 @@
+package io.crunch.mcp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the placeholder extraction over generated HTML of increasing length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MessageTemplatePlaceholdersBenchmark {
+
+    /**
+     * Number of shipped templates concatenated into one document.
+     */
+    @Param({"1", "10", "100"})
+    int templates;
+
+    private String html;
+
+    @Setup
+    public void setUp() {
+        var base = MessageTemplateBenchmarkCorpus.baseTemplates();
+        var builder = new StringBuilder();
+        for (int i = 0; i < templates; i++) {
+            builder.append(base.get(i % base.size()).content());
+        }
+        html = builder.toString();
+    }
+
+    @Benchmark
+    public Set<String> extract() {
+        return MessageTemplatePlaceholders.extract(html);
+    }
+}
@@ -0,0 +1,91 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks rendering a batch of messages with the compiled template against the regular expression
+ * replacement it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MessageTemplateRenderBenchmark {
+
+    private static final int MESSAGES = 1000;
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\[\\[(\\w+)]]");
+
+    private MessageTemplateRenderer renderer;
+
+    private MessageTemplateCompiledTemplate template;
+
+    private String content;
+
+    private Map<String, String> values;
+
+    private byte[] input;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        var corpus = MessageTemplateBenchmarkCorpus.of(10);
+        var objectMapper = new ObjectMapper();
+        renderer = new MessageTemplateRenderer(corpus, objectMapper);
+        var source = corpus.snapshot().templates().getFirst();
+        template = renderer.find(source.name()).orElseThrow();
+        content = source.content();
+        values = new HashMap<>();
+        template.parameters().forEach(parameter -> values.put(parameter.getName(), "value of " + parameter.getName()));
+        var lines = new StringBuilder();
+        for (int i = 0; i < MESSAGES; i++) {
+            lines.append(objectMapper.writeValueAsString(values)).append('\n');
+        }
+        input = lines.toString().getBytes();
+    }
+
+    @Benchmark
+    public long renderNdjson() {
+        return renderer.renderNdjson(template, new ByteArrayInputStream(input), OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public int renderCompiled() {
+        int length = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            length += template.render(values).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int renderRegex() {
+        int length = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            length += PLACEHOLDER.matcher(content)
+                    .replaceAll(match -> Matcher.quoteReplacement(values.get(match.group(1))))
+                    .length();
+        }
+        return length;
+    }
+}
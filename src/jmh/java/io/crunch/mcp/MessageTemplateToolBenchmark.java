@@ -0,0 +1,94 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the MCP tools as the model calls them, and the JSON serialization of their results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MessageTemplateToolBenchmark {
+
+    private static final String DESCRIPTION = "Reminder about an upcoming loan payment that is due next week";
+
+    @Param({"10", "100", "1000", "5000"})
+    int corpusSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MessageTemplateCorpusSnapshot snapshot;
+
+    private MessageTemplateTool tool;
+
+    private MessageTemplateTool compactTool;
+
+    @Setup
+    public void setUp() {
+        var corpus = MessageTemplateBenchmarkCorpus.of(corpusSize);
+        snapshot = corpus.snapshot();
+        var retriever = new MessageTemplateRetriever(corpus, 5);
+        var metrics = new MessageTemplateMetrics(new SimpleMeterRegistry());
+        var capture = new MessageTemplateCapture(false, 1, 0, 0);
+        tool = new MessageTemplateTool(corpus, retriever,
+                new MessageTemplateCompactor(corpus, objectMapper, MessageTemplatePayloadFormat.FULL, 40, true), metrics, capture, objectMapper);
+        compactTool = new MessageTemplateTool(corpus, retriever,
+                new MessageTemplateCompactor(corpus, objectMapper, MessageTemplatePayloadFormat.COMPACT, 40, true), metrics, capture, objectMapper);
+        // builds the retrieval index and detects the shared fragments, which only happens once per corpus version
+        retriever.find(DESCRIPTION, null);
+        compactTool.getMessageTemplates(null, null);
+    }
+
+    @Benchmark
+    public Object getTemplateParameters() {
+        return tool.getTemplateParameters();
+    }
+
+    @Benchmark
+    public Object getAllMessageTemplates() {
+        return tool.getMessageTemplates(null, null);
+    }
+
+    @Benchmark
+    public Object getRelevantMessageTemplates() {
+        return tool.getMessageTemplates(DESCRIPTION, null);
+    }
+
+    @Benchmark
+    public Object getAllCompactMessageTemplates() {
+        return compactTool.getMessageTemplates(null, null);
+    }
+
+    @Benchmark
+    public Object getRelevantCompactMessageTemplates() {
+        return compactTool.getMessageTemplates(DESCRIPTION, null);
+    }
+
+    @Benchmark
+    public byte[] serializeTemplateParameters() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(snapshot.parameters());
+    }
+
+    @Benchmark
+    public byte[] serializeMessageTemplates() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(snapshot.templates());
+    }
+}
@@ -4,7 +4,10 @@ import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import io.quarkiverse.langchain4j.RegisterAiService;
+import io.quarkiverse.langchain4j.ToolBox;
 import io.quarkiverse.langchain4j.mcp.runtime.McpToolBox;
+import io.quarkiverse.langchain4j.runtime.aiservice.ChatEvent;
+import io.smallrye.mutiny.Multi;
 
 /**
  * <p>
@@ -34,12 +37,14 @@ import io.quarkiverse.langchain4j.mcp.runtime.McpToolBox;
  *   <li>Uses {@link McpToolBox} to integrate with the "template-generator" toolchain,
  *       enabling the AI to access message templates and parameters dynamically.</li>
  *   <li>Relies on LangChain4j annotations to handle user prompts and system-level context messages.</li>
+ *   <li>Talks to the models through the {@link MessageTemplateModelRouter}, which sends each call to a small
+ *       or a large local model.</li>
  * </ul>
  *
  * <h3>Template Generation Behavior</h3>
  * <p>
  * The AI assistant operates under a controlled instruction set defined by the {@code @SystemMessage}
- * annotation (not shown here), which specifies rules for structure, style, and formatting.
+ * annotations (see {@link #TOOLS_SYSTEM_MESSAGE}), which specify rules for structure, style, and formatting.
  * </p>
  *
  * <p>
@@ -68,44 +73,18 @@ import io.quarkiverse.langchain4j.mcp.runtime.McpToolBox;
  * @see io.quarkiverse.langchain4j.RegisterAiService
  * @see io.quarkiverse.langchain4j.mcp.runtime.McpToolBox
  * @see MessageTemplateRequest
+ * @see MessageTemplateGenerator
  */
-@RegisterAiService()
+@RegisterAiService(
+        chatLanguageModelSupplier = MessageTemplateRoutingChatModel.Supplier.class,
+        streamingChatLanguageModelSupplier = MessageTemplateRoutingStreamingChatModel.Supplier.class)
 public interface MessageTemplateAssistant {
 
     /**
-     * Generates or refines a Banking/Financial Services message template based on
-     * the provided {@link MessageTemplateRequest}.
-     *
-     * <p>
-     * The method behavior is determined by the state of the {@code content} field:
-     * </p>
-     * <ul>
-     *   <li>If {@code content} is empty, the AI generates a new HTML template.</li>
-     *   <li>If {@code content} contains HTML, the AI refines and improves the existing template.</li>
-     * </ul>
-     *
-     * <p>
-     * The AI assistant uses the results from the registered MCP tools to:
-     * </p>
-     * <ul>
-     *   <li>Determine which placeholders are available and must be used.</li>
-     *   <li>Reference the structure, tone, and format of existing templates.</li>
-     *   <li>Ensure consistent formatting, tone, and placeholder accuracy.</li>
-     * </ul>
-     *
-     * <p>
-     * The generated result is a valid, self-contained HTML string
-     * containing header, body, and closing sections written in a formal,
-     * customer-facing tone.
-     * </p>
-     *
-     * @param request The {@link MessageTemplateRequest} object containing the message
-     *                description and optional existing template content.
-     * @param sessionId To assign different memory instances to different users or conversations,
-     *                annotate a method parameter with {@link MemoryId}
-     * @return A refined or newly generated HTML message template as a {@link String}.
+     * System message of the tool-driven generation methods; it instructs the model to call
+     * {@code list_template_parameters} and {@code get_message_templates} before answering.
      */
-    @SystemMessage(
+    String TOOLS_SYSTEM_MESSAGE =
         """
         You are an AI assistant specialized in generating and refining HTML message templates for a Banking / Financial Services workflow.
         Each message template includes dynamic placeholders in the format [[placeholder_name]], and must be written in a formal, polite tone appropriate for communication between a bank and its customers.
@@ -126,7 +105,8 @@ public interface MessageTemplateAssistant {
              - Select only the placeholders that are relevant to the message description.
         
              **Step 2: Call `get_message_templates`**
-             - Retrieve all existing message templates from the system.
+             - Pass the `description` of the request as the `description` argument.
+             - Retrieve the existing message templates that are most relevant to the request.
              - Carefully analyze these templates to understand their **style, structure, tone, and formatting conventions**.
              - Identify recurring elements, such as the common header block and the closing signature.
              - Use these templates as strict references for the format, tone, and layout of any new or updated template.
@@ -166,8 +146,331 @@ public interface MessageTemplateAssistant {
         - The output must be a valid, self-contained HTML string.
         - Use only placeholders provided by the tools.
         - Do not invent or use any new placeholders or fields.
+        """;
+
+    /**
+     * System message of the prefetch generation methods; the context is part of the user message and no tools are offered.
+     */
+    String PREFETCH_SYSTEM_MESSAGE =
+        """
+        You are an AI assistant specialized in generating and refining HTML message templates for a Banking / Financial Services workflow.
+        Each message template includes dynamic placeholders in the format [[placeholder_name]], and must be written in a formal, polite tone appropriate for communication between a bank and its customers.
+        
+        Your behavior depends on the user input:
+        - If the field `templateContent` is empty, generate a new HTML message template based on the provided `description`.
+        - If `templateContent` contains HTML, update and improve that template so that it better matches the `description`.
+        
+        The user message contains all the context you need:
+        - `placeholders`: the full list of available placeholders. These are the only valid dynamic fields that can appear in the templates.
+          You must not invent, modify, or use placeholders that are not in this list. Select only the placeholders that are relevant to the message description.
+        - `reference templates`: the existing message templates. Use them as strict references for the style, structure, tone, and formatting
+          of any new or updated template, including the common header block and the closing signature.
+        
+        Generate or Update the Message Template:
+        - If generating a **new template** (`templateContent` is empty):
+            * **Always start the template with a title line** that clearly states the purpose or name of the message
+              (for example, "Request an Additional Master Card" or "Payment Due Reminder").
+              - This title must appear at the very top of the HTML content, before any other section.
+              - Format it as a heading using an <h2> or <h3> tag, e.g. `<h2>Request an Additional Master Card</h2>`.
+            * **Immediately after the title**, include the standard header block with the following placeholders in this exact order (if available):
+              `customer_id`, `account_number`, `branch_name`, `branch_id`, `message_creation_date`.
+              You may include additional placeholders from the list only if relevant to the message description.
+            * **Always end the template with a standard closing block** that includes a polite signature, for example:
+              `<p>Sincerely,</p><p>Your [[bank_name]] Customer Care Team</p>`.
+        - If updating an existing template (`templateContent` is provided):
+            * Preserve and refine the existing title, header, and closing blocks.
+            * Adjust the main body so it better matches the description, placeholders, and the structure of the reference templates.
+        - Follow the structure, tone, and style of the reference templates exactly.
+        
+        Formatting and Content Rules:
+        - Use only the following HTML tags: <p>, <b>, <i>, <u>, <ul>, <ol>, <li>, <br>, <h2>, <h3>.
+        - Placeholders must strictly follow the format [[placeholder_name]].
+        - Include a greeting, a main message body, and a closing.
+        - Text length should be approximately 800–1500 characters (excluding HTML tags).
+        - Maintain a formal, courteous, and clear tone suitable for professional banking communication.
+        
+        Important:
+        - **You must always include both the standard header and closing blocks in every generated template.**
+        - Do not return a function call or JSON object.
+        - Return only the final HTML template content as plain text.
+        - Do not include explanations or reasoning steps in your output.
+        - The output must be a valid, self-contained HTML string.
+        - Use only placeholders from the provided list.
+        - Do not invent or use any new placeholders or fields.
+        """;
+
+    /**
+     * User message of the prefetch generation methods, carrying the prefetched {@link MessageTemplateContext}.
+     */
+    String PREFETCH_USER_MESSAGE =
+        """
+        placeholders:
+        {context.parameters}
+        
+        reference templates:
+        {context.templates}
+        
+        description:
+        {request.description}
+        
+        templateContent:
+        {request.content}
+        """;
+
+    /**
+     * User message of the corrective retry, sent in the conversation that produced an invalid template.
+     */
+    String REPAIR_USER_MESSAGE =
+        """
+        The template you produced violates the formatting rules:
+        {violations}
+        
+        Return the complete corrected HTML template.
+        Use only the placeholders you were given and only the following HTML tags: <p>, <b>, <i>, <u>, <ul>, <ol>, <li>, <br>, <h2>, <h3>.
+        Keep everything else unchanged. Do not explain the changes; return only the HTML template content as plain text.
+        """;
+
+    /**
+     * System message of the patch-based update method; the model answers with edits instead of the whole template.
+     */
+    String PATCH_SYSTEM_MESSAGE =
+        """
+        You are an AI assistant specialized in updating HTML message templates for a Banking / Financial Services workflow.
+        Each message template includes dynamic placeholders in the format [[placeholder_name]], and must be written in a formal, polite tone appropriate for communication between a bank and its customers.
+        
+        You receive an existing template in `templateContent` and a `description` of how the template should be.
+        Do not rewrite the template. Return only the edits that are needed to make it match the description:
+        - Each edit has a `find` and a `replace` field.
+        - `find` must be an exact, verbatim passage of the current template, including HTML tags and whitespace, and must occur only once in it.
+          Quote just enough text to make it unique.
+        - `replace` is the new text for that passage. Use an empty `replace` to delete the passage.
+          To insert text, quote the neighbouring passage in `find` and repeat it together with the new text in `replace`.
+        - Edits are applied one after another, each to the result of the previous one.
+        - Return an empty list of edits if the template already matches the description.
+        
+        Formatting and Content Rules:
+        - Keep the title, the standard header block and the closing block of the template.
+        - Use only the following HTML tags: <p>, <b>, <i>, <u>, <ul>, <ol>, <li>, <br>, <h2>, <h3>.
+        - Placeholders must strictly follow the format [[placeholder_name]]; use only placeholders from the `placeholders` list.
+        - Maintain a formal, courteous, and clear tone suitable for professional banking communication.
+        """;
+
+    /**
+     * User message of the patch-based update method.
+     */
+    String PATCH_USER_MESSAGE =
         """
-    )
+        placeholders:
+        {placeholders}
+        
+        description:
+        {request.description}
+        
+        templateContent:
+        {request.content}
+        """;
+
+    /**
+     * User message of a follow-up request in a refinement session.
+     */
+    String REFINE_USER_MESSAGE =
+        """
+        Refine the message template according to the following instruction:
+        {request.description}
+        
+        templateContent:
+        {request.content}
+        
+        If `templateContent` is empty, refine the template you produced last; otherwise refine `templateContent`, which is the current version
+        of the template and may contain manual changes. Keep following all rules of this conversation and use only the placeholders you were given.
+        Return only the complete HTML template content as plain text.
+        """;
+
+    /**
+     * Generates or refines a Banking/Financial Services message template based on
+     * the provided {@link MessageTemplateRequest}.
+     *
+     * <p>
+     * The method behavior is determined by the state of the {@code content} field:
+     * </p>
+     * <ul>
+     *   <li>If {@code content} is empty, the AI generates a new HTML template.</li>
+     *   <li>If {@code content} contains HTML, the AI refines and improves the existing template.</li>
+     * </ul>
+     *
+     * <p>
+     * The AI assistant uses the results from the registered MCP tools to:
+     * </p>
+     * <ul>
+     *   <li>Determine which placeholders are available and must be used.</li>
+     *   <li>Reference the structure, tone, and format of existing templates.</li>
+     *   <li>Ensure consistent formatting, tone, and placeholder accuracy.</li>
+     * </ul>
+     *
+     * <p>
+     * The generated result is a valid, self-contained HTML string
+     * containing header, body, and closing sections written in a formal,
+     * customer-facing tone.
+     * </p>
+     *
+     * @param request The {@link MessageTemplateRequest} object containing the message
+     *                description and optional existing template content.
+     * @param sessionId To assign different memory instances to different users or conversations,
+     *                annotate a method parameter with {@link MemoryId}
+     * @return A refined or newly generated HTML message template as a {@link String}.
+     */
+    @SystemMessage(TOOLS_SYSTEM_MESSAGE)
     @McpToolBox("template-generator")
     String generateTemplate(@MemoryId String sessionId, @UserMessage MessageTemplateRequest request);
+
+    /**
+     * Generates or refines a message template with in-process tool calls.
+     *
+     * <p>
+     * Behaves exactly like {@link #generateTemplate(String, MessageTemplateRequest)}, but the
+     * {@code list_template_parameters} and {@code get_message_templates} tools are provided by
+     * {@link MessageTemplateInProcessTool} and invoked directly inside the JVM instead of through
+     * the {@code template-generator} MCP client.
+     * </p>
+     *
+     * @param sessionId the memory id of the conversation
+     * @param request   the message description and optional existing template content
+     * @return A refined or newly generated HTML message template as a {@link String}.
+     * @see MessageTemplateToolTransport#IN_PROCESS
+     */
+    @SystemMessage(TOOLS_SYSTEM_MESSAGE)
+    @ToolBox(MessageTemplateInProcessTool.class)
+    String generateTemplateInProcess(@MemoryId String sessionId, @UserMessage MessageTemplateRequest request);
+
+    /**
+     * Generates or refines a message template from a context that has been collected by the server.
+     *
+     * <p>
+     * This is the {@link MessageTemplateGenerationMode#PREFETCH prefetch} variant of
+     * {@link #generateTemplate(String, MessageTemplateRequest)}: the available placeholders and the
+     * reference templates are part of the user message, no tools are offered to the model,
+     * and the template is produced in a single inference pass.
+     * </p>
+     *
+     * @param sessionId the memory id of the conversation
+     * @param request   the message description and optional existing template content
+     * @param context   the prefetched placeholders and reference templates
+     * @return A refined or newly generated HTML message template as a {@link String}.
+     */
+    @SystemMessage(PREFETCH_SYSTEM_MESSAGE)
+    @UserMessage(PREFETCH_USER_MESSAGE)
+    String generateTemplateFromContext(@MemoryId String sessionId, MessageTemplateRequest request, MessageTemplateContext context);
+
+    /**
+     * Streaming variant of {@link #generateTemplate(String, MessageTemplateRequest)}.
+     *
+     * <p>
+     * Emits the generated template token by token as {@link ChatEvent.PartialResponseEvent}s, surrounded by
+     * tool execution events and a final {@link ChatEvent.ChatCompletedEvent}.
+     * </p>
+     *
+     * @param sessionId the memory id of the conversation
+     * @param request   the message description and optional existing template content
+     * @return the stream of chat events of the generation
+     */
+    @SystemMessage(TOOLS_SYSTEM_MESSAGE)
+    @McpToolBox("template-generator")
+    Multi<ChatEvent> streamTemplate(@MemoryId String sessionId, @UserMessage MessageTemplateRequest request);
+
+    /**
+     * Streaming variant of {@link #generateTemplateInProcess(String, MessageTemplateRequest)}.
+     *
+     * @param sessionId the memory id of the conversation
+     * @param request   the message description and optional existing template content
+     * @return the stream of chat events of the generation
+     * @see #streamTemplate(String, MessageTemplateRequest)
+     */
+    @SystemMessage(TOOLS_SYSTEM_MESSAGE)
+    @ToolBox(MessageTemplateInProcessTool.class)
+    Multi<ChatEvent> streamTemplateInProcess(@MemoryId String sessionId, @UserMessage MessageTemplateRequest request);
+
+    /**
+     * Streaming variant of {@link #generateTemplateFromContext(String, MessageTemplateRequest, MessageTemplateContext)}.
+     *
+     * @param sessionId the memory id of the conversation
+     * @param request   the message description and optional existing template content
+     * @param context   the prefetched placeholders and reference templates
+     * @return the stream of chat events of the generation
+     * @see #streamTemplate(String, MessageTemplateRequest)
+     */
+    @SystemMessage(PREFETCH_SYSTEM_MESSAGE)
+    @UserMessage(PREFETCH_USER_MESSAGE)
+    Multi<ChatEvent> streamTemplateFromContext(@MemoryId String sessionId, MessageTemplateRequest request, MessageTemplateContext context);
+
+    /**
+     * Updates an existing template by returning edits to it instead of the updated template.
+     *
+     * <p>
+     * The placeholders are part of the user message and no tools are offered; the existing content is the
+     * reference for structure and style. The edits are applied by the {@link MessageTemplateGenerator}.
+     * </p>
+     *
+     * @param sessionId    the memory id of the conversation
+     * @param request      the description and the existing template content
+     * @param placeholders the JSON of the available placeholders
+     * @return the edits to the existing template
+     * @see MessageTemplateUpdateMode#PATCH
+     */
+    @SystemMessage(PATCH_SYSTEM_MESSAGE)
+    @UserMessage(PATCH_USER_MESSAGE)
+    MessageTemplatePatch patchTemplate(@MemoryId String sessionId, MessageTemplateRequest request, String placeholders);
+
+    /**
+     * Refines the template of an ongoing session according to a follow-up instruction.
+     *
+     * <p>
+     * Like {@link #repairTemplate(String, String)}, no system message and no tools are given: the session memory
+     * already holds the rules, the placeholders and the reference templates of the first generation, so the
+     * refinement costs a single model turn.
+     * </p>
+     *
+     * @param sessionId the memory id of the session
+     * @param request   the instruction as description and optionally the current template content
+     * @return the refined HTML message template
+     * @see MessageTemplateChatMemoryProvider
+     */
+    @UserMessage(REFINE_USER_MESSAGE)
+    String refineTemplate(@MemoryId String sessionId, MessageTemplateRequest request);
+
+    /**
+     * Streaming variant of {@link #refineTemplate(String, MessageTemplateRequest)}.
+     *
+     * @param sessionId the memory id of the session
+     * @param request   the instruction as description and optionally the current template content
+     * @return the stream of chat events of the refinement
+     */
+    @UserMessage(REFINE_USER_MESSAGE)
+    Multi<ChatEvent> streamRefineTemplate(@MemoryId String sessionId, MessageTemplateRequest request);
+
+    /**
+     * Asks the model to correct the template it produced earlier in the same conversation.
+     *
+     * <p>
+     * No system message is given, so the one of the original generation stays in the chat memory, together with
+     * the tool results or the prefetched context; the model can therefore fix the reported violations without
+     * fetching the context again.
+     * </p>
+     *
+     * @param sessionId  the memory id of the conversation that produced the invalid template
+     * @param violations the violations, as described by {@link MessageTemplateValidationResult#describe()}
+     * @return the corrected HTML message template
+     * @see MessageTemplateValidator
+     */
+    @UserMessage(REPAIR_USER_MESSAGE)
+    String repairTemplate(@MemoryId String sessionId, String violations);
+
+    /**
+     * Streaming variant of {@link #repairTemplate(String, String)}.
+     *
+     * @param sessionId  the memory id of the conversation that produced the invalid template
+     * @param violations the violations, as described by {@link MessageTemplateValidationResult#describe()}
+     * @return the stream of chat events of the corrected generation
+     */
+    @UserMessage(REPAIR_USER_MESSAGE)
+    Multi<ChatEvent> streamRepairTemplate(@MemoryId String sessionId, String violations);
 }
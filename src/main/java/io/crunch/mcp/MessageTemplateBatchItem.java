@@ -0,0 +1,40 @@
+package io.crunch.mcp;
+
+/**
+ * The state of a single request inside a {@link MessageTemplateBatchJob}.
+ *
+ * @param index       the position of the request in the submitted batch
+ * @param status      the processing status of the request
+ * @param description the description of the requested template
+ * @param template    the generated template if the request succeeded
+ * @param error       the failure reason if the request failed
+ */
+public record MessageTemplateBatchItem(int index, Status status, String description, String template, String error) {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    static MessageTemplateBatchItem pending(int index, MessageTemplateRequest request) {
+        return new MessageTemplateBatchItem(index, Status.PENDING, request.description(), null, null);
+    }
+
+    MessageTemplateBatchItem running() {
+        return new MessageTemplateBatchItem(index, Status.RUNNING, description, null, null);
+    }
+
+    MessageTemplateBatchItem succeeded(String template) {
+        return new MessageTemplateBatchItem(index, Status.SUCCEEDED, description, template, null);
+    }
+
+    MessageTemplateBatchItem failed(String error) {
+        return new MessageTemplateBatchItem(index, Status.FAILED, description, null, error);
+    }
+
+    boolean isDone() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+}
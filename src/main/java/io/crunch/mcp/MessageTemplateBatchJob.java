@@ -0,0 +1,146 @@
+package io.crunch.mcp;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of template generation requests processed in the background.
+ * <p>
+ * All requests of a job are generated against the same {@link MessageTemplateCorpusSnapshot}, captured when
+ * the job is submitted. A failing request only marks its own item as failed; the job always runs to the end.
+ * <p>
+ * Item updates can be polled with {@link #status()} or followed with {@link #results()}, which first replays
+ * the already finished items and then emits the remaining ones as they finish.
+ *
+ * @see MessageTemplateBatchService
+ */
+public class MessageTemplateBatchJob {
+
+    public enum State {
+        RUNNING,
+        COMPLETED
+    }
+
+    private final String id;
+
+    private final MessageTemplateCorpusSnapshot snapshot;
+
+    private final List<MessageTemplateRequest> requests;
+
+    private final MessageTemplateBatchItem[] items;
+
+    private final Instant createdAt = Instant.now();
+
+    private final List<MultiEmitter<? super MessageTemplateBatchItem>> subscribers = new ArrayList<>();
+
+    private Instant completedAt;
+
+    private int finished;
+
+    MessageTemplateBatchJob(String id, MessageTemplateCorpusSnapshot snapshot, List<MessageTemplateRequest> requests) {
+        this.id = id;
+        this.snapshot = snapshot;
+        this.requests = List.copyOf(requests);
+        this.items = new MessageTemplateBatchItem[requests.size()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = MessageTemplateBatchItem.pending(i, requests.get(i));
+        }
+    }
+
+    public String id() {
+        return id;
+    }
+
+    MessageTemplateCorpusSnapshot snapshot() {
+        return snapshot;
+    }
+
+    List<MessageTemplateRequest> requests() {
+        return requests;
+    }
+
+    /**
+     * Returns the current state of the job and all of its items.
+     *
+     * @return a consistent snapshot of the job status
+     */
+    public synchronized MessageTemplateBatchStatus status() {
+        int succeeded = 0;
+        int failed = 0;
+        for (var item : items) {
+            switch (item.status()) {
+                case SUCCEEDED -> succeeded++;
+                case FAILED -> failed++;
+                default -> {
+                }
+            }
+        }
+        return new MessageTemplateBatchStatus(id, state(), snapshot.version(), items.length, succeeded, failed,
+                createdAt, completedAt, List.of(items));
+    }
+
+    /**
+     * Streams the finished items of the job, completing when the last item has finished.
+     *
+     * @return the finished items, in completion order
+     */
+    public Multi<MessageTemplateBatchItem> results() {
+        return Multi.createFrom().emitter(emitter -> {
+            synchronized (this) {
+                for (var item : items) {
+                    if (item.isDone()) {
+                        emitter.emit(item);
+                    }
+                }
+                if (state() == State.COMPLETED) {
+                    emitter.complete();
+                } else {
+                    subscribers.add(emitter);
+                    emitter.onTermination(() -> {
+                        synchronized (this) {
+                            subscribers.remove(emitter);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    public synchronized State state() {
+        return completedAt == null ? State.RUNNING : State.COMPLETED;
+    }
+
+    synchronized Instant completedAt() {
+        return completedAt;
+    }
+
+    synchronized void started(int index) {
+        items[index] = items[index].running();
+    }
+
+    synchronized void succeeded(int index, String template) {
+        finish(items[index].succeeded(template));
+    }
+
+    synchronized void failed(int index, String error) {
+        finish(items[index].failed(error));
+    }
+
+    private void finish(MessageTemplateBatchItem item) {
+        items[item.index()] = item;
+        finished++;
+        if (finished == items.length) {
+            completedAt = Instant.now();
+        }
+        for (var subscriber : List.copyOf(subscribers)) {
+            subscriber.emit(item);
+            if (completedAt != null) {
+                subscriber.complete();
+            }
+        }
+    }
+}
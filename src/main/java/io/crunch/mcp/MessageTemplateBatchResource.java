@@ -0,0 +1,55 @@
+package io.crunch.mcp;
+
+import io.smallrye.mutiny.Multi;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.resteasy.reactive.RestResponse;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+
+import java.net.URI;
+import java.util.List;
+
+@Path("/api/batch")
+public class MessageTemplateBatchResource {
+
+    private final MessageTemplateBatchService batchService;
+
+    public MessageTemplateBatchResource(MessageTemplateBatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public RestResponse<MessageTemplateBatchStatus> submit(List<MessageTemplateRequest> requests) {
+        var job = batchService.submit(requests);
+        return RestResponse.ResponseBuilder.accepted(job.status())
+                .location(URI.create("/api/batch/" + job.id()))
+                .build();
+    }
+
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public MessageTemplateBatchStatus status(@PathParam("id") String id) {
+        return job(id).status();
+    }
+
+    @GET
+    @Path("/{id}/results")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<MessageTemplateBatchItem> results(@PathParam("id") String id) {
+        return job(id).results();
+    }
+
+    private MessageTemplateBatchJob job(String id) {
+        return batchService.find(id).orElseThrow(() -> new NotFoundException("Unknown batch job: " + id));
+    }
+}
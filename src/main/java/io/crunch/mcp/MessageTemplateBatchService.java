@@ -0,0 +1,177 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import io.quarkus.logging.Log;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.BadRequestException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Processes {@link MessageTemplateBatchJob}s in the background.
+ * <p>
+ * Onboarding a product line means generating dozens of templates at once. Instead of one blocking request per
+ * template, a batch is submitted in a single call and processed asynchronously:
+ * <ul>
+ *   <li>the corpus snapshot is captured once and shared by all requests of the batch, and every request
+ *       receives the corpus as prefetched context (see {@link MessageTemplateGenerationMode#PREFETCH}),
+ *       so no request spends model turns on tool calls;</li>
+ *   <li>at most {@code parallelism} requests of a job are handed to the model at the same time, never more than
+ *       {@code app.generation.max-concurrent}; they still pass the {@link MessageTemplateConcurrencyLimiter}, so batches
+ *       share the model fairly with interactive requests, but they wait for a slot as long as it takes instead of
+ *       failing with the interactive queue limits;</li>
+ *   <li>a failing request is recorded on its item and does not abort the job.</li>
+ * </ul>
+ * Jobs are kept in memory and removed {@code retention} after they completed.
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * app.batch.parallelism=1
+ * app.batch.max-size=500
+ * app.batch.retention=1h
+ * }</pre>
+ *
+ * @see MessageTemplateBatchResource
+ */
+@ApplicationScoped
+public class MessageTemplateBatchService {
+
+    private final MessageTemplateGenerator generator;
+
+    private final MessageTemplateContextProvider contextProvider;
+
+    private final MessageTemplateCorpus corpus;
+
+    private final ChatMemoryProvider chatMemoryProvider;
+
+    private final int parallelism;
+
+    private final int maxSize;
+
+    private final Duration retention;
+
+    private final Map<String, MessageTemplateBatchJob> jobs = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public MessageTemplateBatchService(MessageTemplateGenerator generator,
+                                       MessageTemplateContextProvider contextProvider,
+                                       MessageTemplateCorpus corpus,
+                                       ChatMemoryProvider chatMemoryProvider,
+                                       MessageTemplateConcurrencyLimiter limiter,
+                                       @ConfigProperty(name = "app.batch.parallelism", defaultValue = "1") int parallelism,
+                                       @ConfigProperty(name = "app.batch.max-size", defaultValue = "500") int maxSize,
+                                       @ConfigProperty(name = "app.batch.retention", defaultValue = "1h") Duration retention) {
+        this.generator = generator;
+        this.contextProvider = contextProvider;
+        this.corpus = corpus;
+        this.chatMemoryProvider = chatMemoryProvider;
+        this.parallelism = Math.clamp(parallelism, 1, limiter.maxConcurrent());
+        if (this.parallelism != parallelism) {
+            Log.warnf("app.batch.parallelism %d is limited to app.generation.max-concurrent %d", parallelism, this.parallelism);
+        }
+        this.maxSize = maxSize;
+        this.retention = retention;
+    }
+
+    /**
+     * Submits a batch of generation requests.
+     *
+     * @param requests the requests to generate templates for
+     * @return the submitted job
+     * @throws BadRequestException if the batch is empty or larger than {@code max-size}
+     */
+    public MessageTemplateBatchJob submit(List<MessageTemplateRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new BadRequestException("The batch must contain at least one request");
+        }
+        if (requests.size() > maxSize) {
+            throw new BadRequestException("The batch must not contain more than " + maxSize + " requests");
+        }
+        evictExpiredJobs();
+        var job = new MessageTemplateBatchJob(UUID.randomUUID().toString(), corpus.snapshot(), requests);
+        jobs.put(job.id(), job);
+        Log.infof("Submitted batch job %s with %d requests on corpus version %d", job.id(), requests.size(), job.snapshot().version());
+        executor.execute(() -> process(job));
+        return job;
+    }
+
+    /**
+     * Looks up a job by its id.
+     *
+     * @param id the job id
+     * @return the job, or an empty optional if it does not exist or has expired
+     */
+    public Optional<MessageTemplateBatchJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void process(MessageTemplateBatchJob job) {
+        var start = System.nanoTime();
+        var slots = new Semaphore(parallelism);
+        var requests = job.requests();
+        for (int i = 0; i < requests.size(); i++) {
+            var index = i;
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (int j = index; j < requests.size(); j++) {
+                    job.failed(j, "Batch processing was interrupted");
+                }
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    generate(job, index);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+        slots.acquireUninterruptibly(parallelism);
+        var status = job.status();
+        Log.infof("Batch job %s completed in %d ms: %d succeeded, %d failed", job.id(),
+                Duration.ofNanos(System.nanoTime() - start).toMillis(), status.succeeded(), status.failed());
+    }
+
+    private void generate(MessageTemplateBatchJob job, int index) {
+        var request = job.requests().get(index);
+        var sessionId = UUID.randomUUID().toString();
+        job.started(index);
+        try {
+            var context = contextProvider.forRequest(request, job.snapshot());
+            job.succeeded(index, generator.generateFromContext(sessionId, request, context));
+        } catch (RuntimeException e) {
+            Log.warnf(e, "Batch job %s request %d failed", job.id(), index);
+            job.failed(index, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            Optional.ofNullable(chatMemoryProvider.get(sessionId)).ifPresent(ChatMemory::clear);
+        }
+    }
+
+    private void evictExpiredJobs() {
+        var threshold = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            var completedAt = job.completedAt();
+            return completedAt != null && completedAt.isBefore(threshold);
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,28 @@
+package io.crunch.mcp;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Point-in-time view of a {@link MessageTemplateBatchJob}, returned when a job is polled.
+ *
+ * @param id            the job id
+ * @param state         the job state
+ * @param corpusVersion the corpus version all requests of the job are generated against
+ * @param total         the number of requests in the job
+ * @param succeeded     the number of requests that produced a template
+ * @param failed        the number of requests that failed
+ * @param createdAt     the time the job was submitted
+ * @param completedAt   the time the last request finished, {@code null} while the job is running
+ * @param items         the state of every request, in submission order
+ */
+public record MessageTemplateBatchStatus(String id,
+                                         MessageTemplateBatchJob.State state,
+                                         long corpusVersion,
+                                         int total,
+                                         int succeeded,
+                                         int failed,
+                                         Instant createdAt,
+                                         Instant completedAt,
+                                         List<MessageTemplateBatchItem> items) {
+}
@@ -0,0 +1,159 @@
+package io.crunch.mcp;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-memory capture of recent MCP exchanges and model calls.
+ * <p>
+ * Replaces the synchronous traffic and request/response logging for diagnosis: the messages are kept in a ring buffer
+ * of {@code app.capture.capacity} entries, where the oldest entries are overwritten, and can be queried or dumped
+ * through {@link MessageTemplateCaptureResource} when something has to be debugged.
+ *
+ * <h2>Overhead</h2>
+ * Whether a call is captured is decided once per exchange with {@link #sample()}, using {@code app.capture.sample-rate};
+ * the request and the response of a sampled call are both kept, so an exchange is never captured half. The content is
+ * passed as a {@link Supplier} and only rendered for sampled exchanges, then cut at
+ * {@code app.capture.max-content-length} characters. Writing an entry claims a slot with a single atomic increment;
+ * there is no lock and no I/O on the request path. Rendering a model request still serializes the whole conversation,
+ * so the sample rate defaults to {@code 0.05}; dev mode captures every call.
+ *
+ * <h2>Consistency</h2>
+ * Readers copy the slots without blocking writers. An entry that is overwritten while it is being read is skipped,
+ * so a query returns a consistent, possibly slightly shorter, list in sequence order.
+ *
+ * @see MessageTemplateChatModelListener
+ * @see MessageTemplateTool
+ */
+@ApplicationScoped
+public class MessageTemplateCapture {
+
+    /**
+     * The exchange id of calls that are not captured.
+     */
+    public static final long NOT_SAMPLED = 0;
+
+    private final boolean enabled;
+
+    private final double sampleRate;
+
+    private final int maxContentLength;
+
+    private final AtomicReferenceArray<MessageTemplateCaptureEntry> slots;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong exchanges = new AtomicLong();
+
+    public MessageTemplateCapture(@ConfigProperty(name = "app.capture.enabled", defaultValue = "true") boolean enabled,
+                                  @ConfigProperty(name = "app.capture.capacity", defaultValue = "500") int capacity,
+                                  @ConfigProperty(name = "app.capture.sample-rate", defaultValue = "0.05") double sampleRate,
+                                  @ConfigProperty(name = "app.capture.max-content-length", defaultValue = "20000") int maxContentLength) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("app.capture.capacity must be at least 1");
+        }
+        this.enabled = enabled && sampleRate > 0;
+        this.sampleRate = sampleRate;
+        this.maxContentLength = maxContentLength;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Decides whether a new exchange is captured.
+     *
+     * @return the id to pass to {@link #record}, or {@link #NOT_SAMPLED}
+     */
+    public long sample() {
+        if (!enabled || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return NOT_SAMPLED;
+        }
+        return exchanges.incrementAndGet();
+    }
+
+    /**
+     * Captures a message of a sampled exchange; does nothing for {@link #NOT_SAMPLED}.
+     *
+     * @param exchange       the id returned by {@link #sample()}
+     * @param type           what the message is
+     * @param name           the tool name or the model provider
+     * @param durationMillis the duration of the call, {@code 0} for requests
+     * @param content        renders the content; only called for sampled exchanges
+     */
+    public void record(long exchange, MessageTemplateCaptureType type, String name, long durationMillis,
+                       Supplier<String> content) {
+        if (exchange == NOT_SAMPLED) {
+            return;
+        }
+        var text = content.get();
+        var length = text != null ? text.length() : 0;
+        if (length > maxContentLength) {
+            text = text.substring(0, maxContentLength);
+        }
+        var position = sequence.getAndIncrement();
+        slots.set(index(position), new MessageTemplateCaptureEntry(
+                position, Instant.now(), exchange, type, name, durationMillis, text, length));
+    }
+
+    /**
+     * Returns the captured entries, oldest first.
+     *
+     * @return the entries currently held by the buffer
+     */
+    public List<MessageTemplateCaptureEntry> entries() {
+        var end = sequence.get();
+        var start = Math.max(0, end - slots.length());
+        var entries = new ArrayList<MessageTemplateCaptureEntry>((int) (end - start));
+        for (long position = start; position < end; position++) {
+            var entry = slots.get(index(position));
+            // null while the slot is claimed but not yet written; a newer sequence once it has been overwritten
+            if (entry != null && entry.sequence() == position) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the most recent entries, newest first.
+     *
+     * @param type  only entries of this type, {@code null} for all
+     * @param limit the maximum number of entries
+     * @return up to {@code limit} entries
+     */
+    public List<MessageTemplateCaptureEntry> recent(MessageTemplateCaptureType type, int limit) {
+        return entries().reversed().stream()
+                .filter(entry -> type == null || entry.type() == type)
+                .limit(Math.max(0, limit))
+                .toList();
+    }
+
+    /**
+     * Drops all captured entries.
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+
+    /**
+     * Returns whether capturing is enabled.
+     *
+     * @return {@code false} if disabled or the sample rate is {@code 0}
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    private int index(long position) {
+        return (int) (position % slots.length());
+    }
+}
@@ -0,0 +1,25 @@
+package io.crunch.mcp;
+
+import java.time.Instant;
+
+/**
+ * One captured message of an MCP exchange or a model call.
+ *
+ * @param sequence       the position in the capture buffer, increasing with every captured message
+ * @param timestamp      the time the message was captured
+ * @param exchange       the id shared by the request and the response of one tool or model call
+ * @param type           what the message is
+ * @param name           the tool name, or the model provider for model calls
+ * @param durationMillis the duration of the call for responses and errors, {@code 0} for requests
+ * @param content        the captured content, cut at {@code app.capture.max-content-length} characters
+ * @param length         the length of the content before it was cut
+ */
+public record MessageTemplateCaptureEntry(long sequence,
+                                          Instant timestamp,
+                                          long exchange,
+                                          MessageTemplateCaptureType type,
+                                          String name,
+                                          long durationMillis,
+                                          String content,
+                                          int length) {
+}
@@ -0,0 +1,68 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.jboss.resteasy.reactive.RestResponse;
+
+import java.time.Instant;
+import java.util.List;
+
+import static io.crunch.mcp.MessageTemplateRenderResource.APPLICATION_NDJSON;
+
+/**
+ * Admin API of the {@link MessageTemplateCapture} buffer.
+ * <ul>
+ *   <li>{@code GET /api/admin/capture?type=MODEL_REQUEST&limit=20}: the most recent entries, newest first.</li>
+ *   <li>{@code GET /api/admin/capture/dump}: every entry in the buffer as an NDJSON download, oldest first.</li>
+ *   <li>{@code DELETE /api/admin/capture}: empties the buffer.</li>
+ * </ul>
+ */
+@Path("/api/admin/capture")
+public class MessageTemplateCaptureResource {
+
+    private final MessageTemplateCapture capture;
+
+    private final ObjectMapper objectMapper;
+
+    public MessageTemplateCaptureResource(MessageTemplateCapture capture, ObjectMapper objectMapper) {
+        this.capture = capture;
+        this.objectMapper = objectMapper;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<MessageTemplateCaptureEntry> recent(@QueryParam("type") MessageTemplateCaptureType type,
+                                                    @QueryParam("limit") @DefaultValue("100") int limit) {
+        return capture.recent(type, limit);
+    }
+
+    @GET
+    @Path("/dump")
+    @Produces(APPLICATION_NDJSON)
+    public RestResponse<StreamingOutput> dump() {
+        var entries = capture.entries();
+        StreamingOutput output = stream -> {
+            for (var entry : entries) {
+                stream.write(objectMapper.writeValueAsBytes(entry));
+                stream.write('\n');
+            }
+        };
+        return RestResponse.ResponseBuilder.ok(output)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"capture-" + Instant.now().getEpochSecond() + ".ndjson\"")
+                .build();
+    }
+
+    @DELETE
+    public void clear() {
+        capture.clear();
+    }
+}
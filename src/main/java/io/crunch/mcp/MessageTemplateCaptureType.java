@@ -0,0 +1,22 @@
+package io.crunch.mcp;
+
+/**
+ * Defines what a {@link MessageTemplateCaptureEntry} holds.
+ *
+ * <ul>
+ *   <li>{@link #MCP_REQUEST}: the arguments of an MCP tool call received by {@link MessageTemplateTool}.</li>
+ *   <li>{@link #MCP_RESPONSE}: the content returned for that tool call.</li>
+ *   <li>{@link #MODEL_REQUEST}: the messages sent to the chat model, as JSON.</li>
+ *   <li>{@link #MODEL_RESPONSE}: the message the model answered with, including requested tool calls.</li>
+ *   <li>{@link #MODEL_ERROR}: the error of a failed model call.</li>
+ * </ul>
+ *
+ * @see MessageTemplateCapture
+ */
+public enum MessageTemplateCaptureType {
+    MCP_REQUEST,
+    MCP_RESPONSE,
+    MODEL_REQUEST,
+    MODEL_RESPONSE,
+    MODEL_ERROR
+}
@@ -0,0 +1,129 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides the chat memories of the {@link MessageTemplateAssistant}, replacing the default message window memory.
+ * <p>
+ * A single-shot generation clears its memory when it completes. A refinement session keeps its
+ * {@link MessageTemplateSessionMemory} across requests, so a follow-up instruction such as "make it shorter"
+ * is answered in one model turn from the context that is already in memory. Each memory is bounded by a
+ * token budget, and sessions that have not been used for the idle timeout are removed.
+ *
+ * <h2>Session Requests</h2>
+ * Clients choose their own session ids, so the requests of a session are serialized: {@link #begin(String)} admits
+ * one request per session at a time, and a new session is only opened while fewer than {@code max-sessions}
+ * memories are live, counting the memories of running single-shot generations.
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * app.session.token-budget=16000
+ * app.session.idle-timeout=30m
+ * app.session.max-sessions=1000
+ * }</pre>
+ *
+ * @see MessageTemplateResource
+ */
+@ApplicationScoped
+public class MessageTemplateChatMemoryProvider implements ChatMemoryProvider {
+
+    /**
+     * How long a client rejected because of too many open sessions is asked to wait.
+     */
+    private static final Duration SESSION_RETRY_AFTER = Duration.ofMinutes(1);
+
+    private final long tokenBudget;
+
+    private final Duration idleTimeout;
+
+    private final int maxSessions;
+
+    private final Map<Object, MessageTemplateSessionMemory> memories = new ConcurrentHashMap<>();
+
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public MessageTemplateChatMemoryProvider(@ConfigProperty(name = "app.session.token-budget", defaultValue = "16000") long tokenBudget,
+                                             @ConfigProperty(name = "app.session.idle-timeout", defaultValue = "30m") Duration idleTimeout,
+                                             @ConfigProperty(name = "app.session.max-sessions", defaultValue = "1000") int maxSessions) {
+        this.tokenBudget = tokenBudget;
+        this.idleTimeout = idleTimeout;
+        this.maxSessions = maxSessions;
+    }
+
+    @Override
+    public MessageTemplateSessionMemory get(Object memoryId) {
+        evictIdleSessions();
+        return memories.computeIfAbsent(memoryId, id -> new MessageTemplateSessionMemory(id, tokenBudget, () -> memories.remove(id)));
+    }
+
+    /**
+     * Tells whether a session has produced a template that can be refined.
+     *
+     * @param sessionId the session id
+     * @return {@code true} if the session exists and holds at least one answer
+     */
+    public boolean isActive(String sessionId) {
+        var memory = memories.get(sessionId);
+        return memory != null && memory.hasAnswer();
+    }
+
+    /**
+     * Admits a request of a session; every successful call must be paired with exactly one {@link #finish(String)}.
+     *
+     * @param sessionId the session id
+     * @return {@code false} if another request of the session is still running
+     * @throws MessageTemplateRejectedException if the session is new and {@code max-sessions} memories are live
+     */
+    public boolean begin(String sessionId) {
+        evictIdleSessions();
+        if (!memories.containsKey(sessionId) && memories.size() >= maxSessions) {
+            Log.warnf("Session %s rejected, %d sessions are open", sessionId, memories.size());
+            throw new MessageTemplateRejectedException("Too many open sessions", SESSION_RETRY_AFTER);
+        }
+        return running.add(sessionId);
+    }
+
+    /**
+     * Marks the request admitted by {@link #begin(String)} as finished, so the next request of the session can run.
+     *
+     * @param sessionId the session id
+     */
+    public void finish(String sessionId) {
+        running.remove(sessionId);
+    }
+
+    /**
+     * Ends a session and releases its memory.
+     *
+     * @param sessionId the session id
+     * @return {@code true} if the session existed
+     */
+    public boolean end(String sessionId) {
+        var memory = memories.get(sessionId);
+        if (memory == null) {
+            return false;
+        }
+        memory.clear();
+        return true;
+    }
+
+    private void evictIdleSessions() {
+        var threshold = Instant.now().minus(idleTimeout);
+        memories.values().removeIf(memory -> {
+            var idle = memory.lastAccess().isBefore(threshold);
+            if (idle) {
+                Log.debugf("Session %s expired", memory.id());
+            }
+            return idle;
+        });
+    }
+}
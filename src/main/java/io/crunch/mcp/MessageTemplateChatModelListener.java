@@ -0,0 +1,90 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency and token usage of every model call.
+ * <p>
+ * {@code quarkus-langchain4j} registers all {@link ChatModelListener} beans with the chat models, so this
+ * listener sees each turn of a generation, including the intermediate turns that only request tool calls.
+ * Sampled calls are also kept in the {@link MessageTemplateCapture} buffer: the request messages and the answer
+ * as JSON, or the error.
+ *
+ * @see MessageTemplateMetrics
+ * @see MessageTemplateCapture
+ */
+@ApplicationScoped
+public class MessageTemplateChatModelListener implements ChatModelListener {
+
+    private static final String START_NANOS = MessageTemplateChatModelListener.class.getName() + ".start";
+
+    private static final String EXCHANGE = MessageTemplateChatModelListener.class.getName() + ".exchange";
+
+    private final MessageTemplateMetrics metrics;
+
+    private final MessageTemplateCapture capture;
+
+    public MessageTemplateChatModelListener(MessageTemplateMetrics metrics, MessageTemplateCapture capture) {
+        this.metrics = metrics;
+        this.capture = capture;
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext requestContext) {
+        requestContext.attributes().put(START_NANOS, System.nanoTime());
+        var exchange = capture.sample();
+        requestContext.attributes().put(EXCHANGE, exchange);
+        capture.record(exchange, MessageTemplateCaptureType.MODEL_REQUEST, model(requestContext.chatRequest(), requestContext.modelProvider()), 0,
+                () -> ChatMessageSerializer.messagesToJson(requestContext.chatRequest().messages()));
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        var chatResponse = responseContext.chatResponse();
+        var tokenUsage = chatResponse.tokenUsage();
+        var elapsed = elapsed(responseContext.attributes().get(START_NANOS));
+        metrics.recordModelCall(elapsed,
+                tokenUsage != null ? tokenUsage.inputTokenCount() : null,
+                tokenUsage != null ? tokenUsage.outputTokenCount() : null);
+        capture.record(exchange(responseContext.attributes()), MessageTemplateCaptureType.MODEL_RESPONSE,
+                model(responseContext.chatRequest(), responseContext.modelProvider()), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                () -> ChatMessageSerializer.messageToJson(chatResponse.aiMessage()));
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        metrics.recordModelError(errorContext.error());
+        capture.record(exchange(errorContext.attributes()), MessageTemplateCaptureType.MODEL_ERROR,
+                model(errorContext.chatRequest(), errorContext.modelProvider()),
+                TimeUnit.NANOSECONDS.toMillis(elapsed(errorContext.attributes().get(START_NANOS))),
+                () -> String.valueOf(errorContext.error()));
+    }
+
+    /**
+     * Names the model of a call, so captures of the small and the large model can be told apart.
+     */
+    private static String model(ChatRequest chatRequest, ModelProvider provider) {
+        if (chatRequest != null && chatRequest.modelName() != null) {
+            return chatRequest.modelName();
+        }
+        return provider != null ? provider.name() : "unknown";
+    }
+
+    private static long exchange(Map<Object, Object> attributes) {
+        return attributes.get(EXCHANGE) instanceof Long exchange ? exchange : MessageTemplateCapture.NOT_SAMPLED;
+    }
+
+    private static long elapsed(Object startNanos) {
+        return startNanos instanceof Long start ? System.nanoTime() - start : 0;
+    }
+}
@@ -0,0 +1,31 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact {@code get_message_templates} result.
+ * <p>
+ * Blocks shared by several templates are listed once under {@code fragments}; a template content refers to
+ * them as {@code {{id}}}. Only the fragments referenced by the returned templates are included.
+ *
+ * @param fragments the shared blocks by id
+ * @param templates the templates, with their shared blocks replaced by fragment references
+ * @see MessageTemplateCompactor
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record MessageTemplateCompactPayload(Map<String, String> fragments, List<Template> templates) {
+
+    /**
+     * A template of the compact payload.
+     *
+     * @param name        the template name
+     * @param description the template description; {@code null} if descriptions are stripped
+     * @param content     the HTML content with fragment references
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Template(String name, String description, String content) {
+    }
+}
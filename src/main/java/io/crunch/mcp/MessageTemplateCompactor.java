@@ -0,0 +1,178 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the compact tool payloads of the {@link MessageTemplatePayloadFormat#COMPACT compact} format.
+ * <p>
+ * Every template of the corpus repeats the same header block and closing lines, and every parameter carries its
+ * database id, which the model never needs. In the compact format the {@link MessageTemplateTool tools} return:
+ * <ul>
+ *   <li>the parameters as a single {@code name -> description} object;</li>
+ *   <li>the templates with their shared blocks factored out into {@link MessageTemplateFragments fragments},
+ *       each of them sent once per tool call, and optionally without their descriptions.</li>
+ * </ul>
+ * Fragments are detected once per {@link MessageTemplateCorpusSnapshot corpus version}. The size of the full
+ * payload is computed at the same time, so the saving of every tool call can be reported without serializing
+ * the full payload again.
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * app.tool.payload-format=compact
+ * app.tool.compact.min-fragment-length=40
+ * app.tool.compact.include-descriptions=true
+ * }</pre>
+ *
+ * @see MessageTemplateCompactPayload
+ */
+@ApplicationScoped
+public class MessageTemplateCompactor {
+
+    /**
+     * Shared blocks must occur in at least this many templates.
+     */
+    private static final int MIN_SHARE = 2;
+
+    private final MessageTemplateCorpus corpus;
+
+    private final ObjectMapper objectMapper;
+
+    private final MessageTemplatePayloadFormat format;
+
+    private final int minFragmentLength;
+
+    private final boolean includeDescriptions;
+
+    private volatile Compacted compacted;
+
+    public MessageTemplateCompactor(MessageTemplateCorpus corpus,
+                                    ObjectMapper objectMapper,
+                                    @ConfigProperty(name = "app.tool.payload-format", defaultValue = "full") MessageTemplatePayloadFormat format,
+                                    @ConfigProperty(name = "app.tool.compact.min-fragment-length", defaultValue = "40") int minFragmentLength,
+                                    @ConfigProperty(name = "app.tool.compact.include-descriptions", defaultValue = "true") boolean includeDescriptions) {
+        this.corpus = corpus;
+        this.objectMapper = objectMapper;
+        this.format = format;
+        this.minFragmentLength = minFragmentLength;
+        this.includeDescriptions = includeDescriptions;
+    }
+
+    /**
+     * Tells whether the tools return the compact format.
+     *
+     * @return {@code true} if {@code app.tool.payload-format} is {@code compact}
+     */
+    public boolean enabled() {
+        return format == MessageTemplatePayloadFormat.COMPACT;
+    }
+
+    /**
+     * Tells whether the fragments and sizes of the given snapshot are already computed, so compacting its
+     * templates costs no detection or full serialization.
+     *
+     * @param snapshot the corpus snapshot the tool answers from
+     * @return {@code true} if the compact format is disabled or the snapshot has been compacted
+     */
+    public boolean ready(MessageTemplateCorpusSnapshot snapshot) {
+        var current = compacted;
+        return !enabled() || (current != null && current.version() == snapshot.version());
+    }
+
+    /**
+     * Returns the compact form of the given parameters.
+     *
+     * @param parameters the parameters to return
+     * @return the parameter descriptions by name, in the order of the given list
+     */
+    public Map<String, String> parameters(List<MessageTemplateParameter> parameters) {
+        var compact = new LinkedHashMap<String, String>();
+        parameters.forEach(parameter -> compact.put(parameter.getName(), parameter.getDescription()));
+        return compact;
+    }
+
+    /**
+     * Returns the compact form of the given templates.
+     *
+     * @param templates the templates to return, selected from the current corpus
+     * @return the templates with their shared blocks factored out
+     */
+    public MessageTemplateCompactPayload templates(List<MessageTemplate> templates) {
+        var fragments = current().fragments();
+        return new MessageTemplateCompactPayload(
+                fragments.referencedBy(templates),
+                templates.stream()
+                        .map(template -> new MessageTemplateCompactPayload.Template(
+                                template.name(),
+                                includeDescriptions ? template.description() : null,
+                                fragments.compact(template)))
+                        .toList());
+    }
+
+    /**
+     * Returns the size of the given parameters in the full format.
+     *
+     * @param parameters the parameters of the current corpus
+     * @return the size of their JSON serialization in bytes
+     */
+    public long parametersSize(List<MessageTemplateParameter> parameters) {
+        var current = current();
+        return parameters == current.parameters() ? current.parametersSize() : size(parameters);
+    }
+
+    /**
+     * Returns the size of the given templates in the full format.
+     *
+     * @param templates templates of the current corpus
+     * @return the size of their JSON serialization in bytes
+     */
+    public long templatesSize(List<MessageTemplate> templates) {
+        var sizes = current().templateSizes();
+        long size = 0;
+        for (var template : templates) {
+            var templateSize = sizes.get(template.name());
+            size += templateSize != null ? templateSize : size(template);
+        }
+        return size;
+    }
+
+    private Compacted current() {
+        var snapshot = corpus.loaded();
+        var current = compacted;
+        if (current == null || current.version() != snapshot.version()) {
+            current = compact(snapshot);
+            compacted = current;
+        }
+        return current;
+    }
+
+    private Compacted compact(MessageTemplateCorpusSnapshot snapshot) {
+        var fragments = MessageTemplateFragments.detect(snapshot.templates(), minFragmentLength, MIN_SHARE);
+        var templateSizes = new LinkedHashMap<String, Long>();
+        snapshot.templates().forEach(template -> templateSizes.put(template.name(), size(template)));
+        Log.infof("Detected %d shared fragments in corpus version %d", fragments.fragments().size(), snapshot.version());
+        return new Compacted(snapshot.version(), fragments, snapshot.parameters(), size(snapshot.parameters()), Map.copyOf(templateSizes));
+    }
+
+    private long size(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value).length;
+        } catch (JsonProcessingException e) {
+            throw new MessageTemplateException("Error serializing tool payload", e);
+        }
+    }
+
+    private record Compacted(long version,
+                             MessageTemplateFragments fragments,
+                             List<MessageTemplateParameter> parameters,
+                             long parametersSize,
+                             Map<String, Long> templateSizes) {
+    }
+}
@@ -0,0 +1,202 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A message template pre-compiled for rendering.
+ * <p>
+ * The template content is split once into an immutable array of literal chunks and parameter slots:
+ * {@code literal[0] slot[0] literal[1] slot[1] ... literal[n]}. Every slot points to one of the distinct
+ * {@link MessageTemplateParameter parameters} the template references, resolved by name against the corpus
+ * when the template is compiled. Rendering then only copies literals and values in order; no regular
+ * expression runs and no intermediate strings are built per message.
+ * <p>
+ * The literals are additionally kept as JSON-escaped UTF-8 bytes, so {@link #writeJson(String[], MessageTemplateNdjsonWriter)}
+ * can write a rendered message straight into an NDJSON response. Values are HTML-escaped when inserted.
+ * Instances are immutable and shared between threads.
+ *
+ * @see MessageTemplateRenderer
+ */
+public final class MessageTemplateCompiledTemplate {
+
+    private static final String[] HTML_ESCAPES = new String['>' + 1];
+
+    static {
+        HTML_ESCAPES['&'] = "&amp;";
+        HTML_ESCAPES['<'] = "&lt;";
+        HTML_ESCAPES['>'] = "&gt;";
+        HTML_ESCAPES['"'] = "&quot;";
+        HTML_ESCAPES['\''] = "&#39;";
+    }
+
+    private final String name;
+
+    private final String[] literals;
+
+    private final byte[][] jsonLiterals;
+
+    private final int[] slots;
+
+    private final List<MessageTemplateParameter> parameters;
+
+    private final Map<String, Integer> positions;
+
+    private MessageTemplateCompiledTemplate(String name, String[] literals, int[] slots,
+                                            List<MessageTemplateParameter> parameters, Map<String, Integer> positions) {
+        this.name = name;
+        this.literals = literals;
+        this.slots = slots;
+        this.parameters = List.copyOf(parameters);
+        this.positions = Map.copyOf(positions);
+        this.jsonLiterals = new byte[literals.length][];
+        var encoder = JsonStringEncoder.getInstance();
+        for (int i = 0; i < literals.length; i++) {
+            jsonLiterals[i] = encoder.quoteAsUTF8(literals[i]);
+        }
+    }
+
+    /**
+     * Compiles a template against the parameters of the corpus.
+     *
+     * @param template   the template to compile
+     * @param parameters the known parameters by name
+     * @return the compiled template
+     * @throws MessageTemplateException if the template references an unknown parameter
+     */
+    static MessageTemplateCompiledTemplate compile(MessageTemplate template, Map<String, MessageTemplateParameter> parameters) {
+        var content = template.content();
+        var literals = new ArrayList<String>();
+        var slots = new ArrayList<Integer>();
+        var referenced = new ArrayList<MessageTemplateParameter>();
+        var positions = new HashMap<String, Integer>();
+        MessageTemplatePlaceholders.scan(content, new MessageTemplatePlaceholders.Handler() {
+            @Override
+            public void literal(int start, int end) {
+                literals.add(content.substring(start, end));
+            }
+
+            @Override
+            public void placeholder(String name) {
+                var position = positions.get(name);
+                if (position == null) {
+                    var parameter = parameters.get(name);
+                    if (parameter == null) {
+                        throw new MessageTemplateException("Template " + template.name() + " references unknown parameter: " + name);
+                    }
+                    position = referenced.size();
+                    referenced.add(parameter);
+                    positions.put(name, position);
+                }
+                slots.add(position);
+            }
+        });
+        return new MessageTemplateCompiledTemplate(template.name(), literals.toArray(String[]::new),
+                slots.stream().mapToInt(Integer::intValue).toArray(), referenced, positions);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the distinct parameters referenced by the template; a value array passed to the render methods
+     * holds the value of the n-th parameter at index n.
+     *
+     * @return the referenced parameters in order of first appearance
+     */
+    public List<MessageTemplateParameter> parameters() {
+        return parameters;
+    }
+
+    /**
+     * Returns the index of the given parameter in the value array.
+     *
+     * @param parameterName the parameter name
+     * @return the index, or {@code -1} if the template does not reference the parameter
+     */
+    public int position(String parameterName) {
+        var position = positions.get(parameterName);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Returns the name of the first parameter without a value.
+     *
+     * @param values the parameter values by {@link #position(String) position}
+     * @return the parameter name, or {@code null} if all values are present
+     */
+    public String missing(String[] values) {
+        for (int i = 0; i < parameters.size(); i++) {
+            if (values[i] == null) {
+                return parameters.get(i).getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renders the template into a string.
+     *
+     * @param values the parameter values by name
+     * @return the rendered HTML
+     * @throws MessageTemplateException if a referenced parameter has no value
+     */
+    public String render(Map<String, ?> values) {
+        var builder = new StringBuilder(capacity());
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            var parameter = parameters.get(slots[i]);
+            var value = values.get(parameter.getName());
+            if (value == null) {
+                throw new MessageTemplateException("Missing value for parameter: " + parameter.getName());
+            }
+            appendHtml(builder, value.toString());
+        }
+        return builder.append(literals[slots.length]).toString();
+    }
+
+    /**
+     * Writes the rendered template as a quoted JSON string.
+     *
+     * @param values the parameter values by {@link #position(String) position}; must not contain {@code null}
+     * @param writer the target
+     */
+    void writeJson(String[] values, MessageTemplateNdjsonWriter writer) {
+        writer.write('"');
+        for (int i = 0; i < slots.length; i++) {
+            writer.write(jsonLiterals[i]);
+            writer.writeHtmlValue(values[slots[i]]);
+        }
+        writer.write(jsonLiterals[slots.length]);
+        writer.write('"');
+    }
+
+    private int capacity() {
+        int length = 0;
+        for (var literal : literals) {
+            length += literal.length();
+        }
+        return length + slots.length * 16;
+    }
+
+    static String htmlEscape(char c) {
+        return c < HTML_ESCAPES.length ? HTML_ESCAPES[c] : null;
+    }
+
+    private static void appendHtml(StringBuilder builder, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            var escaped = htmlEscape(c);
+            if (escaped != null) {
+                builder.append(escaped);
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+}
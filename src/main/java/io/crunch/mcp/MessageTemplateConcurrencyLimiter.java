@@ -0,0 +1,240 @@
+package io.crunch.mcp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of the {@link MessageTemplateAssistant}.
+ * <p>
+ * A single Ollama instance serializes inference anyway, so running more generations in parallel only
+ * makes every one of them slower until they all hit the model timeout. The limiter admits at most
+ * {@code max-concurrent} generations; further requests wait in a bounded queue for a free slot.
+ *
+ * <ul>
+ *   <li>If the queue is full, the request is rejected immediately.</li>
+ *   <li>If no slot frees up within {@code queue-timeout}, the waiting request is rejected.</li>
+ * </ul>
+ * Rejections raise a {@link MessageTemplateRejectedException} with the configured {@code retry-after} hint.
+ * Waiting is meant to happen on virtual threads, so a queued request does not hold a platform worker thread.
+ * <p>
+ * Background work such as batch items is admitted with {@link #callInBackground(Supplier)}: it waits for a slot as
+ * long as it takes, outside the bounded queue, so it neither fails because of interactive traffic nor takes queue
+ * places away from interactive requests. Slots are handed out in arrival order to both kinds of waiters.
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code template.generation.active}: generations currently running.</li>
+ *   <li>{@code template.generation.queue.depth}: interactive requests waiting for a slot.</li>
+ *   <li>{@code template.generation.background.depth}: background work waiting for a slot.</li>
+ *   <li>{@code template.generation.queue.wait}: time spent waiting for a slot.</li>
+ *   <li>{@code template.generation.rejected}: rejected requests, tagged with the {@code reason}.</li>
+ * </ul>
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * app.generation.max-concurrent=1
+ * app.generation.max-queued=10
+ * app.generation.queue-timeout=60s
+ * app.generation.retry-after=30s
+ * }</pre>
+ *
+ * @see MessageTemplateGenerator
+ */
+@ApplicationScoped
+public class MessageTemplateConcurrencyLimiter {
+
+    private final Semaphore permits;
+
+    private final int maxConcurrent;
+
+    private final int maxQueued;
+
+    private final Duration queueTimeout;
+
+    private final Duration retryAfter;
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger backgroundQueued = new AtomicInteger();
+
+    private final Timer queueWait;
+
+    private final Counter queueFullRejections;
+
+    private final Counter queueTimeoutRejections;
+
+    public MessageTemplateConcurrencyLimiter(MeterRegistry registry,
+                                             @ConfigProperty(name = "app.generation.max-concurrent", defaultValue = "1") int maxConcurrent,
+                                             @ConfigProperty(name = "app.generation.max-queued", defaultValue = "10") int maxQueued,
+                                             @ConfigProperty(name = "app.generation.queue-timeout", defaultValue = "60s") Duration queueTimeout,
+                                             @ConfigProperty(name = "app.generation.retry-after", defaultValue = "30s") Duration retryAfter) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueTimeout = queueTimeout;
+        this.retryAfter = retryAfter;
+        registry.gauge("template.generation.active", active);
+        registry.gauge("template.generation.queue.depth", queued);
+        registry.gauge("template.generation.background.depth", backgroundQueued);
+        this.queueWait = Timer.builder("template.generation.queue.wait")
+                .description("Time a generation request waited for a free slot")
+                .register(registry);
+        this.queueFullRejections = rejections(registry, "queue-full");
+        this.queueTimeoutRejections = rejections(registry, "queue-timeout");
+    }
+
+    private static Counter rejections(MeterRegistry registry, String reason) {
+        return Counter.builder("template.generation.rejected")
+                .description("Generation requests rejected by admission control")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * Runs the task once a generation slot is available.
+     *
+     * @param task the generation to run
+     * @param <T>  the result type
+     * @return the result of the task
+     * @throws MessageTemplateRejectedException if the request is not admitted
+     */
+    public <T> T call(Supplier<T> task) {
+        acquire();
+        try {
+            return task.get();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Blocks until a generation slot is available.
+     * <p>
+     * Every successful call must be paired with exactly one {@link #release()}.
+     *
+     * @throws MessageTemplateRejectedException if the queue is full or the wait timed out
+     */
+    public void acquire() {
+        try {
+            // the timed variant honors the fairness of the semaphore and never overtakes waiting requests
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                active.incrementAndGet();
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageTemplateRejectedException("Interrupted while waiting for a generation slot", retryAfter);
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            queueFullRejections.increment();
+            Log.warnf("Generation rejected, %d requests are already waiting", maxQueued);
+            throw new MessageTemplateRejectedException("Too many pending template generations", retryAfter);
+        }
+        var start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                queueTimeoutRejections.increment();
+                Log.warnf("Generation rejected after waiting %s for a free slot", queueTimeout);
+                throw new MessageTemplateRejectedException("No generation slot became available in time", retryAfter);
+            }
+            active.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageTemplateRejectedException("Interrupted while waiting for a generation slot", retryAfter);
+        } finally {
+            queued.decrementAndGet();
+            queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Runs background work once a generation slot is available, however long that takes.
+     *
+     * @param task the generation to run
+     * @param <T>  the result type
+     * @return the result of the task
+     * @throws MessageTemplateRejectedException if the thread is interrupted while waiting
+     */
+    public <T> T callInBackground(Supplier<T> task) {
+        acquireInBackground();
+        try {
+            return task.get();
+        } finally {
+            release();
+        }
+    }
+
+    private void acquireInBackground() {
+        backgroundQueued.incrementAndGet();
+        var start = System.nanoTime();
+        try {
+            permits.acquire();
+            active.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageTemplateRejectedException("Interrupted while waiting for a generation slot", retryAfter);
+        } finally {
+            backgroundQueued.decrementAndGet();
+            queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Takes a generation slot only if one is free right now.
+     * <p>
+     * Meant for optional work such as speculative candidates: it never waits and never overtakes queued requests.
+     * A successful call must be paired with exactly one {@link #release()}.
+     *
+     * @return {@code true} if a slot was taken
+     */
+    public boolean tryAcquire() {
+        try {
+            if (queued.get() == 0 && backgroundQueued.get() == 0 && permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                active.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Returns a slot obtained with {@link #acquire()} or {@link #tryAcquire()}.
+     */
+    public void release() {
+        active.decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * Returns the number of interactive requests waiting for a slot.
+     *
+     * @return the current queue depth
+     */
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the number of generations that may run at once.
+     *
+     * @return the configured {@code max-concurrent}
+     */
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+}
@@ -0,0 +1,16 @@
+package io.crunch.mcp;
+
+/**
+ * Prompt-ready representation of the template corpus used in
+ * {@link MessageTemplateGenerationMode#PREFETCH prefetch} mode.
+ * <p>
+ * Both fields hold the same JSON the corresponding MCP tools would return, so the model sees
+ * identical information whether it fetched the context itself or the server injected it.
+ *
+ * @param corpusVersion the {@link MessageTemplateCorpusSnapshot#version() version} of the snapshot the context was built from
+ * @param parameters    JSON array of the available template parameters
+ * @param templates     JSON array of the reference message templates
+ * @see MessageTemplateContextProvider
+ */
+public record MessageTemplateContext(long corpusVersion, String parameters, String templates) {
+}
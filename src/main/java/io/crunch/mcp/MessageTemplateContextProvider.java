@@ -0,0 +1,99 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Builds the {@link MessageTemplateContext} injected into the prompt in prefetch mode.
+ * <p>
+ * Serializing the corpus is done once per {@link MessageTemplateCorpusSnapshot}; as long as the
+ * corpus version does not change, every request receives the same, already rendered context.
+ * When retrieval is enabled, the reference templates are narrowed down to the ones most relevant
+ * to the request description (see {@link MessageTemplateRetriever}) and rendered per request.
+ *
+ * @see MessageTemplateGenerationMode#PREFETCH
+ * @see MessageTemplateCorpus
+ */
+@ApplicationScoped
+public class MessageTemplateContextProvider {
+
+    private final MessageTemplateCorpus corpus;
+
+    private final MessageTemplateRetriever retriever;
+
+    private final ObjectMapper objectMapper;
+
+    private volatile MessageTemplateContext context;
+
+    public MessageTemplateContextProvider(MessageTemplateCorpus corpus, MessageTemplateRetriever retriever, ObjectMapper objectMapper) {
+        this.corpus = corpus;
+        this.retriever = retriever;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the context for the given request.
+     *
+     * @param request the generation request whose description is used to select the reference templates
+     * @return the full corpus context, or a context with the most relevant templates if retrieval is enabled
+     */
+    public MessageTemplateContext forRequest(MessageTemplateRequest request) {
+        return forRequest(request, corpus.snapshot());
+    }
+
+    /**
+     * Returns the context for the given request, built from the given snapshot.
+     * <p>
+     * Used when several requests must see the same corpus, even if it changes in between.
+     *
+     * @param request  the generation request whose description is used to select the reference templates
+     * @param snapshot the corpus snapshot to build the context from
+     * @return the full corpus context, or a context with the most relevant templates if retrieval is enabled
+     */
+    public MessageTemplateContext forRequest(MessageTemplateRequest request, MessageTemplateCorpusSnapshot snapshot) {
+        var full = forSnapshot(snapshot);
+        if (!retriever.enabled()) {
+            return full;
+        }
+        return new MessageTemplateContext(
+                full.corpusVersion(),
+                full.parameters(),
+                write(retriever.find(snapshot, request.description(), null), full.corpusVersion()));
+    }
+
+    /**
+     * Returns the context for the current corpus snapshot, rendering it if the corpus has changed.
+     *
+     * @return the prompt context matching the current corpus version
+     */
+    public MessageTemplateContext current() {
+        return forSnapshot(corpus.snapshot());
+    }
+
+    private MessageTemplateContext forSnapshot(MessageTemplateCorpusSnapshot snapshot) {
+        var current = context;
+        if (current == null || current.corpusVersion() != snapshot.version()) {
+            current = render(snapshot);
+            context = current;
+        }
+        return current;
+    }
+
+    private MessageTemplateContext render(MessageTemplateCorpusSnapshot snapshot) {
+        Log.infof("Rendering prompt context for corpus version %d", snapshot.version());
+        return new MessageTemplateContext(
+                snapshot.version(),
+                write(snapshot.parameters(), snapshot.version()),
+                write(snapshot.templates(), snapshot.version()));
+    }
+
+    private String write(Object value, long corpusVersion) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new MessageTemplateException("Error rendering prompt context for corpus version " + corpusVersion, e);
+        }
+    }
+}
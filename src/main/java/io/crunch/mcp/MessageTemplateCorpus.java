@@ -0,0 +1,470 @@
+package io.crunch.mcp;
+
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Holds the in-memory message template corpus used by the MCP tools.
+ * <p>
+ * Reading the corpus from its sources costs one database query per entity type and, with
+ * {@link MessageTemplateStorage#FILE file storage}, one file read per template. Since the corpus
+ * changes rarely, this bean loads it once into a read-only {@link MessageTemplateCorpusSnapshot}
+ * and hands out that snapshot on every call, which turns a tool invocation into a plain pointer read.
+ *
+ * <h2>Storage</h2>
+ * With {@link MessageTemplateStorage#DATABASE database storage} the template content is kept in
+ * {@code TEMPLATE_DESCRIPTOR} and all templates are read with a single projection query, without
+ * materializing the entities. On startup, descriptors without content are filled from the file of the same
+ * name in the templates folder, so an existing file installation migrates by switching the storage and
+ * restarting one node.
+ *
+ * <h2>Invalidation</h2>
+ * The current snapshot is marked stale and reloaded on the next access when:
+ * <ul>
+ *   <li>a file in the templates folder is created, modified or deleted (observed by a {@link WatchService},
+ *       file storage only);</li>
+ *   <li>a {@link MessageTemplateDescriptor} or {@link MessageTemplateParameter} is persisted, updated or removed
+ *       and the surrounding transaction commits (see {@link MessageTemplateCorpusListener});</li>
+ *   <li>another application node changed the corpus in the shared database (database storage only): a
+ *       background poller compares a fingerprint of row counts, highest ids and row versions every
+ *       {@code app.corpus.poll-interval};</li>
+ *   <li>{@link #invalidate()} is called explicitly.</li>
+ * </ul>
+ * A reload that produces identical content keeps the previous snapshot, so its version
+ * only changes when the corpus really changes.
+ *
+ * <h2>Non-blocking Access</h2>
+ * {@link #snapshotAsync(Predicate)} never blocks the caller: a fresh snapshot is returned as a resolved {@link Uni},
+ * and only a reload, which queries the database and reads files, or the first use of a new snapshot, is moved
+ * to a virtual thread. The MCP tools use it, so a tool call is answered on the I/O thread that received it.
+ *
+ * <h2>Ordering</h2>
+ * Parameters and templates are sorted by name. Tool results and prompt contexts built from the
+ * snapshot are therefore byte-identical across reloads and restarts, which lets the model server
+ * reuse its cached prompt prefix.
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * app.resources.location=resources
+ * app.corpus.storage=file
+ * app.corpus.watch-enabled=true
+ * app.corpus.poll-interval=30s
+ * app.corpus.load-on-startup=true
+ * }</pre>
+ * With {@code app.corpus.load-on-startup=false} the first snapshot is loaded by the first tool call or generation
+ * instead of during startup; the watcher and the poller are still started right away.
+ * Template files are read from the {@code templates} folder below {@code app.resources.location}.
+ *
+ * @see MessageTemplateCorpusSnapshot
+ * @see MessageTemplateTool
+ */
+@ApplicationScoped
+public class MessageTemplateCorpus {
+
+    /**
+     * Absolute path to the folder where message templates are stored.
+     */
+    private final Path templatesFolder;
+
+    private final MessageTemplateStorage storage;
+
+    private final boolean watchEnabled;
+
+    private final Duration pollInterval;
+
+    private final boolean loadOnStartup;
+
+    private volatile MessageTemplateCorpusSnapshot snapshot;
+
+    private volatile boolean stale = true;
+
+    private WatchService watchService;
+
+    private Thread poller;
+
+    private final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Constructs a new {@code MessageTemplateCorpus} instance.
+     *
+     * @param resourcesFolder the base folder path for message templates, injected from configuration
+     * @param storage         where the template content is stored
+     * @param watchEnabled    whether the templates folder is watched for changes
+     * @param pollInterval    how often the database is checked for changes made by other nodes; zero disables polling
+     * @param loadOnStartup   whether the snapshot is loaded on startup or by the first request that needs it
+     */
+    public MessageTemplateCorpus(@ConfigProperty(name = "app.resources.location") Path resourcesFolder,
+                                 @ConfigProperty(name = "app.corpus.storage", defaultValue = "file") MessageTemplateStorage storage,
+                                 @ConfigProperty(name = "app.corpus.watch-enabled", defaultValue = "true") boolean watchEnabled,
+                                 @ConfigProperty(name = "app.corpus.poll-interval", defaultValue = "30s") Duration pollInterval,
+                                 @ConfigProperty(name = "app.corpus.load-on-startup", defaultValue = "true") boolean loadOnStartup) {
+        this.templatesFolder = Paths.get(".")
+                .resolve(resourcesFolder)
+                .resolve("templates")
+                .toAbsolutePath().normalize();
+        this.storage = storage;
+        this.watchEnabled = watchEnabled;
+        this.pollInterval = pollInterval;
+        this.loadOnStartup = loadOnStartup;
+    }
+
+    void onStart(@Observes StartupEvent startupEvent) {
+        if (storage == MessageTemplateStorage.FILE) {
+            if (loadOnStartup) {
+                snapshot();
+            }
+            if (watchEnabled) {
+                startWatching();
+            }
+            return;
+        }
+        importFiles();
+        var fingerprint = fingerprint();
+        if (loadOnStartup) {
+            snapshot();
+        }
+        if (!pollInterval.isZero()) {
+            startPolling(fingerprint);
+        }
+    }
+
+    void onCorpusChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) MessageTemplateCorpusChanged event) {
+        Log.debugf("Corpus change detected on %s", event.entityType().getSimpleName());
+        invalidate();
+    }
+
+    /**
+     * Returns the current corpus snapshot, reloading it first if it has been invalidated.
+     *
+     * @return the current, read-only corpus snapshot
+     */
+    public MessageTemplateCorpusSnapshot snapshot() {
+        var current = snapshot;
+        if (current == null || stale) {
+            return refresh();
+        }
+        return current;
+    }
+
+    /**
+     * Returns the current corpus snapshot without blocking the calling thread.
+     * <p>
+     * A fresh snapshot is emitted immediately on the calling thread if {@code prepared} accepts it; a stale one,
+     * or one the caller still has to derive its own structures from, is emitted on a virtual thread, after a
+     * reload if needed. Everything the caller chains to the {@link Uni} then runs on that thread too.
+     *
+     * @param prepared tells whether the caller can process the fresh snapshot without expensive work
+     * @return a {@link Uni} emitting the current, read-only corpus snapshot
+     */
+    public Uni<MessageTemplateCorpusSnapshot> snapshotAsync(Predicate<MessageTemplateCorpusSnapshot> prepared) {
+        var current = snapshot;
+        if (current != null && !stale && prepared.test(current)) {
+            return Uni.createFrom().item(current);
+        }
+        return Uni.createFrom().item(this::snapshot).runSubscriptionOn(loader);
+    }
+
+    /**
+     * Returns the most recently loaded snapshot without checking whether it is stale.
+     * <p>
+     * Meant for components that post-process templates their caller already took from {@link #snapshot()}
+     * and must not trigger a reload themselves.
+     *
+     * @return the last loaded snapshot; loads the corpus if it has never been loaded
+     */
+    public MessageTemplateCorpusSnapshot loaded() {
+        var current = snapshot;
+        return current != null ? current : snapshot();
+    }
+
+    /**
+     * Marks the current snapshot as stale; it is reloaded on the next {@link #snapshot()} call.
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Returns the absolute path of the folder the template files are read from.
+     *
+     * @return the templates folder
+     */
+    public Path templatesFolder() {
+        return templatesFolder;
+    }
+
+    /**
+     * Reloads parameters and templates from their sources.
+     * <p>
+     * The stale flag is cleared before loading, so an invalidation that arrives while
+     * loading is not lost and triggers another reload on the next access. If loading fails,
+     * the flag is set again, so the next access retries instead of serving the old snapshot.
+     *
+     * @return the refreshed snapshot; the previous instance if the content did not change
+     * @throws MessageTemplateException if a template file cannot be read
+     */
+    synchronized MessageTemplateCorpusSnapshot refresh() {
+        var current = snapshot;
+        if (current != null && !stale) {
+            return current;
+        }
+        stale = false;
+        Log.infof("Loading template corpus from folder: %s", templatesFolder);
+        List<MessageTemplateParameter> parameters;
+        List<MessageTemplate> templates;
+        try {
+            parameters = QuarkusTransaction.joiningExisting().call(() ->
+                    MessageTemplateParameter.<MessageTemplateParameter>streamAll(Sort.by("name"))
+                            .map(MessageTemplateCorpus::copy)
+                            .toList());
+            templates = QuarkusTransaction.joiningExisting().call(this::loadTemplates);
+        } catch (RuntimeException e) {
+            stale = true;
+            throw e;
+        }
+        var hash = hash(parameters, templates);
+        if (current != null && current.hash().equals(hash)) {
+            Log.debugf("Template corpus unchanged, keeping version %d", current.version());
+            return current;
+        }
+        var version = current == null ? 1 : current.version() + 1;
+        snapshot = new MessageTemplateCorpusSnapshot(version, hash, parameters, templates, Instant.now());
+        Log.infof("Loaded template corpus version %d with %d parameters and %d templates",
+                version, parameters.size(), templates.size());
+        return snapshot;
+    }
+
+    /**
+     * Copies a parameter into an instance that was never managed by a persistence context, so the snapshot
+     * does not share state with entities that may still be modified and flushed.
+     */
+    private static MessageTemplateParameter copy(MessageTemplateParameter parameter) {
+        var copy = new MessageTemplateParameter();
+        copy.id = parameter.id;
+        copy.setName(parameter.getName());
+        copy.setDescription(parameter.getDescription());
+        return copy;
+    }
+
+    private List<MessageTemplate> loadTemplates() {
+        if (storage == MessageTemplateStorage.DATABASE) {
+            return MessageTemplateDescriptor.getEntityManager()
+                    .createQuery("select new io.crunch.mcp.MessageTemplate(d.name, d.description, coalesce(d.content, ''))"
+                            + " from MessageTemplateDescriptor d order by d.name", MessageTemplate.class)
+                    .getResultList();
+        }
+        return MessageTemplateDescriptor.<MessageTemplateDescriptor>streamAll(Sort.by("name"))
+                .map(this::getMessageTemplate)
+                .toList();
+    }
+
+    /**
+     * Converts a {@link MessageTemplateDescriptor} into a {@link MessageTemplate}
+     * by reading the corresponding template file from the configured folder.
+     *
+     * @param descriptor the template descriptor containing name and description
+     * @return a fully populated {@link MessageTemplate} with HTML content
+     */
+    private MessageTemplate getMessageTemplate(MessageTemplateDescriptor descriptor) {
+        return new MessageTemplate(
+                descriptor.getName(),
+                descriptor.getDescription(),
+                loadTemplate(descriptor.getName())
+        );
+    }
+
+    /**
+     * Loads the content of a message template file as a string.
+     *
+     * @param name the file name of the template to load
+     * @return the HTML content of the template file
+     * @throws MessageTemplateException if the file cannot be found or read
+     */
+    private String loadTemplate(String name) {
+        try {
+            return Files.readString(templatesFolder.resolve(name));
+        } catch (IOException e) {
+            throw new MessageTemplateException("Error reading template file: " + name, e);
+        }
+    }
+
+    /**
+     * Fills descriptors without content from the file of the same name in the templates folder.
+     * <p>
+     * Runs in its own transaction. If another node imports the same descriptors concurrently, the optimistic
+     * lock on the descriptor version makes one of the imports fail, which is harmless.
+     */
+    private void importFiles() {
+        try {
+            var imported = QuarkusTransaction.requiringNew().call(() -> {
+                var count = 0;
+                for (var descriptor : MessageTemplateDescriptor.<MessageTemplateDescriptor>list("content is null")) {
+                    if (Files.isRegularFile(templatesFolder.resolve(descriptor.getName()))) {
+                        descriptor.setContent(loadTemplate(descriptor.getName()));
+                        count++;
+                    } else {
+                        Log.warnf("Template %s has no content and no file in %s", descriptor.getName(), templatesFolder);
+                    }
+                }
+                return count;
+            });
+            if (imported > 0) {
+                Log.infof("Imported %d template files from folder %s into the database", imported, templatesFolder);
+            }
+        } catch (RuntimeException e) {
+            Log.warnf("Template files could not be imported: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a cheap fingerprint of the corpus tables that changes on every insert, delete and update.
+     */
+    private List<Object> fingerprint() {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            var entityManager = MessageTemplateDescriptor.getEntityManager();
+            var descriptors = entityManager.createQuery(
+                    "select count(d), coalesce(max(d.id), 0), coalesce(sum(d.version), 0) from MessageTemplateDescriptor d",
+                    Object[].class).getSingleResult();
+            var parameters = entityManager.createQuery(
+                    "select count(p), coalesce(max(p.id), 0), coalesce(sum(p.version), 0) from MessageTemplateParameter p",
+                    Object[].class).getSingleResult();
+            var fingerprint = new ArrayList<>(Arrays.asList(descriptors));
+            fingerprint.addAll(Arrays.asList(parameters));
+            return fingerprint;
+        });
+    }
+
+    private void startPolling(List<Object> initial) {
+        poller = Thread.ofPlatform()
+                .name("template-corpus-poller")
+                .daemon()
+                .start(() -> poll(initial));
+    }
+
+    private void poll(List<Object> initial) {
+        var last = initial;
+        try {
+            while (true) {
+                Thread.sleep(pollInterval);
+                try {
+                    var current = fingerprint();
+                    if (!current.equals(last)) {
+                        Log.debugf("Template corpus changed in the database: %s", current);
+                        last = current;
+                        invalidate();
+                    }
+                } catch (RuntimeException e) {
+                    Log.warnf("Error checking the template corpus for changes: %s", e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.debug("Template corpus poller stopped");
+        }
+    }
+
+    private static String hash(List<MessageTemplateParameter> parameters, List<MessageTemplate> templates) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (var parameter : parameters) {
+                update(digest, parameter.getName());
+                update(digest, parameter.getDescription());
+            }
+            for (var template : templates) {
+                update(digest, template.name());
+                update(digest, template.description());
+                update(digest, template.content());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new MessageTemplateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private void startWatching() {
+        if (!Files.isDirectory(templatesFolder)) {
+            Log.warnf("Templates folder %s does not exist, file changes are not watched", templatesFolder);
+            return;
+        }
+        try {
+            watchService = templatesFolder.getFileSystem().newWatchService();
+            templatesFolder.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            throw new MessageTemplateException("Error watching templates folder: " + templatesFolder, e);
+        }
+        Thread.ofPlatform()
+                .name("template-corpus-watcher")
+                .daemon()
+                .start(this::watch);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                var key = watchService.take();
+                key.pollEvents().forEach(event -> Log.debugf("Template file event %s on %s", event.kind(), event.context()));
+                invalidate();
+                if (!key.reset()) {
+                    Log.warnf("Templates folder %s is no longer watched", templatesFolder);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            Log.debug("Template corpus watcher stopped");
+        }
+    }
+
+    @PreDestroy
+    void stopWatching() {
+        if (poller != null) {
+            poller.interrupt();
+        }
+        loader.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                Log.warn("Error closing templates folder watcher", e);
+            }
+        }
+    }
+}
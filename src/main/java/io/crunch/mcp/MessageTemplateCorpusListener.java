@@ -0,0 +1,31 @@
+package io.crunch.mcp;
+
+import io.quarkus.arc.Arc;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA entity listener that reports changes of corpus entities.
+ * <p>
+ * Every persisted, updated or removed {@link MessageTemplateDescriptor} or
+ * {@link MessageTemplateParameter} fires a {@link MessageTemplateCorpusChanged} CDI event.
+ * {@link MessageTemplateCorpus} observes the event after the transaction commits successfully
+ * and invalidates its snapshot, so uncommitted changes are never loaded.
+ *
+ * @see MessageTemplateCorpus
+ */
+class MessageTemplateCorpusListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void onChange(Object entity) {
+        Arc.container().beanManager().getEvent()
+                .select(MessageTemplateCorpusChanged.class)
+                .fire(new MessageTemplateCorpusChanged(entity.getClass()));
+    }
+}
+
+record MessageTemplateCorpusChanged(Class<?> entityType) {
+}
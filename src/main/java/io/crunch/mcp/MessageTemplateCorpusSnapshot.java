@@ -0,0 +1,42 @@
+package io.crunch.mcp;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Versioned, read-only view of the message template corpus.
+ * <p>
+ * A snapshot bundles everything the MCP tools hand out to the AI model: the available
+ * {@link MessageTemplateParameter placeholders} and the {@link MessageTemplate templates}
+ * together with their HTML content. Snapshots are created by {@link MessageTemplateCorpus}
+ * and shared between threads.
+ * <p>
+ * The lists are unmodifiable and the templates are records. The parameters are copies that were never
+ * attached to a persistence context, but they are still mutable entity instances: callers must treat them
+ * as read-only and never persist or modify them.
+ *
+ * <h2>Versioning</h2>
+ * <ul>
+ *   <li>{@code version} is a monotonically increasing number, bumped only when the content changes.</li>
+ *   <li>{@code hash} is a SHA-256 digest over all parameters and templates; equal hashes mean equal content.</li>
+ * </ul>
+ * Other layers (prompt assembly, result caches) can key off either value to detect corpus changes.
+ *
+ * @param version    the snapshot version, starting with 1
+ * @param hash       hex-encoded SHA-256 digest of the snapshot content
+ * @param parameters all available template parameters
+ * @param templates  all message templates with their content
+ * @param loadedAt   the time the snapshot was loaded
+ * @see MessageTemplateCorpus
+ */
+public record MessageTemplateCorpusSnapshot(long version,
+                                            String hash,
+                                            List<MessageTemplateParameter> parameters,
+                                            List<MessageTemplate> templates,
+                                            Instant loadedAt) {
+
+    public MessageTemplateCorpusSnapshot {
+        parameters = List.copyOf(parameters);
+        templates = List.copyOf(templates);
+    }
+}
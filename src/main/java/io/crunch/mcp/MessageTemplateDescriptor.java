@@ -1,8 +1,13 @@
 package io.crunch.mcp;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.Length;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Represents a stored message template definition, describing its metadata.
@@ -12,21 +17,25 @@ import jakarta.persistence.Table;
  * and its {@code description}.
  * <p>
  * The corresponding HTML template content is stored in a file located inside the
- * configured templates directory (see {@link MessageTemplateTool}). This descriptor
- * serves as a database-level index to those template files.
+ * configured templates directory (see {@link MessageTemplateCorpus}). This descriptor
+ * serves as a database-level index to those template files. With
+ * {@link MessageTemplateStorage#DATABASE database storage} the content is kept in the
+ * {@code content} column instead.
  *
  * <h2>Database Mapping</h2>
  * <ul>
  *   <li><b>Table name:</b> {@code TEMPLATE_DESCRIPTOR}</li>
  *   <li><b>Primary key:</b> inherited from {@link PanacheEntity#id}</li>
- *   <li><b>Fields:</b> {@code name}, {@code description}</li>
+ *   <li><b>Fields:</b> {@code name}, {@code description}, {@code content}</li>
+ *   <li><b>Version:</b> {@code version}, incremented on every update; used for optimistic locking and
+ *       for detecting changes made by other application nodes</li>
  * </ul>
  *
  * <h2>Usage</h2>
  * Typical use cases include:
  * <ul>
  *   <li>Defining all available message templates in the database.</li>
- *   <li>Loading descriptors and resolving their corresponding files via {@link MessageTemplateTool}.</li>
+ *   <li>Loading descriptors and resolving their corresponding files via {@link MessageTemplateCorpus}.</li>
  *   <li>Providing the AI model with reference templates for tone, formatting, and structure.</li>
  * </ul>
  *
@@ -35,6 +44,7 @@ import jakarta.persistence.Table;
  * @see MessageTemplate
  */
 @Entity
+@EntityListeners(MessageTemplateCorpusListener.class)
 @Table(name = "TEMPLATE_DESCRIPTOR")
 public class MessageTemplateDescriptor extends PanacheEntity {
 
@@ -42,6 +52,13 @@ public class MessageTemplateDescriptor extends PanacheEntity {
 
     private String description;
 
+    @Column(length = Length.LONG32)
+    private String content;
+
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
     public String getName() {
         return name;
     }
@@ -57,4 +74,16 @@ public class MessageTemplateDescriptor extends PanacheEntity {
     public void setDescription(String description) {
         this.description = description;
     }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public long getVersion() {
+        return version;
+    }
 }
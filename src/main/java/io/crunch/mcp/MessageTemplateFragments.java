@@ -0,0 +1,202 @@
+package io.crunch.mcp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Blocks of HTML that several message templates have in common.
+ * <p>
+ * The templates of the corpus repeat the same header block and closing lines, so most of a
+ * {@code get_message_templates} result consists of identical text. This class detects those blocks
+ * once per corpus and rewrites each template so that it references them as {@code {{id}}} instead
+ * of repeating them.
+ *
+ * <h2>Detection</h2>
+ * Each template is cut into segments after every line break and every closing block tag
+ * ({@code </p>}, {@code </h3>}, {@code </li>}, ...). A segment is shared if it occurs in at least
+ * {@code minShare} templates; maximal runs of consecutive shared segments become a fragment if the same
+ * run occurs in at least {@code minShare} templates and is at least {@code minLength} characters long.
+ * Compaction is lossless: {@link #expand(String, Map)} restores the original content. Templates that
+ * already contain {@code {{} are left as they are.
+ *
+ * @see MessageTemplateCompactor
+ */
+public final class MessageTemplateFragments {
+
+    static final String REFERENCE_OPEN = "{{";
+
+    static final String REFERENCE_CLOSE = "}}";
+
+    private static final Pattern SEGMENT_END = Pattern.compile("\n|</(?:p|h[1-6]|li|ul|ol|div)>", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern REFERENCE = Pattern.compile("\\{\\{(f\\d+)}}");
+
+    private final Map<String, String> fragments;
+
+    private final Map<String, Compacted> templates;
+
+    private MessageTemplateFragments(Map<String, String> fragments, Map<String, Compacted> templates) {
+        this.fragments = fragments;
+        this.templates = templates;
+    }
+
+    /**
+     * Detects the fragments shared by the given templates.
+     *
+     * @param templates the templates of the corpus
+     * @param minLength the minimum length of a fragment in characters
+     * @param minShare  the minimum number of templates a fragment must occur in
+     * @return the detected fragments together with the compacted templates
+     */
+    public static MessageTemplateFragments detect(List<MessageTemplate> templates, int minLength, int minShare) {
+        templates = templates.stream().filter(template -> template.content() != null).toList();
+        var segmented = templates.stream().map(template -> segments(template.content())).toList();
+        var segmentCounts = new HashMap<String, Integer>();
+        segmented.forEach(segments -> new HashSet<>(segments).forEach(segment -> segmentCounts.merge(segment, 1, Integer::sum)));
+
+        var runs = new ArrayList<List<Run>>();
+        var runCounts = new HashMap<String, Integer>();
+        for (int i = 0; i < templates.size(); i++) {
+            var segments = segmented.get(i);
+            var templateRuns = templates.get(i).content().contains(REFERENCE_OPEN)
+                    ? List.<Run>of()
+                    : runs(segments, segment -> segmentCounts.get(segment) >= minShare);
+            runs.add(templateRuns);
+            templateRuns.stream().map(Run::text).distinct().forEach(text -> runCounts.merge(text, 1, Integer::sum));
+        }
+
+        var ids = new HashMap<String, String>();
+        var fragments = new LinkedHashMap<String, String>();
+        var compacted = new HashMap<String, Compacted>();
+        for (int i = 0; i < templates.size(); i++) {
+            var segments = segmented.get(i);
+            var content = new StringBuilder();
+            var references = new LinkedHashSet<String>();
+            int position = 0;
+            for (var run : runs.get(i)) {
+                if (run.text().length() < minLength || runCounts.get(run.text()) < minShare) {
+                    continue;
+                }
+                var id = ids.computeIfAbsent(run.text(), text -> {
+                    var next = "f" + (fragments.size() + 1);
+                    fragments.put(next, text);
+                    return next;
+                });
+                segments.subList(position, run.start()).forEach(content::append);
+                content.append(REFERENCE_OPEN).append(id).append(REFERENCE_CLOSE);
+                references.add(id);
+                position = run.end();
+            }
+            segments.subList(position, segments.size()).forEach(content::append);
+            var template = templates.get(i);
+            compacted.put(template.name(), new Compacted(template.content(), content.toString(), List.copyOf(references)));
+        }
+        return new MessageTemplateFragments(Collections.unmodifiableMap(fragments), Map.copyOf(compacted));
+    }
+
+    /**
+     * Returns all detected fragments by id, in order of first occurrence.
+     *
+     * @return the fragments
+     */
+    public Map<String, String> fragments() {
+        return fragments;
+    }
+
+    /**
+     * Returns the content of a template with its shared blocks replaced by fragment references.
+     *
+     * @param template the template to compact
+     * @return the compacted content; the original content if the template was not part of the detection or has changed since
+     */
+    public String compact(MessageTemplate template) {
+        var compacted = templates.get(template.name());
+        return compacted != null && compacted.matches(template) ? compacted.content() : template.content();
+    }
+
+    /**
+     * Returns the fragments the given templates refer to, in order of first reference.
+     *
+     * @param templates the templates whose references are collected
+     * @return the referenced fragments by id
+     */
+    public Map<String, String> referencedBy(List<MessageTemplate> templates) {
+        var referenced = new LinkedHashMap<String, String>();
+        for (var template : templates) {
+            var compacted = this.templates.get(template.name());
+            if (compacted != null && compacted.matches(template)) {
+                compacted.references().forEach(id -> referenced.put(id, fragments.get(id)));
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * Replaces the fragment references of a compacted content with the fragments.
+     *
+     * @param content   the compacted content
+     * @param fragments the fragments by id
+     * @return the original content
+     */
+    public static String expand(String content, Map<String, String> fragments) {
+        return REFERENCE.matcher(content).replaceAll(match ->
+                Matcher.quoteReplacement(fragments.getOrDefault(match.group(1), match.group())));
+    }
+
+    static List<String> segments(String content) {
+        if (content == null || content.isEmpty()) {
+            return List.of();
+        }
+        var segments = new ArrayList<String>();
+        var matcher = SEGMENT_END.matcher(content);
+        int start = 0;
+        while (matcher.find()) {
+            segments.add(content.substring(start, matcher.end()));
+            start = matcher.end();
+        }
+        if (start < content.length()) {
+            segments.add(content.substring(start));
+        }
+        return segments;
+    }
+
+    private static List<Run> runs(List<String> segments, Predicate<String> shared) {
+        var runs = new ArrayList<Run>();
+        int i = 0;
+        while (i < segments.size()) {
+            if (!shared.test(segments.get(i)) || segments.get(i).isBlank()) {
+                i++;
+                continue;
+            }
+            int start = i;
+            int end = i;
+            while (i < segments.size() && shared.test(segments.get(i))) {
+                i++;
+                if (!segments.get(i - 1).isBlank()) {
+                    end = i;
+                }
+            }
+            runs.add(new Run(start, end, String.join("", segments.subList(start, end))));
+        }
+        return runs;
+    }
+
+    private record Run(int start, int end, String text) {
+    }
+
+    private record Compacted(String original, String content, List<String> references) {
+
+        boolean matches(MessageTemplate template) {
+            return original.equals(template.content());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.crunch.mcp;
+
+/**
+ * Defines how the template generation context is handed to the AI model.
+ *
+ * <ul>
+ *   <li>{@link #TOOLS}: the model calls the {@code list_template_parameters} and {@code get_message_templates}
+ *       MCP tools itself before answering; this costs at least two additional model turns.</li>
+ *   <li>{@link #PREFETCH}: the server collects parameters and templates from the {@link MessageTemplateCorpus}
+ *       and injects them into the prompt, so the template is produced in a single inference pass.</li>
+ * </ul>
+ *
+ * Configured with {@code app.generation.mode}; the default is {@code tools}.
+ *
+ * @see MessageTemplateGenerator
+ */
+public enum MessageTemplateGenerationMode {
+    TOOLS,
+    PREFETCH
+}
@@ -0,0 +1,14 @@
+package io.crunch.mcp;
+
+import java.time.Duration;
+
+/**
+ * Per-request options of a template generation.
+ *
+ * @param bypassCache {@code true} to run the model even if the {@link MessageTemplateResultCache} holds a result
+ * @param timeout     how long the caller is willing to wait for its generation, whether it runs it or shares it with other callers
+ * @param candidates  how many candidate generations to run in parallel; {@code 1} disables speculation
+ * @see MessageTemplateGenerator
+ */
+public record MessageTemplateGenerationOptions(boolean bypassCache, Duration timeout, int candidates) {
+}
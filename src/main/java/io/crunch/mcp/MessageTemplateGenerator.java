@@ -0,0 +1,586 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import io.quarkiverse.langchain4j.runtime.aiservice.ChatEvent;
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs a template generation against the {@link MessageTemplateAssistant} using the configured
+ * {@link MessageTemplateGenerationMode}.
+ *
+ * <ul>
+ *   <li>In {@code tools} mode (default) the assistant fetches its context through the MCP tools, either
+ *       in-process or over the MCP HTTP transport depending on the {@link MessageTemplateToolTransport}.</li>
+ *   <li>In {@code prefetch} mode the context is taken from the {@link MessageTemplateContextProvider}
+ *       and sent with the user message, which saves the tool-calling model turns.</li>
+ * </ul>
+ * The elapsed time of every generation is logged and recorded in the {@link MessageTemplateMetrics} together
+ * with the mode and the number of model turns, so both modes can be compared.
+ * Non-streaming generations are collapsed with identical in-flight requests and answered from the
+ * {@link MessageTemplateResultCache} when possible; every generation that reaches the model first has to
+ * be admitted by the {@link MessageTemplateConcurrencyLimiter}.
+ * <p>
+ * Every generated template is checked by the {@link MessageTemplateValidator}. Streamed output is validated
+ * while it arrives and the stream is stopped at the first violation; in both cases the violations are sent
+ * back to the model for a corrective retry in the same conversation.
+ *
+ * <h2>Speculative Candidates</h2>
+ * A non-streaming generation can run several candidates in parallel
+ * (see {@link MessageTemplateGenerationOptions#candidates()}). Every candidate is streamed and validated while it
+ * arrives; an invalid candidate is stopped at its first violation, and the first valid template wins and cancels the
+ * others. Only the first candidate waits for admission, the others run only if the
+ * {@link MessageTemplateConcurrencyLimiter} has a free slot right away, so speculation uses spare capacity and never
+ * delays other requests. If no candidate is valid, the first invalid one gets the usual corrective retries.
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * app.generation.mode=tools|prefetch
+ * app.mcp.transport=in-process|http
+ * app.generation.max-candidates=3
+ * }</pre>
+ *
+ * @see MessageTemplateResource
+ */
+@ApplicationScoped
+public class MessageTemplateGenerator {
+
+    private final MessageTemplateAssistant assistant;
+
+    private final MessageTemplateContextProvider contextProvider;
+
+    private final MessageTemplateConcurrencyLimiter limiter;
+
+    private final MessageTemplateResultCache resultCache;
+
+    private final MessageTemplateSingleFlight singleFlight;
+
+    private final MessageTemplateCorpus corpus;
+
+    private final MessageTemplateMetrics metrics;
+
+    private final MessageTemplateValidator validator;
+
+    private final MessageTemplateModelRouter router;
+
+    private final ChatMemoryProvider chatMemoryProvider;
+
+    private final MessageTemplateGenerationMode mode;
+
+    private final MessageTemplateToolTransport transport;
+
+    private final MessageTemplateUpdateMode updateMode;
+
+    private final int maxCandidates;
+
+    public MessageTemplateGenerator(MessageTemplateAssistant assistant,
+                                    MessageTemplateContextProvider contextProvider,
+                                    MessageTemplateConcurrencyLimiter limiter,
+                                    MessageTemplateResultCache resultCache,
+                                    MessageTemplateSingleFlight singleFlight,
+                                    MessageTemplateCorpus corpus,
+                                    MessageTemplateMetrics metrics,
+                                    MessageTemplateValidator validator,
+                                    MessageTemplateModelRouter router,
+                                    ChatMemoryProvider chatMemoryProvider,
+                                    @ConfigProperty(name = "app.generation.mode", defaultValue = "tools") MessageTemplateGenerationMode mode,
+                                    @ConfigProperty(name = "app.mcp.transport", defaultValue = "in-process") MessageTemplateToolTransport transport,
+                                    @ConfigProperty(name = "app.generation.update-mode", defaultValue = "full") MessageTemplateUpdateMode updateMode,
+                                    @ConfigProperty(name = "app.generation.max-candidates", defaultValue = "3") int maxCandidates) {
+        this.assistant = assistant;
+        this.contextProvider = contextProvider;
+        this.limiter = limiter;
+        this.resultCache = resultCache;
+        this.singleFlight = singleFlight;
+        this.corpus = corpus;
+        this.metrics = metrics;
+        this.validator = validator;
+        this.router = router;
+        this.chatMemoryProvider = chatMemoryProvider;
+        this.mode = mode;
+        this.transport = transport;
+        this.updateMode = updateMode;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Generates or refines a message template.
+     * <p>
+     * Identical concurrent requests are collapsed by the {@link MessageTemplateSingleFlight}, repeated requests
+     * are answered by the {@link MessageTemplateResultCache} unless {@link MessageTemplateGenerationOptions#bypassCache()}
+     * is set, and model runs are admitted by the {@link MessageTemplateConcurrencyLimiter}. Requests with existing
+     * content are answered with a patch in {@link MessageTemplateUpdateMode#PATCH patch} update mode; other requests
+     * run as speculative candidates if {@link MessageTemplateGenerationOptions#candidates()} is greater than one.
+     * <p>
+     * The caller waits at most {@link MessageTemplateGenerationOptions#timeout()}. The generation may outlive the
+     * caller, so it owns its chat memory and clears it when it finishes.
+     *
+     * @param sessionId the chat memory id used for this generation
+     * @param request   the description and optional existing content of the template
+     * @param options   the per-request options
+     * @return the generated HTML template
+     * @throws MessageTemplateRejectedException if the request is not admitted by the {@link MessageTemplateConcurrencyLimiter}
+     * @throws MessageTemplateTimeoutException    if the generation did not finish within the caller's timeout
+     * @throws MessageTemplateValidationException if the template is still invalid after the corrective retries
+     */
+    public String generate(String sessionId, MessageTemplateRequest request, MessageTemplateGenerationOptions options) {
+        var key = MessageTemplateRequestKey.of(request, corpus.snapshot(), mode);
+        try {
+            return singleFlight.run(key, options.timeout(), () -> {
+                try {
+                    return resultCache.get(key, options.bypassCache(), () ->
+                            run(sessionId, request, Math.clamp(options.candidates(), 1, maxCandidates)));
+                } finally {
+                    chatMemoryProvider.get(sessionId).clear();
+                }
+            });
+        } catch (MessageTemplateTimeoutException | MessageTemplateRejectedException | MessageTemplateValidationException e) {
+            metrics.recordFailure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Generates the first template of a refinement session.
+     * <p>
+     * Unlike {@link #generate(String, MessageTemplateRequest, MessageTemplateGenerationOptions)}, the model always runs,
+     * without the single-flight and the result cache, because the session memory must hold the generation context
+     * for the follow-up requests.
+     *
+     * @param sessionId the id of the session
+     * @param request   the description and optional existing content of the template
+     * @return the generated HTML template
+     * @throws MessageTemplateRejectedException   if the request is not admitted by the {@link MessageTemplateConcurrencyLimiter}
+     * @throws MessageTemplateValidationException if the template is still invalid after the corrective retries
+     */
+    public String generateInSession(String sessionId, MessageTemplateRequest request) {
+        try {
+            return limiter.call(() -> doGenerate(sessionId, request));
+        } catch (MessageTemplateRejectedException | MessageTemplateValidationException e) {
+            metrics.recordFailure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Refines the template of a session according to a follow-up instruction, in a single model turn.
+     *
+     * @param sessionId the id of a session that already produced a template
+     * @param request   the instruction as description and optionally the current template content
+     * @return the refined HTML template
+     * @throws MessageTemplateRejectedException   if the request is not admitted by the {@link MessageTemplateConcurrencyLimiter}
+     * @throws MessageTemplateValidationException if the template is still invalid after the corrective retries
+     */
+    public String refine(String sessionId, MessageTemplateRequest request) {
+        try {
+            return limiter.call(() -> timed(mode, sessionId, () ->
+                    validated(sessionId, original(request), router.call(true, () -> assistant.refineTemplate(sessionId, request)))));
+        } catch (MessageTemplateRejectedException | MessageTemplateValidationException e) {
+            metrics.recordFailure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Generates or refines a message template from an explicitly supplied context.
+     * <p>
+     * The generation runs in {@link MessageTemplateGenerationMode#PREFETCH prefetch} mode regardless of the
+     * configured mode and bypasses the result cache. It is background work: it waits for a slot of the
+     * {@link MessageTemplateConcurrencyLimiter} without the interactive queue limits.
+     * A request context is activated if none is active, so the method can be called from background threads.
+     *
+     * @param sessionId the chat memory id used for this generation
+     * @param request   the description and optional existing content of the template
+     * @param context   the prefetched placeholders and reference templates
+     * @return the generated HTML template
+     * @throws MessageTemplateRejectedException   if the thread is interrupted while waiting for a slot
+     * @throws MessageTemplateValidationException if the template is still invalid after the corrective retries
+     */
+    @ActivateRequestContext
+    public String generateFromContext(String sessionId, MessageTemplateRequest request, MessageTemplateContext context) {
+        try {
+            return limiter.callInBackground(() -> timed(MessageTemplateGenerationMode.PREFETCH, sessionId, () ->
+                    validated(sessionId, original(request), router.call(hasContent(request), () -> assistant.generateTemplateFromContext(sessionId, request, context)))));
+        } catch (MessageTemplateRejectedException | MessageTemplateValidationException e) {
+            metrics.recordFailure(e);
+            throw e;
+        }
+    }
+
+    private String doGenerate(String sessionId, MessageTemplateRequest request) {
+        return timed(mode, sessionId, () -> validated(sessionId, original(request), router.call(hasContent(request), () -> switch (mode) {
+            case TOOLS -> switch (transport) {
+                case IN_PROCESS -> assistant.generateTemplateInProcess(sessionId, request);
+                case HTTP -> assistant.generateTemplate(sessionId, request);
+            };
+            case PREFETCH -> assistant.generateTemplateFromContext(sessionId, request, contextProvider.forRequest(request));
+        })));
+    }
+
+    private static boolean hasContent(MessageTemplateRequest request) {
+        return request.content() != null && !request.content().isBlank();
+    }
+
+    /**
+     * Returns the template a request updates, against which the output is validated, or {@code null} for a new one.
+     */
+    private static String original(MessageTemplateRequest request) {
+        return hasContent(request) ? request.content() : null;
+    }
+
+    private String run(String sessionId, MessageTemplateRequest request, int candidates) {
+        if (isPatchable(request)) {
+            return limiter.call(() -> doPatch(sessionId, request));
+        }
+        if (candidates > 1) {
+            return speculate(sessionId, request, candidates);
+        }
+        return limiter.call(() -> doGenerate(sessionId, request));
+    }
+
+    /**
+     * Runs up to {@code candidates} streamed generations in parallel and returns the first valid template.
+     * <p>
+     * The first candidate uses the given session id; the others get their own chat memory, which is cleared afterward.
+     */
+    private String speculate(String sessionId, MessageTemplateRequest request, int candidates) {
+        var start = System.nanoTime();
+        limiter.acquire();
+        var ids = new ArrayList<>(List.of(sessionId));
+        while (ids.size() < candidates && limiter.tryAcquire()) {
+            ids.add(sessionId + "-" + ids.size());
+        }
+        Log.infof("Running %d candidate generations for session %s", ids.size(), sessionId);
+        var failure = new AtomicReference<CandidateFailure>();
+        try {
+            var template = Multi.createBy().merging()
+                    .streams(ids.stream().map(id -> candidate(id, request, failure)).toList())
+                    .toUni()
+                    .await().indefinitely();
+            if (template == null) {
+                var failed = failure.get();
+                if (!(failed != null && failed.cause() instanceof MessageTemplateValidationException invalid)) {
+                    throw failed != null && failed.cause() instanceof RuntimeException e
+                            ? e : new MessageTemplateException("All candidate generations failed", failed == null ? null : failed.cause());
+                }
+                Log.infof("No valid candidate for session %s, repairing candidate %s", sessionId, failed.id());
+                if (failed.stoppedOutput() != null) {
+                    rememberStopped(failed.id(), failed.stoppedOutput());
+                }
+                template = limiter.call(() -> repaired(failed.id(), original(request), invalid.getResult()));
+            }
+            metrics.recordSpeculation(start, ids.size(), null);
+            Log.infof("Speculative generation with %d candidates finished in %d ms",
+                    ids.size(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+            return template;
+        } catch (RuntimeException e) {
+            metrics.recordSpeculation(start, ids.size(), e);
+            throw e;
+        } finally {
+            ids.stream().skip(1).forEach(id -> chatMemoryProvider.get(id).clear());
+        }
+    }
+
+    /**
+     * Streams one candidate and emits its template if it is valid. The stream stops at the first violation, and
+     * the candidate completes without a template if it fails; the first failure is kept for the fallback, together
+     * with the output received so far if the candidate was stopped before it completed.
+     * The slot of the candidate is released when it ends, including when it is cancelled because another won.
+     * The generation stream is only built on subscription, so a failure while building it, for example while
+     * assembling the prefetched context, fails this candidate and still releases its slot.
+     */
+    private Multi<String> candidate(String id, MessageTemplateRequest request, AtomicReference<CandidateFailure> failure) {
+        var scan = validator.enabled() ? validator.start(original(request)) : null;
+        var won = new AtomicBoolean();
+        var output = new StringBuilder();
+        var completed = new AtomicBoolean();
+        return Multi.createFrom().deferred(() -> timed(id, () -> streamGeneration(id, request)))
+                .onItem().transformToIterable(event -> switch (event) {
+                    case ChatEvent.PartialResponseEvent partial -> {
+                        output.append(partial.getChunk());
+                        if (scan != null && !scan.accept(partial.getChunk())) {
+                            throw new MessageTemplateValidationException(scan.result());
+                        }
+                        yield List.<String>of();
+                    }
+                    case ChatEvent.ChatCompletedEvent response -> {
+                        completed.set(true);
+                        var result = scan != null ? scan.finish() : null;
+                        if (result != null && !result.valid()) {
+                            throw new MessageTemplateValidationException(result);
+                        }
+                        yield List.of(response.getChatResponse().aiMessage().text());
+                    }
+                    default -> List.<String>of();
+                })
+                .onFailure().invoke(cause -> {
+                    if (cause instanceof MessageTemplateValidationException invalid) {
+                        metrics.recordValidation(invalid.getResult());
+                        metrics.recordDiscardedCandidate("invalid");
+                    } else {
+                        Log.warnf("Candidate %s failed: %s", id, cause.getMessage());
+                        metrics.recordDiscardedCandidate("failed");
+                    }
+                    failure.compareAndSet(null, new CandidateFailure(id, cause, completed.get() ? null : output.toString()));
+                })
+                .onItem().invoke(() -> won.set(true))
+                .onFailure().recoverWithCompletion()
+                .onCancellation().invoke(() -> {
+                    if (!won.get()) {
+                        metrics.recordDiscardedCandidate("cancelled");
+                    }
+                })
+                .onTermination().invoke(limiter::release);
+    }
+
+    /**
+     * @param stoppedOutput the output of a candidate that was stopped before it completed, {@code null} if it completed
+     */
+    private record CandidateFailure(String id, Throwable cause, String stoppedOutput) {
+    }
+
+    private boolean isPatchable(MessageTemplateRequest request) {
+        return updateMode == MessageTemplateUpdateMode.PATCH && hasContent(request);
+    }
+
+    /**
+     * Asks the model for edits to the existing content and applies them. If the patch cannot be parsed or applied,
+     * or the edits introduced a rule violation, the template is regenerated in full in a fresh conversation.
+     * Violations the existing content already had do not count against the patch.
+     */
+    private String doPatch(String sessionId, MessageTemplateRequest request) {
+        var start = System.nanoTime();
+        try {
+            var patch = router.call(true, () -> assistant.patchTemplate(sessionId, request, contextProvider.current().parameters()));
+            var template = patch.apply(request.content());
+            var result = validator.enabled()
+                    ? validator.validateChange(request.content(), template)
+                    : MessageTemplateValidationResult.of(List.of());
+            if (result.valid()) {
+                metrics.recordPatch(start, true);
+                Log.infof("Applied %d edits in %d ms", patch.size(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+                return template;
+            }
+            metrics.recordValidation(result);
+            Log.infof("Patched template is invalid, regenerating:%n%s", result.describe());
+        } catch (RuntimeException e) {
+            Log.infof("Patch could not be applied, regenerating: %s", e.getMessage());
+        }
+        metrics.recordPatch(start, false);
+        chatMemoryProvider.get(sessionId).clear();
+        return doGenerate(sessionId, request);
+    }
+
+    /**
+     * Validates a generated template and asks the model for corrections until it is valid or the retries are used up.
+     * An update is checked against the template it changes, so only the violations the model introduced count.
+     */
+    private String validated(String sessionId, String original, String template) {
+        if (!validator.enabled()) {
+            return template;
+        }
+        var result = validator.validateChange(original, template);
+        if (result.valid()) {
+            return template;
+        }
+        metrics.recordValidation(result);
+        return repaired(sessionId, original, result);
+    }
+
+    /**
+     * Sends the violations of an invalid template back to the model until the template is valid or the retries are used up.
+     */
+    private String repaired(String sessionId, String original, MessageTemplateValidationResult result) {
+        for (int retry = 0; ; retry++) {
+            if (retry >= validator.maxRetries()) {
+                throw new MessageTemplateValidationException(result);
+            }
+            var violations = result.describe();
+            Log.infof("Generated template of session %s is invalid, retrying:%n%s", sessionId, violations);
+            metrics.recordRetry();
+            var template = router.call(true, () -> assistant.repairTemplate(sessionId, violations));
+            result = validator.validateChange(original, template);
+            if (result.valid()) {
+                return template;
+            }
+            metrics.recordValidation(result);
+        }
+    }
+
+    private String timed(MessageTemplateGenerationMode mode, String sessionId, Supplier<String> generation) {
+        var start = System.nanoTime();
+        var previousTurns = turns(sessionId);
+        try {
+            var result = generation.get();
+            metrics.recordGeneration(mode, transport, start, null);
+            metrics.recordTurns(mode, turns(sessionId) - previousTurns);
+            Log.infof("Generated template in %d ms using %s mode", Duration.ofNanos(System.nanoTime() - start).toMillis(), mode);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordGeneration(mode, transport, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Counts the model responses stored in the chat memory of a session; every response is one model turn.
+     */
+    private long turns(String sessionId) {
+        var memory = chatMemoryProvider.get(sessionId);
+        return memory == null ? 0 : memory.messages().stream().filter(AiMessage.class::isInstance).count();
+    }
+
+    /**
+     * Streams the generation of a message template.
+     * <p>
+     * Tool executions and response tokens are emitted as they happen. Cancelling the subscription,
+     * for example when the HTTP client disconnects, is propagated to the AI service stream, so no
+     * further model output is consumed for an abandoned request. The same happens when the output
+     * violates the formatting rules: the stream emits a {@link MessageTemplateStreamEvent.Type#RETRY}
+     * event and continues with the corrected generation, or ends with {@link MessageTemplateStreamEvent.Type#INVALID}
+     * once the retries are used up.
+     *
+     * @param sessionId the chat memory id used for this generation
+     * @param request   the description and optional existing content of the template
+     * @return the events of the generation
+     * @throws MessageTemplateRejectedException if the request is not admitted by the {@link MessageTemplateConcurrencyLimiter}
+     */
+    public Multi<MessageTemplateStreamEvent> stream(String sessionId, MessageTemplateRequest request) {
+        return admitted(sessionId, request, () -> streamGeneration(sessionId, request));
+    }
+
+    private Multi<ChatEvent> streamGeneration(String sessionId, MessageTemplateRequest request) {
+        return switch (mode) {
+            case TOOLS -> switch (transport) {
+                case IN_PROCESS -> assistant.streamTemplateInProcess(sessionId, request);
+                case HTTP -> assistant.streamTemplate(sessionId, request);
+            };
+            case PREFETCH -> assistant.streamTemplateFromContext(sessionId, request, contextProvider.forRequest(request));
+        };
+    }
+
+    /**
+     * Streaming variant of {@link #refine(String, MessageTemplateRequest)}.
+     *
+     * @param sessionId the id of a session that already produced a template
+     * @param request   the instruction as description and optionally the current template content
+     * @return the events of the refinement
+     * @throws MessageTemplateRejectedException if the request is not admitted by the {@link MessageTemplateConcurrencyLimiter}
+     */
+    public Multi<MessageTemplateStreamEvent> streamRefinement(String sessionId, MessageTemplateRequest request) {
+        return admitted(sessionId, request, () -> assistant.streamRefineTemplate(sessionId, request));
+    }
+
+    private Multi<MessageTemplateStreamEvent> admitted(String sessionId, MessageTemplateRequest request, Supplier<Multi<ChatEvent>> generation) {
+        try {
+            limiter.acquire();
+        } catch (MessageTemplateRejectedException e) {
+            metrics.recordFailure(e);
+            throw e;
+        }
+        var released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                limiter.release();
+            }
+        };
+        try {
+            return validated(sessionId, original(request), timed(sessionId, generation), 0).onTermination().invoke(release);
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    private Multi<ChatEvent> timed(String sessionId, Supplier<Multi<ChatEvent>> generation) {
+        var start = System.nanoTime();
+        var previousTurns = turns(sessionId);
+        var events = generation.get();
+        var firstToken = new AtomicBoolean();
+        return events
+                .onItem().invoke(event -> {
+                    if (event instanceof ChatEvent.PartialResponseEvent && firstToken.compareAndSet(false, true)) {
+                        metrics.recordFirstToken(mode, start);
+                        Log.infof("First token after %d ms using %s mode", Duration.ofNanos(System.nanoTime() - start).toMillis(), mode);
+                    }
+                })
+                .onCompletion().invoke(() -> {
+                    metrics.recordGeneration(mode, transport, start, null);
+                    metrics.recordTurns(mode, turns(sessionId) - previousTurns);
+                    Log.infof("Streamed template in %d ms using %s mode", Duration.ofNanos(System.nanoTime() - start).toMillis(), mode);
+                })
+                .onFailure().invoke(failure -> metrics.recordGeneration(mode, transport, start, failure))
+                .onCancellation().invoke(() ->
+                        Log.infof("Generation %s cancelled after %d ms", sessionId, Duration.ofNanos(System.nanoTime() - start).toMillis()));
+    }
+
+    private Multi<MessageTemplateStreamEvent> validated(String sessionId, String original, Multi<ChatEvent> events, int retry) {
+        var stream = events
+                .onItem().transformToIterable(event -> MessageTemplateStreamEvent.of(event).stream().toList());
+        if (!validator.enabled()) {
+            return stream;
+        }
+        var scan = validator.start(original);
+        var output = new StringBuilder();
+        var completed = new AtomicBoolean();
+        return stream
+                .map(event -> switch (event.type()) {
+                    case TOKEN -> {
+                        output.append(event.data());
+                        if (!scan.accept(event.data())) {
+                            throw new MessageTemplateValidationException(scan.result());
+                        }
+                        yield event;
+                    }
+                    case COMPLETED -> {
+                        completed.set(true);
+                        var result = scan.finish();
+                        if (!result.valid()) {
+                            throw new MessageTemplateValidationException(result);
+                        }
+                        yield event.withValidation(result);
+                    }
+                    default -> event;
+                })
+                .onFailure(MessageTemplateValidationException.class).recoverWithMulti(failure -> {
+                    var result = ((MessageTemplateValidationException) failure).getResult();
+                    metrics.recordValidation(result);
+                    if (retry >= validator.maxRetries()) {
+                        metrics.recordFailure(failure);
+                        return Multi.createFrom().item(new MessageTemplateStreamEvent(MessageTemplateStreamEvent.Type.INVALID, null, result));
+                    }
+                    Log.infof("Streamed template of session %s is invalid, retrying:%n%s", sessionId, result.describe());
+                    metrics.recordRetry();
+                    if (!completed.get()) {
+                        rememberStopped(sessionId, output);
+                    }
+                    return Multi.createBy().concatenating().streams(
+                            Multi.createFrom().item(new MessageTemplateStreamEvent(MessageTemplateStreamEvent.Type.RETRY, null, result)),
+                            validated(sessionId, original, Multi.createFrom().deferred(() -> assistant.streamRepairTemplate(sessionId, result.describe())), retry + 1));
+                });
+    }
+
+    /**
+     * Adds the output of a generation that was stopped at its first violation to the chat memory as the model's answer.
+     * A stopped stream never stores its answer, so without it the repair instruction would refer to a template the
+     * model cannot see, right after the previous user message.
+     */
+    private void rememberStopped(String sessionId, CharSequence output) {
+        chatMemoryProvider.get(sessionId).add(AiMessage.from(output.toString()));
+    }
+
+    public MessageTemplateGenerationMode mode() {
+        return mode;
+    }
+}
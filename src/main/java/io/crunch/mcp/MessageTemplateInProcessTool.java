@@ -0,0 +1,40 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Exposes the {@link MessageTemplateTool} MCP tools as LangChain4j tools, so that the AI service
+ * can call them inside the JVM.
+ * <p>
+ * The application is both MCP server and MCP client. Going through the MCP client means that every
+ * tool call leaves the process over HTTP/SSE, is JSON-RPC encoded and decoded, and re-enters the same
+ * JVM on an HTTP worker thread. This bean offers the same tools, with identical names and descriptions,
+ * as a plain method call on the MCP tool bean. The results are in the same {@link MessageTemplatePayloadFormat payload format}
+ * as the MCP tools return, already serialized to JSON, so LangChain4j hands them to the model as they are.
+ *
+ * @see MessageTemplateToolTransport#IN_PROCESS
+ * @see MessageTemplateAssistant#generateTemplateInProcess(String, MessageTemplateRequest)
+ */
+@ApplicationScoped
+public class MessageTemplateInProcessTool {
+
+    private final MessageTemplateTool messageTemplateTool;
+
+    public MessageTemplateInProcessTool(MessageTemplateTool messageTemplateTool) {
+        this.messageTemplateTool = messageTemplateTool;
+    }
+
+    @Tool(name = MessageTemplateTool.LIST_TEMPLATE_PARAMETERS, value = MessageTemplateTool.LIST_TEMPLATE_PARAMETERS_DESCRIPTION)
+    public String getTemplateParameters() {
+        return messageTemplateTool.getTemplateParameters();
+    }
+
+    @Tool(name = MessageTemplateTool.GET_MESSAGE_TEMPLATES, value = MessageTemplateTool.GET_MESSAGE_TEMPLATES_DESCRIPTION)
+    public String getMessageTemplates(
+            @P(value = MessageTemplateTool.DESCRIPTION_ARG_DESCRIPTION, required = false) String description,
+            @P(value = MessageTemplateTool.LIMIT_ARG_DESCRIPTION, required = false) Integer limit) {
+        return messageTemplateTool.getMessageTemplates(description, limit);
+    }
+}
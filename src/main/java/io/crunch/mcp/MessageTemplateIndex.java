@@ -0,0 +1,191 @@
+package io.crunch.mcp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * In-process BM25 index over message templates.
+ * <p>
+ * Each {@link MessageTemplate} is indexed as one document built from its name, description and
+ * content; name and description terms are weighted higher than body terms, HTML tags are ignored
+ * and placeholder names contribute their words (e.g. {@code [[payment_due_date]]} yields
+ * {@code payment}, {@code due}, {@code date}).
+ *
+ * <h2>Incremental Updates</h2>
+ * {@link #update(List)} only tokenizes templates that are new or whose description or content changed;
+ * unchanged documents are kept and the collection statistics are adjusted in place. Searches always see
+ * a consistent, immutable view of the index, so they can run concurrently with an update.
+ *
+ * @see MessageTemplateRetriever
+ */
+public final class MessageTemplateIndex {
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private static final int NAME_WEIGHT = 3;
+
+    private static final int DESCRIPTION_WEIGHT = 2;
+
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "in", "is", "it",
+            "its", "of", "on", "or", "our", "that", "the", "their", "this", "to", "was", "we", "will", "with",
+            "you", "your", "template", "customer", "p", "br", "strong");
+
+    private volatile View view = new View(Map.of(), Map.of(), 0);
+
+    /**
+     * Synchronizes the index with the given templates.
+     *
+     * @param templates the complete, current list of templates
+     * @return the number of documents that had to be (re-)tokenized
+     */
+    public synchronized int update(List<MessageTemplate> templates) {
+        var current = view;
+        var documents = new HashMap<>(current.documents());
+        var documentFrequencies = new HashMap<>(current.documentFrequencies());
+        long totalLength = current.totalLength();
+        var names = new HashSet<String>();
+        int indexed = 0;
+        for (var template : templates) {
+            names.add(template.name());
+            var existing = documents.get(template.name());
+            if (existing != null && existing.matches(template)) {
+                continue;
+            }
+            if (existing != null) {
+                totalLength -= remove(existing, documentFrequencies);
+            }
+            var document = Document.of(template);
+            documents.put(template.name(), document);
+            document.termFrequencies().keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+            totalLength += document.length();
+            indexed++;
+        }
+        for (var iterator = documents.values().iterator(); iterator.hasNext(); ) {
+            var document = iterator.next();
+            if (!names.contains(document.template().name())) {
+                totalLength -= remove(document, documentFrequencies);
+                iterator.remove();
+            }
+        }
+        view = new View(Map.copyOf(documents), Map.copyOf(documentFrequencies), totalLength);
+        return indexed;
+    }
+
+    /**
+     * Returns the templates that are most relevant for the given query, best match first.
+     * <p>
+     * Templates that share no term with the query are not returned.
+     *
+     * @param query the free text to match, typically the description of a generation request
+     * @param limit the maximum number of templates to return
+     * @return up to {@code limit} templates ordered by descending BM25 score
+     */
+    public List<MessageTemplate> search(String query, int limit) {
+        var current = view;
+        var terms = tokenize(query);
+        if (terms.isEmpty() || current.documents().isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        var documentCount = current.documents().size();
+        var averageLength = (double) current.totalLength() / documentCount;
+        var scored = new ArrayList<ScoredTemplate>();
+        for (var document : current.documents().values()) {
+            double score = 0;
+            for (var term : terms) {
+                var frequency = document.termFrequencies().getOrDefault(term, 0);
+                if (frequency == 0) {
+                    continue;
+                }
+                var documentFrequency = current.documentFrequencies().get(term);
+                var idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                score += idf * frequency * (K1 + 1)
+                        / (frequency + K1 * (1 - B + B * document.length() / averageLength));
+            }
+            if (score > 0) {
+                scored.add(new ScoredTemplate(document.template(), score));
+            }
+        }
+        return scored.stream()
+                .sorted(Comparator.comparingDouble(ScoredTemplate::score).reversed()
+                        .thenComparing(entry -> entry.template().name()))
+                .limit(limit)
+                .map(ScoredTemplate::template)
+                .toList();
+    }
+
+    /**
+     * Returns the number of indexed templates.
+     *
+     * @return the document count
+     */
+    public int size() {
+        return view.documents().size();
+    }
+
+    private static int remove(Document document, Map<String, Integer> documentFrequencies) {
+        document.termFrequencies().keySet().forEach(term ->
+                documentFrequencies.computeIfPresent(term, (key, count) -> count == 1 ? null : count - 1));
+        return document.length();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        var plain = HTML_TAG.matcher(text).replaceAll(" ").replace('_', ' ').toLowerCase();
+        return Arrays.stream(NON_WORD.split(plain))
+                .filter(token -> token.length() > 1)
+                .filter(token -> !STOP_WORDS.contains(token))
+                .map(MessageTemplateIndex::stem)
+                .toList();
+    }
+
+    private static String stem(String token) {
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+
+    private record View(Map<String, Document> documents, Map<String, Integer> documentFrequencies, long totalLength) {
+    }
+
+    private record ScoredTemplate(MessageTemplate template, double score) {
+    }
+
+    private record Document(MessageTemplate template, Map<String, Integer> termFrequencies, int length) {
+
+        static Document of(MessageTemplate template) {
+            var termFrequencies = new HashMap<String, Integer>();
+            add(termFrequencies, tokenize(template.name()), NAME_WEIGHT);
+            add(termFrequencies, tokenize(template.description()), DESCRIPTION_WEIGHT);
+            add(termFrequencies, tokenize(template.content()), 1);
+            var length = termFrequencies.values().stream().mapToInt(Integer::intValue).sum();
+            return new Document(template, Map.copyOf(termFrequencies), length);
+        }
+
+        private static void add(Map<String, Integer> termFrequencies, List<String> tokens, int weight) {
+            tokens.forEach(token -> termFrequencies.merge(token, weight, Integer::sum));
+        }
+
+        boolean matches(MessageTemplate other) {
+            return Objects.equals(template.description(), other.description())
+                    && Objects.equals(template.content(), other.content());
+        }
+    }
+}
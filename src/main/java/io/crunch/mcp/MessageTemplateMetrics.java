@@ -0,0 +1,351 @@
+package io.crunch.mcp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters covering the phases of a template generation.
+ * <p>
+ * A generation spends its time in three places: waiting for admission (see {@link MessageTemplateConcurrencyLimiter}),
+ * model turns, and the tool calls in between. The meters below break the end-to-end latency down along those phases,
+ * so a slow request can be attributed to the model, to the tools or to the size of the context sent to the model.
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code template.startup.duration}: time from the JVM (or native process) launch until the application was
+ *       started; compare the JVM, AppCDS and native variants with it.</li>
+ *   <li>{@code template.tool.duration}: time spent in an MCP tool, tagged with the {@code tool} name.</li>
+ *   <li>{@code template.tool.payload}: size of the serialized tool result in bytes, tagged with the {@code tool} name.</li>
+ *   <li>{@code template.tool.payload.saved}: bytes saved by the compact payload format, tagged with the {@code tool} name.</li>
+ *   <li>{@code template.generation.duration}: latency of generations that reached the model, tagged with the
+ *       {@code mode}, the {@code transport} and the {@code outcome}.</li>
+ *   <li>{@code template.generation.first.token}: time to the first streamed token, tagged with the {@code mode}.</li>
+ *   <li>{@code template.generation.turns}: model turns per generation, tagged with the {@code mode}.</li>
+ *   <li>{@code template.generation.failures}: failed generations, tagged with the {@code reason}.</li>
+ *   <li>{@code template.validation.violations}: rule violations found in generated templates, tagged with the {@code type}.</li>
+ *   <li>{@code template.generation.retries}: corrective retries after an invalid template.</li>
+ *   <li>{@code template.patch.duration}: latency of patch-based updates, tagged with the {@code outcome}
+ *       ({@code applied} or {@code fallback}).</li>
+ *   <li>{@code template.speculation.duration}: latency of speculative generations, tagged with the number of
+ *       {@code candidates} that ran and the {@code outcome}; compare with {@code template.generation.duration}.</li>
+ *   <li>{@code template.speculation.discarded}: candidates that did not win, tagged with the {@code reason}
+ *       ({@code invalid}, {@code failed} or {@code cancelled}).</li>
+ *   <li>{@code template.static.requests}: static asset responses, tagged with the {@code result} ({@code hit},
+ *       {@code miss} or {@code not-modified}) and the content {@code encoding}; the cache-hit rate is the share of
+ *       {@code hit} and {@code not-modified} (see {@link MessageTemplateStaticAssets}).</li>
+ *   <li>{@code template.static.bytes}: static asset body bytes sent, tagged with the content {@code encoding}.</li>
+ *   <li>{@code template.static.bytes.saved}: bytes saved by sending a precompressed representation.</li>
+ *   <li>{@code template.llm.duration}: latency of a single model call (see {@link MessageTemplateChatModelListener}).</li>
+ *   <li>{@code template.llm.tokens}: prompt and completion tokens, tagged with the token {@code type}.</li>
+ *   <li>{@code template.llm.prefill}: time the model spent evaluating the prompt, excluding the cached prefix
+ *       (see {@link MessageTemplateOllamaInterceptor}).</li>
+ *   <li>{@code template.llm.prefill.tokens}: prompt tokens evaluated per call; lower than the prompt tokens
+ *       when a cached prefix was reused.</li>
+ *   <li>{@code template.llm.errors}: failed model calls, tagged with the {@code error} type.</li>
+ * </ul>
+ * Latency timers publish percentile histograms, so quantiles can be aggregated on the Prometheus side.
+ *
+ * @see MessageTemplateGenerator
+ * @see MessageTemplateTool
+ */
+@ApplicationScoped
+public class MessageTemplateMetrics {
+
+    private final MeterRegistry registry;
+
+    public MessageTemplateMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    void onStart(@Observes StartupEvent startupEvent) {
+        var uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder("template.startup.duration", () -> uptime, TimeUnit.MILLISECONDS)
+                .description("Time from process launch until the application was started")
+                .register(registry);
+        Log.infof("Application started %d ms after process launch", uptime);
+    }
+
+    /**
+     * Records a tool invocation.
+     *
+     * @param tool       the tool name
+     * @param startNanos the {@link System#nanoTime()} the invocation started
+     * @param size       the size of the serialized tool result in bytes, as sent to the model
+     */
+    public void recordTool(String tool, long startNanos, long size) {
+        Timer.builder("template.tool.duration")
+                .description("Time spent in an MCP tool")
+                .tag("tool", tool)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("template.tool.payload")
+                .description("Size of the serialized tool result")
+                .baseUnit("bytes")
+                .tag("tool", tool)
+                .register(registry)
+                .record(size);
+    }
+
+    /**
+     * Records the saving of a compact tool result.
+     *
+     * @param tool        the tool name
+     * @param fullSize    the size of the result in the full format in bytes
+     * @param compactSize the size of the compact result in bytes
+     */
+    public void recordCompaction(String tool, long fullSize, long compactSize) {
+        DistributionSummary.builder("template.tool.payload.saved")
+                .description("Bytes saved by the compact tool payload")
+                .baseUnit("bytes")
+                .tag("tool", tool)
+                .register(registry)
+                .record(Math.max(0, fullSize - compactSize));
+    }
+
+    /**
+     * Records a generation that reached the model.
+     *
+     * @param mode       the generation mode
+     * @param transport  the tool transport; ignored in prefetch mode
+     * @param startNanos the {@link System#nanoTime()} the generation started
+     * @param failure    the failure, or {@code null} if the generation succeeded
+     */
+    public void recordGeneration(MessageTemplateGenerationMode mode, MessageTemplateToolTransport transport,
+                                 long startNanos, Throwable failure) {
+        Timer.builder("template.generation.duration")
+                .description("Latency of template generations that reached the model")
+                .tag("mode", tag(mode))
+                .tag("transport", mode == MessageTemplateGenerationMode.TOOLS ? tag(transport) : "none")
+                .tag("outcome", failure == null ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (failure != null) {
+            recordFailure(failure);
+        }
+    }
+
+    /**
+     * Records the time to the first streamed token.
+     *
+     * @param mode       the generation mode
+     * @param startNanos the {@link System#nanoTime()} the generation started
+     */
+    public void recordFirstToken(MessageTemplateGenerationMode mode, long startNanos) {
+        Timer.builder("template.generation.first.token")
+                .description("Time to the first streamed token")
+                .tag("mode", tag(mode))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the number of model turns of a generation.
+     *
+     * @param mode  the generation mode
+     * @param turns the number of model responses
+     */
+    public void recordTurns(MessageTemplateGenerationMode mode, long turns) {
+        DistributionSummary.builder("template.generation.turns")
+                .description("Model turns per generation")
+                .tag("mode", tag(mode))
+                .register(registry)
+                .record(turns);
+    }
+
+    /**
+     * Counts a failed generation.
+     *
+     * @param failure the failure
+     */
+    public void recordFailure(Throwable failure) {
+        Counter.builder("template.generation.failures")
+                .description("Failed template generations")
+                .tag("reason", reason(failure))
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Counts the violations of an invalid template.
+     *
+     * @param result the validation result
+     */
+    public void recordValidation(MessageTemplateValidationResult result) {
+        result.violations().forEach(violation -> Counter.builder("template.validation.violations")
+                .description("Rule violations found in generated templates")
+                .tag("type", tag(violation.type()))
+                .register(registry)
+                .increment());
+    }
+
+    /**
+     * Records a patch-based update.
+     *
+     * @param startNanos the {@link System#nanoTime()} the update started
+     * @param applied    whether the patch was applied, or the template had to be regenerated in full
+     */
+    public void recordPatch(long startNanos, boolean applied) {
+        Timer.builder("template.patch.duration")
+                .description("Latency of patch-based template updates")
+                .tag("outcome", applied ? "applied" : "fallback")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a speculative generation.
+     *
+     * @param startNanos the {@link System#nanoTime()} the generation started
+     * @param candidates the number of candidates that ran
+     * @param failure    the failure of the generation, {@code null} if it produced a valid template
+     */
+    public void recordSpeculation(long startNanos, int candidates, Throwable failure) {
+        Timer.builder("template.speculation.duration")
+                .description("Latency of speculative template generations")
+                .tag("candidates", String.valueOf(candidates))
+                .tag("outcome", failure == null ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a speculative candidate that did not win.
+     *
+     * @param reason {@code invalid}, {@code failed} or {@code cancelled}
+     */
+    public void recordDiscardedCandidate(String reason) {
+        Counter.builder("template.speculation.discarded")
+                .description("Speculative candidates that did not win")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Counts a corrective retry.
+     */
+    public void recordRetry() {
+        Counter.builder("template.generation.retries")
+                .description("Corrective retries after an invalid template")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Records a static asset response.
+     *
+     * @param result       {@code hit}, {@code miss} or {@code not-modified}
+     * @param encoding     the content coding of the selected representation
+     * @param bytes        the body bytes sent, {@code 0} if no body was sent
+     * @param originalSize the uncompressed size of the asset, {@code 0} if no body was sent
+     */
+    public void recordStaticAsset(String result, String encoding, long bytes, long originalSize) {
+        Counter.builder("template.static.requests")
+                .description("Static asset responses")
+                .tag("result", result)
+                .tag("encoding", encoding)
+                .register(registry)
+                .increment();
+        if (bytes > 0) {
+            Counter.builder("template.static.bytes")
+                    .description("Static asset body bytes sent")
+                    .baseUnit("bytes")
+                    .tag("encoding", encoding)
+                    .register(registry)
+                    .increment(bytes);
+            Counter.builder("template.static.bytes.saved")
+                    .description("Static asset bytes saved by precompression")
+                    .baseUnit("bytes")
+                    .register(registry)
+                    .increment(originalSize - bytes);
+        }
+    }
+
+    /**
+     * Records a single model call.
+     *
+     * @param durationNanos the call duration
+     * @param inputTokens   the prompt tokens, or {@code null} if the provider did not report them
+     * @param outputTokens  the completion tokens, or {@code null} if the provider did not report them
+     */
+    public void recordModelCall(long durationNanos, Integer inputTokens, Integer outputTokens) {
+        Timer.builder("template.llm.duration")
+                .description("Latency of a single model call")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (inputTokens != null) {
+            tokens("prompt").increment(inputTokens);
+        }
+        if (outputTokens != null) {
+            tokens("completion").increment(outputTokens);
+        }
+    }
+
+    /**
+     * Records the prompt evaluation of a single model call.
+     *
+     * @param durationNanos the prompt evaluation time
+     * @param tokens        the prompt tokens that were evaluated, i.e. not served from the prompt cache
+     */
+    public void recordPrefill(long durationNanos, int tokens) {
+        Timer.builder("template.llm.prefill")
+                .description("Prompt evaluation time of a single model call")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("template.llm.prefill.tokens")
+                .description("Prompt tokens evaluated by a single model call")
+                .register(registry)
+                .record(tokens);
+    }
+
+    /**
+     * Counts a failed model call.
+     *
+     * @param error the error reported by the model client
+     */
+    public void recordModelError(Throwable error) {
+        Counter.builder("template.llm.errors")
+                .description("Failed model calls")
+                .tag("error", error.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    private Counter tokens(String type) {
+        return Counter.builder("template.llm.tokens")
+                .description("Tokens processed by the model")
+                .baseUnit("tokens")
+                .tag("type", type)
+                .register(registry);
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase().replace('_', '-');
+    }
+
+    static String reason(Throwable failure) {
+        return switch (failure) {
+            case MessageTemplateTimeoutException ignored -> "timeout";
+            case MessageTemplateRejectedException ignored -> "rejected";
+            case MessageTemplateValidationException ignored -> "invalid";
+            default -> failure.getClass().getSimpleName();
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package io.crunch.mcp;
+
+/**
+ * The chat models the {@link MessageTemplateModelRouter} chooses from.
+ *
+ * <ul>
+ *   <li>{@link #LARGE}: the default Ollama chat model ({@code quarkus.langchain4j.ollama.chat-model.*}), used for
+ *       new templates and large prompts.</li>
+ *   <li>{@link #SMALL}: the Ollama chat model named {@code small} ({@code quarkus.langchain4j.ollama.small.*}),
+ *       used for updates of existing templates, refinements and corrective retries.</li>
+ * </ul>
+ *
+ * @see MessageTemplateModelRouter
+ */
+public enum MessageTemplateModel {
+    SMALL,
+    LARGE;
+
+    /**
+     * Returns the model to fall back to.
+     *
+     * @return the other model
+     */
+    public MessageTemplateModel other() {
+        return this == SMALL ? LARGE : SMALL;
+    }
+}
@@ -0,0 +1,258 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.quarkiverse.langchain4j.ModelName;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Chooses between a small and a large local model for every model call of the {@link MessageTemplateAssistant}.
+ * <p>
+ * A brand-new template needs the large model, while a wording change of an existing template is handled well, and
+ * much faster, by a small one. The assistant is registered with the {@link MessageTemplateRoutingChatModel routing}
+ * chat models, which ask this router for a {@link MessageTemplateModel} on every call:
+ * <ol>
+ *   <li>New templates go to the large model, updates to the small one. A call is an update if the
+ *       {@link MessageTemplateGenerator} marked it as one (existing content, patch, refinement or corrective retry),
+ *       or if the conversation already contains a template answer.</li>
+ *   <li>Prompts larger than {@code small-max-input-tokens} go to the large model.</li>
+ *   <li>If an update chosen for the small model finds it already running {@code max-in-flight} calls and the large
+ *       one runs fewer, the large one is used. New templates and large prompts are never handed to the small model,
+ *       however busy the large one is.</li>
+ * </ol>
+ * A call that times out on the small model is repeated once on the large model; a streamed call only if no output has
+ * been emitted yet. A call that times out on the large model fails. A short {@code quarkus.langchain4j.ollama.small.timeout} therefore bounds the cost of a stuck small model.
+ * <p>
+ * The update mark is bound to the calling thread. Streamed generations call the model from other threads, so their
+ * calls are routed from the conversation alone.
+ *
+ * <h2>Metrics</h2>
+ * <ul>
+ *   <li>{@code template.routing.decisions}: routing decisions, tagged with the {@code model} and the {@code reason}
+ *       ({@code new}, {@code update}, {@code input-size}, {@code queue} or {@code fallback}).</li>
+ *   <li>{@code template.routing.duration}: latency of model calls, tagged with the {@code model} and the {@code outcome}.</li>
+ *   <li>{@code template.routing.in-flight}: model calls currently running, tagged with the {@code model}.</li>
+ * </ul>
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * app.routing.enabled=true
+ * app.routing.small-max-input-tokens=6000
+ * app.routing.max-in-flight=1
+ * quarkus.langchain4j.ollama.small.chat-model.model-id=qwen3:4b
+ * quarkus.langchain4j.ollama.small.timeout=30s
+ * }</pre>
+ * Without {@code app.routing.enabled} every call goes to the large model.
+ *
+ * @see MessageTemplateRoutingChatModel
+ * @see MessageTemplateRoutingStreamingChatModel
+ */
+@ApplicationScoped
+public class MessageTemplateModelRouter {
+
+    private static final ThreadLocal<Boolean> UPDATE = new ThreadLocal<>();
+
+    private final Map<MessageTemplateModel, ChatModel> chatModels = new EnumMap<>(MessageTemplateModel.class);
+
+    private final Map<MessageTemplateModel, StreamingChatModel> streamingChatModels = new EnumMap<>(MessageTemplateModel.class);
+
+    private final Map<MessageTemplateModel, AtomicInteger> inFlight = new EnumMap<>(MessageTemplateModel.class);
+
+    private final MeterRegistry registry;
+
+    private final boolean enabled;
+
+    private final long smallMaxInputTokens;
+
+    private final int maxInFlight;
+
+    public MessageTemplateModelRouter(ChatModel largeChatModel,
+                                      StreamingChatModel largeStreamingChatModel,
+                                      @ModelName("small") ChatModel smallChatModel,
+                                      @ModelName("small") StreamingChatModel smallStreamingChatModel,
+                                      MeterRegistry registry,
+                                      @ConfigProperty(name = "app.routing.enabled", defaultValue = "false") boolean enabled,
+                                      @ConfigProperty(name = "app.routing.small-max-input-tokens", defaultValue = "6000") long smallMaxInputTokens,
+                                      @ConfigProperty(name = "app.routing.max-in-flight", defaultValue = "1") int maxInFlight) {
+        chatModels.put(MessageTemplateModel.LARGE, largeChatModel);
+        chatModels.put(MessageTemplateModel.SMALL, smallChatModel);
+        streamingChatModels.put(MessageTemplateModel.LARGE, largeStreamingChatModel);
+        streamingChatModels.put(MessageTemplateModel.SMALL, smallStreamingChatModel);
+        this.registry = registry;
+        this.enabled = enabled;
+        this.smallMaxInputTokens = smallMaxInputTokens;
+        this.maxInFlight = maxInFlight;
+        for (var model : MessageTemplateModel.values()) {
+            var calls = new AtomicInteger();
+            inFlight.put(model, calls);
+            registry.gauge("template.routing.in-flight", Tags.of("model", tag(model)), calls);
+        }
+    }
+
+    /**
+     * Runs a blocking assistant call with the model calls on this thread marked as updates or new generations.
+     *
+     * @param update {@code true} if the call updates an existing template
+     * @param call   the assistant call
+     * @param <T>    the result type
+     * @return the result of the call
+     */
+    public <T> T call(boolean update, Supplier<T> call) {
+        var previous = UPDATE.get();
+        UPDATE.set(update);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                UPDATE.remove();
+            } else {
+                UPDATE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Chooses the model for a call and records the decision.
+     *
+     * @param request the chat request about to be sent
+     * @return the model to send it to
+     */
+    MessageTemplateModel route(ChatRequest request) {
+        if (!enabled) {
+            return MessageTemplateModel.LARGE;
+        }
+        MessageTemplateModel model;
+        String reason;
+        if (!isUpdate(request)) {
+            model = MessageTemplateModel.LARGE;
+            reason = "new";
+        } else if (inputTokens(request) > smallMaxInputTokens) {
+            model = MessageTemplateModel.LARGE;
+            reason = "input-size";
+        } else {
+            model = MessageTemplateModel.SMALL;
+            reason = "update";
+        }
+        // only a small update may move to the less busy model; new and oversized prompts always stay on the large one
+        var calls = inFlight.get(model).get();
+        if (model == MessageTemplateModel.SMALL && calls >= maxInFlight && inFlight.get(MessageTemplateModel.LARGE).get() < calls) {
+            model = MessageTemplateModel.LARGE;
+            reason = "queue";
+        }
+        recordDecision(model, reason);
+        return model;
+    }
+
+    /**
+     * Returns the model to repeat a failed call on.
+     *
+     * @param model   the model the call failed on
+     * @param failure the failure
+     * @return the large model if routing is enabled and the call timed out on the small one, otherwise {@code null}
+     */
+    MessageTemplateModel fallback(MessageTemplateModel model, Throwable failure) {
+        // calls routed to the large model are new templates or large prompts, which the small model must never get
+        if (!enabled || model != MessageTemplateModel.SMALL || !isTimeout(failure)) {
+            return null;
+        }
+        Log.warnf("Model call timed out on the %s model, falling back to the %s model", tag(model), tag(model.other()));
+        recordDecision(model.other(), "fallback");
+        return model.other();
+    }
+
+    ChatModel chatModel(MessageTemplateModel model) {
+        return chatModels.get(model);
+    }
+
+    StreamingChatModel streamingChatModel(MessageTemplateModel model) {
+        return streamingChatModels.get(model);
+    }
+
+    /**
+     * Marks the start of a call.
+     *
+     * @param model the model the call is sent to
+     * @return the {@link System#nanoTime()} the call started
+     */
+    long started(MessageTemplateModel model) {
+        inFlight.get(model).incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a call started with {@link #started(MessageTemplateModel)} and records its latency.
+     *
+     * @param model      the model the call was sent to
+     * @param startNanos the value returned by {@link #started(MessageTemplateModel)}
+     * @param failure    the failure of the call, {@code null} if it succeeded
+     */
+    void finished(MessageTemplateModel model, long startNanos, Throwable failure) {
+        inFlight.get(model).decrementAndGet();
+        Timer.builder("template.routing.duration")
+                .description("Latency of model calls per routed model")
+                .tag("model", tag(model))
+                .tag("outcome", failure == null ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean isUpdate(ChatRequest request) {
+        var update = UPDATE.get();
+        if (update != null) {
+            return update;
+        }
+        return request.messages().stream()
+                .anyMatch(message -> message instanceof AiMessage ai && !ai.hasToolExecutionRequests() && ai.text() != null);
+    }
+
+    private static long inputTokens(ChatRequest request) {
+        return request.messages().stream().mapToLong(MessageTemplateSessionMemory::tokens).sum();
+    }
+
+    static boolean isTimeout(Throwable failure) {
+        for (var cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException
+                    || cause instanceof SocketTimeoutException
+                    || cause instanceof HttpTimeoutException
+                    || cause instanceof dev.langchain4j.exception.TimeoutException
+                    || cause.getClass().getSimpleName().endsWith("TimeoutException")) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void recordDecision(MessageTemplateModel model, String reason) {
+        Counter.builder("template.routing.decisions")
+                .description("Model routing decisions")
+                .tag("model", tag(model))
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    private static String tag(MessageTemplateModel model) {
+        return model.name().toLowerCase();
+    }
+}
@@ -0,0 +1,158 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered UTF-8 writer for NDJSON render output.
+ * <p>
+ * Writes into a private byte buffer that is flushed to the underlying stream when full, so writing a
+ * message costs no allocation and no synchronization per byte. Not thread-safe; one instance serves
+ * one response.
+ *
+ * @see MessageTemplateRenderer
+ */
+final class MessageTemplateNdjsonWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+
+    private final byte[] buffer;
+
+    private int count;
+
+    MessageTemplateNdjsonWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    void write(char ascii) {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) ascii;
+    }
+
+    void write(byte[] bytes) {
+        if (bytes.length > buffer.length - count) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                writeThrough(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    void writeAscii(String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            write(ascii.charAt(i));
+        }
+    }
+
+    void writeLong(long value) {
+        writeAscii(Long.toString(value));
+    }
+
+    /**
+     * Writes a JSON string body (without quotes) containing the HTML-escaped value.
+     *
+     * @param value the raw parameter value
+     */
+    void writeHtmlValue(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            var escaped = MessageTemplateCompiledTemplate.htmlEscape(c);
+            if (escaped != null) {
+                writeAscii(escaped);
+            } else if (c == '\\') {
+                write('\\');
+                write('\\');
+            } else if (c < 0x20) {
+                writeControl(c);
+            } else if (c < 0x80) {
+                write(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, value.charAt(++i)));
+            } else {
+                writeCodePoint(Character.isSurrogate(c) ? 0xFFFD : c);
+            }
+        }
+    }
+
+    /**
+     * Writes a JSON string body (without quotes) for the value, without HTML escaping.
+     *
+     * @param value the raw value
+     */
+    void writeJsonValue(String value) {
+        write(JsonStringEncoder.getInstance().quoteAsUTF8(value));
+    }
+
+    void flush() {
+        flushBuffer();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeControl(char c) {
+        write('\\');
+        switch (c) {
+            case '\n' -> write('n');
+            case '\r' -> write('r');
+            case '\t' -> write('t');
+            default -> {
+                write('u');
+                write('0');
+                write('0');
+                write((char) HEX[c >> 4]);
+                write((char) HEX[c & 0xF]);
+            }
+        }
+    }
+
+    private void writeCodePoint(int codePoint) {
+        if (buffer.length - count < 4) {
+            flushBuffer();
+        }
+        if (codePoint < 0x800) {
+            buffer[count++] = (byte) (0xC0 | codePoint >> 6);
+        } else if (codePoint < 0x10000) {
+            buffer[count++] = (byte) (0xE0 | codePoint >> 12);
+            buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+        } else {
+            buffer[count++] = (byte) (0xF0 | codePoint >> 18);
+            buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+        }
+        buffer[count++] = (byte) (0x80 | codePoint & 0x3F);
+    }
+
+    private void flushBuffer() {
+        if (count > 0) {
+            writeThrough(buffer, count);
+            count = 0;
+        }
+    }
+
+    private void writeThrough(byte[] bytes) {
+        writeThrough(bytes, bytes.length);
+    }
+
+    private void writeThrough(byte[] bytes, int length) {
+        try {
+            out.write(bytes, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
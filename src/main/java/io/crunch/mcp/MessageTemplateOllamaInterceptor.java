@@ -0,0 +1,152 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkiverse.langchain4j.ollama.ChatRequest;
+import io.quarkiverse.langchain4j.ollama.ChatResponse;
+import io.quarkus.logging.Log;
+import jakarta.ws.rs.ConstrainedTo;
+import jakarta.ws.rs.RuntimeType;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.ReaderInterceptor;
+import jakarta.ws.rs.ext.ReaderInterceptorContext;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Keeps the Ollama model, and with it the prompt cache, loaded between requests and reports the prefill time.
+ * <p>
+ * Ollama reuses the KV cache of the longest prompt prefix it has already evaluated, but only while the model
+ * stays loaded; by default it is unloaded five minutes after the last request. The Ollama client of
+ * quarkus-langchain4j has no keep-alive setting, so this REST client interceptor adds {@code keep_alive} to
+ * every chat request.
+ * <p>
+ * Ollama answers with {@code prompt_eval_duration} and {@code prompt_eval_count}, which only cover the part of
+ * the prompt that was not served from the cache. Both are recorded as {@code template.llm.prefill} and
+ * {@code template.llm.prefill.tokens} for blocking chat requests; for streamed requests the time to the first
+ * token ({@code template.generation.first.token}) measures the same.
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * app.ollama.keep-alive=30m
+ * }</pre>
+ * A duration string or a number of seconds; {@code -1} keeps the model loaded indefinitely and {@code 0} unloads
+ * it after every request, which disables prompt caching. Without a value Ollama's own default applies.
+ *
+ * @see MessageTemplateMetrics
+ */
+@Provider
+@ConstrainedTo(RuntimeType.CLIENT)
+public class MessageTemplateOllamaInterceptor implements WriterInterceptor, ReaderInterceptor {
+
+    private final byte[] keepAliveField;
+
+    private final MessageTemplateMetrics metrics;
+
+    private final ObjectMapper objectMapper;
+
+    public MessageTemplateOllamaInterceptor(@ConfigProperty(name = "app.ollama.keep-alive") Optional<String> keepAlive,
+                                            MessageTemplateMetrics metrics,
+                                            ObjectMapper objectMapper) {
+        this.keepAliveField = keepAlive.map(value -> field(value, objectMapper)).orElse(null);
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        if (keepAliveField != null && context.getEntity() instanceof ChatRequest) {
+            context.setOutputStream(new KeepAliveOutputStream(context.getOutputStream(), keepAliveField));
+        }
+        context.proceed();
+    }
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        if (context.getType() != ChatResponse.class || !MediaType.APPLICATION_JSON_TYPE.isCompatible(context.getMediaType())) {
+            return context.proceed();
+        }
+        var body = context.getInputStream().readAllBytes();
+        recordPrefill(body);
+        context.setInputStream(new ByteArrayInputStream(body));
+        return context.proceed();
+    }
+
+    private void recordPrefill(byte[] body) {
+        try {
+            var response = objectMapper.readTree(body);
+            var duration = response.path("prompt_eval_duration");
+            if (duration.canConvertToLong()) {
+                var tokens = response.path("prompt_eval_count").asInt();
+                Log.debugf("Ollama prefill of %d prompt tokens took %d ms", tokens, duration.asLong() / 1_000_000);
+                metrics.recordPrefill(duration.asLong(), tokens);
+            }
+        } catch (IOException e) {
+            Log.debugf("Ollama response could not be inspected: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Renders the {@code keep_alive} field, followed by a comma; numbers are seconds, anything else a duration string.
+     */
+    private static byte[] field(String keepAlive, ObjectMapper objectMapper) {
+        try {
+            var value = keepAlive.strip().matches("-?\\d+")
+                    ? String.valueOf(Long.parseLong(keepAlive.strip()))
+                    : objectMapper.writeValueAsString(keepAlive.strip());
+            return ("\"keep_alive\":" + value + ",").getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new MessageTemplateException("Invalid Ollama keep-alive: " + keepAlive, e);
+        }
+    }
+
+    /**
+     * Inserts a field right after the opening brace of the serialized JSON object.
+     */
+    static final class KeepAliveOutputStream extends FilterOutputStream {
+
+        private final byte[] field;
+
+        private boolean inserted;
+
+        KeepAliveOutputStream(OutputStream out, byte[] field) {
+            super(out);
+            this.field = field;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            insertAfter(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (inserted || len == 0) {
+                out.write(b, off, len);
+                return;
+            }
+            out.write(b, off, 1);
+            insertAfter(b[off]);
+            out.write(b, off + 1, len - 1);
+        }
+
+        private void insertAfter(int b) throws IOException {
+            if (!inserted) {
+                inserted = true;
+                if (b == '{') {
+                    out.write(field);
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package io.crunch.mcp;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Represents a dynamic placeholder that can be used inside message templates.
@@ -21,7 +26,10 @@ import jakarta.persistence.Table;
  *   <li><b>Table name:</b> {@code TEMPLATE_PARAMETER}</li>
  *   <li><b>Primary key:</b> inherited from {@link PanacheEntity#id}</li>
  *   <li><b>Fields:</b> {@code name}, {@code description}</li>
+ *   <li><b>Version:</b> {@code version}, incremented on every update; used for optimistic locking and
+ *       for detecting changes made by other application nodes</li>
  * </ul>
+ * The JSON property order is fixed, so the tool output is byte-stable across JVMs. The version is not part of it.
  *
  * <h2>Usage</h2>
  * Typical lifecycle operations include:
@@ -35,6 +43,8 @@ import jakarta.persistence.Table;
  * @see MessageTemplateDescriptor
  */
 @Entity
+@JsonPropertyOrder({"id", "name", "description"})
+@EntityListeners(MessageTemplateCorpusListener.class)
 @Table(name = "TEMPLATE_PARAMETER")
 public class MessageTemplateParameter extends PanacheEntity {
 
@@ -42,6 +52,10 @@ public class MessageTemplateParameter extends PanacheEntity {
 
     private String description;
 
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
     public String getName() {
         return name;
     }
@@ -57,4 +71,9 @@ public class MessageTemplateParameter extends PanacheEntity {
     public void setDescription(String description) {
         this.description = description;
     }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
 }
@@ -0,0 +1,66 @@
+package io.crunch.mcp;
+
+import java.util.List;
+
+/**
+ * Edits to an existing message template, as returned by the model in {@link MessageTemplateUpdateMode#PATCH patch} mode.
+ * <p>
+ * Every edit replaces one passage of the template: {@code find} must match exactly one passage of the current
+ * content, and {@code replace} is its new text; an empty {@code replace} deletes the passage, and an insertion
+ * is expressed by repeating the neighbouring passage in {@code replace}. Edits are applied in order, each one
+ * to the result of the previous one. Text passages are matched instead of positions, because models are
+ * reliable at quoting text but not at counting characters.
+ *
+ * @param edits the edits to apply; an empty list leaves the template unchanged
+ * @see MessageTemplateGenerator
+ */
+public record MessageTemplatePatch(List<Edit> edits) {
+
+    /**
+     * A single replacement.
+     *
+     * @param find    the exact passage to replace
+     * @param replace the new text of the passage
+     */
+    public record Edit(String find, String replace) {
+    }
+
+    /**
+     * Applies the edits to a template.
+     *
+     * @param content the template content the edits were made for
+     * @return the edited content
+     * @throws MessageTemplateException if a passage to replace is empty, missing or not unique
+     */
+    public String apply(String content) {
+        var result = content;
+        if (edits == null) {
+            return result;
+        }
+        for (var edit : edits) {
+            var find = edit.find();
+            if (find == null || find.isEmpty()) {
+                throw new MessageTemplateException("Patch contains an edit without a passage to replace");
+            }
+            var index = result.indexOf(find);
+            if (index < 0) {
+                throw new MessageTemplateException("Patch passage not found: " + find);
+            }
+            if (result.indexOf(find, index + 1) >= 0) {
+                throw new MessageTemplateException("Patch passage is not unique: " + find);
+            }
+            var replace = edit.replace() == null ? "" : edit.replace();
+            result = result.substring(0, index) + replace + result.substring(index + find.length());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of edits.
+     *
+     * @return the edit count
+     */
+    public int size() {
+        return edits == null ? 0 : edits.size();
+    }
+}
@@ -0,0 +1,20 @@
+package io.crunch.mcp;
+
+/**
+ * Defines how the MCP tools serialize the template corpus for the AI model.
+ *
+ * <ul>
+ *   <li>{@link #FULL}: every parameter and template is returned as is, one JSON object per item.</li>
+ *   <li>{@link #COMPACT}: blocks shared by several templates, such as the header and the closing,
+ *       are returned once and referenced from the templates, and entity ids are left out
+ *       (see {@link MessageTemplateCompactor}).</li>
+ * </ul>
+ *
+ * Configured with {@code app.tool.payload-format}; the default is {@code full}.
+ *
+ * @see MessageTemplateTool
+ */
+public enum MessageTemplatePayloadFormat {
+    FULL,
+    COMPACT
+}
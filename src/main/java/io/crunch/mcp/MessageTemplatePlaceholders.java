@@ -0,0 +1,108 @@
+package io.crunch.mcp;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Extracts the {@code [[placeholder_name]]} references from message template HTML.
+ * <p>
+ * Placeholder names consist of lowercase letters, digits and underscores. The scanner walks the
+ * text once with {@link String#indexOf(String, int)} instead of a regular expression, since it runs
+ * over every generated template.
+ *
+ * @see MessageTemplateParameter
+ * @see MessageTemplateCompiledTemplate
+ */
+public final class MessageTemplatePlaceholders {
+
+    static final String OPEN = "[[";
+
+    static final String CLOSE = "]]";
+
+    private MessageTemplatePlaceholders() {
+    }
+
+    /**
+     * Receives the parts of a scanned template in document order.
+     */
+    interface Handler {
+
+        /**
+         * Called for the text between two placeholders; may be empty.
+         *
+         * @param start the start index in the scanned text, inclusive
+         * @param end   the end index in the scanned text, exclusive
+         */
+        void literal(int start, int end);
+
+        /**
+         * Called for every placeholder.
+         *
+         * @param name the placeholder name without the surrounding brackets
+         */
+        void placeholder(String name);
+    }
+
+    /**
+     * Returns the distinct placeholder names referenced by the given HTML, in order of first appearance.
+     *
+     * @param html the template content; may be {@code null}
+     * @return the placeholder names without the surrounding brackets
+     */
+    public static Set<String> extract(String html) {
+        var names = new LinkedHashSet<String>();
+        if (html != null) {
+            scan(html, new Handler() {
+                @Override
+                public void literal(int start, int end) {
+                }
+
+                @Override
+                public void placeholder(String name) {
+                    names.add(name);
+                }
+            });
+        }
+        return names;
+    }
+
+    /**
+     * Splits the given HTML into literal text and placeholders.
+     * <p>
+     * Malformed placeholders, such as {@code [[Customer Name]]} or an unterminated {@code [[}, are reported as literal text.
+     *
+     * @param html    the template content
+     * @param handler receives the literals and placeholders in document order, always starting and ending with a literal
+     */
+    static void scan(String html, Handler handler) {
+        int literalStart = 0;
+        int from = 0;
+        while (true) {
+            var open = html.indexOf(OPEN, from);
+            var close = open < 0 ? -1 : html.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                handler.literal(literalStart, html.length());
+                return;
+            }
+            var start = open + OPEN.length();
+            if (close > start && isName(html, start, close)) {
+                handler.literal(literalStart, open);
+                handler.placeholder(html.substring(start, close));
+                literalStart = close + CLOSE.length();
+                from = literalStart;
+            } else {
+                from = open + 1;
+            }
+        }
+    }
+
+    private static boolean isName(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            var c = text.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,25 @@
+package io.crunch.mcp;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a generation request is not admitted because the model is saturated.
+ * <p>
+ * The exception is translated into a {@code 503 Service Unavailable} response carrying a
+ * {@code Retry-After} header (see {@link MessageTemplateResource}).
+ *
+ * @see MessageTemplateConcurrencyLimiter
+ */
+public class MessageTemplateRejectedException extends MessageTemplateException {
+
+    private final Duration retryAfter;
+
+    public MessageTemplateRejectedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,35 @@
+package io.crunch.mcp;
+
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.InputStream;
+
+@Path("/api/render")
+public class MessageTemplateRenderResource {
+
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final MessageTemplateRenderer renderer;
+
+    public MessageTemplateRenderResource(MessageTemplateRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    @POST
+    @Path("/{name}")
+    @Consumes({APPLICATION_NDJSON, MediaType.APPLICATION_JSON})
+    @Produces(APPLICATION_NDJSON)
+    @RunOnVirtualThread
+    public StreamingOutput render(@PathParam("name") String name, InputStream values) {
+        var template = renderer.find(name).orElseThrow(() -> new NotFoundException("Unknown template: " + name));
+        return output -> renderer.renderNdjson(template, values, output);
+    }
+}
@@ -0,0 +1,157 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fills the placeholders of the corpus templates with customer data.
+ * <p>
+ * Templates are compiled into {@link MessageTemplateCompiledTemplate}s on first use and kept until the
+ * {@link MessageTemplateCorpus} changes its version. Compiled templates are immutable, so any number of
+ * render requests can use them in parallel without locking.
+ *
+ * <h2>Bulk Rendering</h2>
+ * {@link #renderNdjson(MessageTemplateCompiledTemplate, InputStream, OutputStream)} reads one JSON object
+ * of parameter values per line and writes one line per message:
+ * <pre>{@code
+ * {"customer_name":"Jane Doe","payment_amount":"120 EUR"}   ->   {"index":0,"content":"<p>Dear Jane Doe,</p>..."}
+ * {"customer_name":"John Doe"}                              ->   {"index":1,"error":"Missing value for parameter: payment_amount"}
+ * }</pre>
+ * Input is parsed as a token stream straight into a reused value array, and output is written into a reused
+ * byte buffer, so a message costs neither a map nor an intermediate string.
+ *
+ * @see MessageTemplateRenderResource
+ */
+@ApplicationScoped
+public class MessageTemplateRenderer {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MessageTemplateCorpus corpus;
+
+    private final ObjectMapper objectMapper;
+
+    private volatile CompiledCorpus compiled;
+
+    public MessageTemplateRenderer(MessageTemplateCorpus corpus, ObjectMapper objectMapper) {
+        this.corpus = corpus;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the compiled template with the given name from the current corpus.
+     *
+     * @param name the template name
+     * @return the compiled template, or an empty optional if the corpus has no such template
+     * @throws MessageTemplateException if the template references an unknown parameter
+     */
+    public Optional<MessageTemplateCompiledTemplate> find(String name) {
+        var snapshot = corpus.snapshot();
+        var current = compiled;
+        if (current == null || current.version() != snapshot.version()) {
+            current = CompiledCorpus.of(snapshot);
+            compiled = current;
+        }
+        return current.get(name);
+    }
+
+    /**
+     * Renders one message per line of parameter values.
+     * <p>
+     * A line with a missing value produces an error line and rendering continues; malformed input produces
+     * an error line and ends the output.
+     *
+     * @param template the template to render
+     * @param input    NDJSON stream of parameter value objects
+     * @param output   receives one NDJSON line per input line
+     * @return the number of input lines processed
+     */
+    public long renderNdjson(MessageTemplateCompiledTemplate template, InputStream input, OutputStream output) {
+        var start = System.nanoTime();
+        var writer = new MessageTemplateNdjsonWriter(output, BUFFER_SIZE);
+        var values = new String[template.parameters().size()];
+        long index = 0;
+        try (var parser = objectMapper.getFactory().createParser(input)) {
+            for (var token = parser.nextToken(); token != null; token = parser.nextToken(), index++) {
+                if (token != JsonToken.START_OBJECT) {
+                    writeError(writer, index, "Expected a JSON object of parameter values");
+                    break;
+                }
+                read(parser, template, values);
+                var missing = template.missing(values);
+                if (missing != null) {
+                    writeError(writer, index, "Missing value for parameter: " + missing);
+                } else {
+                    writer.writeAscii("{\"index\":");
+                    writer.writeLong(index);
+                    writer.writeAscii(",\"content\":");
+                    template.writeJson(values, writer);
+                    writer.writeAscii("}\n");
+                }
+            }
+        } catch (IOException e) {
+            writeError(writer, index, "Invalid input: " + e.getMessage());
+        }
+        writer.flush();
+        Log.infof("Rendered %d messages of template %s in %d ms", index, template.name(),
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return index;
+    }
+
+    private static void read(JsonParser parser, MessageTemplateCompiledTemplate template, String[] values) throws IOException {
+        Arrays.fill(values, null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var position = template.position(parser.currentName());
+            var token = parser.nextToken();
+            if (position >= 0 && token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                values[position] = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void writeError(MessageTemplateNdjsonWriter writer, long index, String message) {
+        writer.writeAscii("{\"index\":");
+        writer.writeLong(index);
+        writer.writeAscii(",\"error\":\"");
+        writer.writeJsonValue(message);
+        writer.writeAscii("\"}\n");
+    }
+
+    private record CompiledCorpus(long version,
+                                  Map<String, MessageTemplate> templates,
+                                  Map<String, MessageTemplateParameter> parameters,
+                                  Map<String, MessageTemplateCompiledTemplate> compiled) {
+
+        static CompiledCorpus of(MessageTemplateCorpusSnapshot snapshot) {
+            Log.infof("Compiling templates of corpus version %d on demand", snapshot.version());
+            return new CompiledCorpus(snapshot.version(),
+                    snapshot.templates().stream().collect(Collectors.toMap(MessageTemplate::name, Function.identity(), (first, second) -> first)),
+                    snapshot.parameters().stream().collect(Collectors.toMap(MessageTemplateParameter::getName, Function.identity(), (first, second) -> first)),
+                    new ConcurrentHashMap<>());
+        }
+
+        Optional<MessageTemplateCompiledTemplate> get(String name) {
+            var template = templates.get(name);
+            if (template == null) {
+                return Optional.empty();
+            }
+            return Optional.of(compiled.computeIfAbsent(name, key -> MessageTemplateCompiledTemplate.compile(template, parameters)));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package io.crunch.mcp;
+
+/**
+ * Identifies generations that are expected to produce the same template.
+ * <p>
+ * Two requests map to the same key if their description and content are equal after trimming and
+ * collapsing whitespace, and they are generated with the same {@link MessageTemplateGenerationMode}
+ * against the same corpus content ({@link MessageTemplateCorpusSnapshot#hash()}).
+ *
+ * @param corpusHash  the hash of the corpus snapshot the generation is based on
+ * @param mode        the generation mode
+ * @param description the normalized description
+ * @param content     the normalized existing template content
+ * @see MessageTemplateResultCache
+ * @see MessageTemplateSingleFlight
+ */
+public record MessageTemplateRequestKey(String corpusHash, MessageTemplateGenerationMode mode, String description, String content) {
+
+    static MessageTemplateRequestKey of(MessageTemplateRequest request, MessageTemplateCorpusSnapshot snapshot, MessageTemplateGenerationMode mode) {
+        return new MessageTemplateRequestKey(snapshot.hash(), mode, normalize(request.description()), normalize(request.content()));
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.strip().replaceAll("\\s+", " ");
+    }
+}
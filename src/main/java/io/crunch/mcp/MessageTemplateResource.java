@@ -1,42 +1,213 @@
 package io.crunch.mcp;
 
-import dev.langchain4j.memory.ChatMemory;
-import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import io.quarkus.logging.Log;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Multi;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.RestResponse;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
 
-import java.util.Optional;
+import java.time.Duration;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
+/**
+ * REST API of the template generator.
+ *
+ * <h2>Refinement Sessions</h2>
+ * Without an {@code X-Session-Id} header every request is independent: it runs in a fresh chat memory that is
+ * cleared afterwards. With the header, the client opts into a refinement session: the first request generates the
+ * template as usual and keeps the conversation, including the tool results or the prefetched context; every further
+ * request with the same id is a follow-up instruction (for example "make it shorter") that is answered in a single
+ * model turn. Sessions end with {@code DELETE /api/sessions/{id}} or after {@code app.session.idle-timeout}.
+ * A session runs one request at a time: a request arriving while another one of the same session is still running
+ * gets {@code 409 Conflict}, and a new session gets {@code 503} once {@code app.session.max-sessions} are open.
+ *
+ * <h2>Speculative Candidates</h2>
+ * {@code POST /api} runs {@code app.generation.candidates} candidate generations in parallel and returns the first
+ * valid one; the {@code X-Candidates} header overrides the number per request, so the latency with and without
+ * speculation can be compared on the same deployment. Sessions and streams always run a single generation.
+ *
+ * @see MessageTemplateChatMemoryProvider
+ */
 @Path("/api")
 public class MessageTemplateResource {
 
-    private final MessageTemplateAssistant templateGeneratorAssistant;
+    private static final int UNPROCESSABLE_CONTENT = 422;
 
-    private final ChatMemoryProvider chatMemoryProvider;
+    private static final String SESSION_ID = "X-Session-Id";
 
-    public MessageTemplateResource(MessageTemplateAssistant templateGeneratorAssistant, ChatMemoryProvider chatMemoryProvider) {
-        this.templateGeneratorAssistant = templateGeneratorAssistant;
+    private static final Pattern SESSION_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{8,64}");
+
+    private final MessageTemplateGenerator templateGenerator;
+
+    private final MessageTemplateValidator templateValidator;
+
+    private final MessageTemplateChatMemoryProvider chatMemoryProvider;
+
+    private final Duration generationTimeout;
+
+    private final int candidates;
+
+    public MessageTemplateResource(MessageTemplateGenerator templateGenerator, MessageTemplateValidator templateValidator,
+                                   MessageTemplateChatMemoryProvider chatMemoryProvider,
+                                   @ConfigProperty(name = "app.generation.timeout", defaultValue = "180s") Duration generationTimeout,
+                                   @ConfigProperty(name = "app.generation.candidates", defaultValue = "1") int candidates) {
+        this.templateGenerator = templateGenerator;
+        this.templateValidator = templateValidator;
         this.chatMemoryProvider = chatMemoryProvider;
+        this.generationTimeout = generationTimeout;
+        this.candidates = candidates;
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    public String createTemplate(MessageTemplateRequest request) {
+    @RunOnVirtualThread
+    public String createTemplate(MessageTemplateRequest request,
+                                 @HeaderParam(HttpHeaders.CACHE_CONTROL) String cacheControl,
+                                 @HeaderParam("X-Request-Timeout") Integer timeoutSeconds,
+                                 @HeaderParam("X-Candidates") Integer candidateCount,
+                                 @HeaderParam(SESSION_ID) String session) {
+        if (session != null) {
+            return inSession(session(session), request);
+        }
         Log.infof("Creating template with description: %s", request.description());
         var sessionId = UUID.randomUUID().toString();
+        var options = new MessageTemplateGenerationOptions(
+                cacheControl != null && cacheControl.contains("no-cache"),
+                timeout(timeoutSeconds),
+                candidateCount != null ? candidateCount : candidates);
+        // the generator clears the chat memory itself, the generation may still run after a timeout of this request
+        var result = templateGenerator.generate(sessionId, request, options);
+        // the model exchanges are kept by MessageTemplateCapture; only log the outcome on the request path
+        Log.debugf("Generated template of %d characters", result.length());
+        return result;
+    }
+
+    private String inSession(String sessionId, MessageTemplateRequest request) {
+        begin(sessionId);
         try {
-            var result = templateGeneratorAssistant.generateTemplate(sessionId, request);
-            Log.info("Generated template: " + result);
-            chatMemoryProvider.get(sessionId)
-                    .messages()
-                    .forEach(chatMessage -> Log.infof("Chat message type: %s", chatMessage.type().name()));
-            return result;
+            if (chatMemoryProvider.isActive(sessionId)) {
+                Log.infof("Refining template of session %s: %s", sessionId, request.description());
+                return templateGenerator.refine(sessionId, request);
+            }
+            Log.infof("Creating template in session %s with description: %s", sessionId, request.description());
+            try {
+                return templateGenerator.generateInSession(sessionId, request);
+            } catch (RuntimeException e) {
+                chatMemoryProvider.end(sessionId);
+                throw e;
+            }
         } finally {
-            Optional.ofNullable(chatMemoryProvider.get(sessionId)).ifPresent(ChatMemory::clear);
+            chatMemoryProvider.finish(sessionId);
         }
     }
+
+    @POST
+    @Path("/stream")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @RunOnVirtualThread
+    public Multi<MessageTemplateStreamEvent> streamTemplate(MessageTemplateRequest request, @HeaderParam(SESSION_ID) String session) {
+        if (session != null) {
+            var sessionId = session(session);
+            begin(sessionId);
+            try {
+                Multi<MessageTemplateStreamEvent> events;
+                if (chatMemoryProvider.isActive(sessionId)) {
+                    Log.infof("Streaming refinement of session %s: %s", sessionId, request.description());
+                    events = templateGenerator.streamRefinement(sessionId, request);
+                } else {
+                    Log.infof("Streaming template in session %s with description: %s", sessionId, request.description());
+                    events = templateGenerator.stream(sessionId, request);
+                }
+                return events.onTermination().invoke(() -> chatMemoryProvider.finish(sessionId));
+            } catch (RuntimeException e) {
+                chatMemoryProvider.finish(sessionId);
+                throw e;
+            }
+        }
+        Log.infof("Streaming template with description: %s", request.description());
+        var sessionId = UUID.randomUUID().toString();
+        return templateGenerator.stream(sessionId, request)
+                .onTermination().invoke(() -> chatMemoryProvider.end(sessionId));
+    }
+
+    @DELETE
+    @Path("/sessions/{id}")
+    public void endSession(@PathParam("id") String id) {
+        if (!chatMemoryProvider.end(session(id))) {
+            throw new NotFoundException("Unknown session: " + id);
+        }
+        Log.infof("Ended session %s", id);
+    }
+
+    /**
+     * Returns the timeout requested with {@code X-Request-Timeout}, which can shorten but not extend {@code app.generation.timeout}.
+     */
+    private Duration timeout(Integer timeoutSeconds) {
+        if (timeoutSeconds == null) {
+            return generationTimeout;
+        }
+        if (timeoutSeconds <= 0) {
+            throw new BadRequestException("X-Request-Timeout must be a positive number of seconds");
+        }
+        var timeout = Duration.ofSeconds(timeoutSeconds);
+        return timeout.compareTo(generationTimeout) < 0 ? timeout : generationTimeout;
+    }
+
+    private void begin(String sessionId) {
+        if (!chatMemoryProvider.begin(sessionId)) {
+            throw new ClientErrorException("A request of session " + sessionId + " is still running", RestResponse.Status.CONFLICT.getStatusCode());
+        }
+    }
+
+    private static String session(String sessionId) {
+        if (!SESSION_ID_PATTERN.matcher(sessionId).matches()) {
+            throw new BadRequestException(SESSION_ID + " must consist of 8 to 64 letters, digits, '-' or '_'");
+        }
+        return sessionId;
+    }
+
+    @POST
+    @Path("/validate")
+    @Consumes({MediaType.TEXT_HTML, MediaType.TEXT_PLAIN})
+    @Produces(MediaType.APPLICATION_JSON)
+    public MessageTemplateValidationResult validateTemplate(String template) {
+        return templateValidator.validate(template);
+    }
+
+    @ServerExceptionMapper
+    public RestResponse<String> mapTimeout(MessageTemplateTimeoutException e) {
+        return RestResponse.status(RestResponse.Status.GATEWAY_TIMEOUT, e.getMessage());
+    }
+
+    @ServerExceptionMapper
+    public RestResponse<MessageTemplateValidationResult> mapInvalid(MessageTemplateValidationException e) {
+        return RestResponse.ResponseBuilder.<MessageTemplateValidationResult>create(UNPROCESSABLE_CONTENT)
+                .entity(e.getResult())
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .build();
+    }
+
+    @ServerExceptionMapper
+    public RestResponse<String> mapRejection(MessageTemplateRejectedException e) {
+        return RestResponse.ResponseBuilder.<String>create(RestResponse.Status.SERVICE_UNAVAILABLE, e.getMessage())
+                .header(HttpHeaders.RETRY_AFTER, Math.max(1, e.getRetryAfter().toSeconds()))
+                .build();
+    }
 }
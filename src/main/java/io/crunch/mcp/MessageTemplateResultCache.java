@@ -0,0 +1,64 @@
+package io.crunch.mcp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Caches generated templates in front of the {@link MessageTemplateAssistant}.
+ * <p>
+ * Admins regenerate the same description frequently and the frontend retries after timeouts; a cache hit
+ * answers such requests from memory instead of running the model again. Entries are keyed by
+ * {@link MessageTemplateRequestKey}, which contains the corpus hash, so a corpus change never serves
+ * a template generated from outdated parameters or references. Failed generations are not cached.
+ *
+ * <h2>Configuration and Metrics</h2>
+ * The underlying Caffeine cache is named {@code template-generation}; size and TTL based eviction and the
+ * {@code cache.gets} / {@code cache.evictions} metrics are configured through the
+ * {@code quarkus.cache.caffeine."template-generation".*} properties. Bypassed lookups are counted
+ * by {@code template.generation.cache.bypass}.
+ *
+ * @see MessageTemplateGenerator
+ */
+@ApplicationScoped
+public class MessageTemplateResultCache {
+
+    private final Cache cache;
+
+    private final Counter bypasses;
+
+    public MessageTemplateResultCache(@CacheName("template-generation") Cache cache, MeterRegistry registry) {
+        this.cache = cache;
+        this.bypasses = Counter.builder("template.generation.cache.bypass")
+                .description("Generations that skipped the result cache on request")
+                .register(registry);
+    }
+
+    /**
+     * Returns the cached template for the request or runs the generation and caches its result.
+     *
+     * @param key        the key of the generation request
+     * @param bypass     {@code true} to skip the lookup; the fresh result still replaces the cached one
+     * @param generation the generation to run on a cache miss or bypass
+     * @return the generated or cached template
+     */
+    public String get(MessageTemplateRequestKey key, boolean bypass, Supplier<String> generation) {
+        if (bypass) {
+            bypasses.increment();
+            var result = generation.get();
+            cache.as(CaffeineCache.class).put(key, CompletableFuture.completedFuture(result));
+            return result;
+        }
+        return cache.<MessageTemplateRequestKey, String>get(key, k -> {
+            Log.debug("Template cache miss, running generation");
+            return generation.get();
+        }).await().indefinitely();
+    }
+}
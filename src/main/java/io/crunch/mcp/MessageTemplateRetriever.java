@@ -0,0 +1,132 @@
+package io.crunch.mcp;
+
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+
+/**
+ * Selects the reference templates that are handed to the AI model.
+ * <p>
+ * Returning the whole corpus makes the prompt grow with every template that is added. When retrieval is
+ * enabled, the retriever ranks the templates of the current {@link MessageTemplateCorpusSnapshot} against
+ * the request description with a local {@link MessageTemplateIndex BM25 index} and returns only the most
+ * relevant ones. The index follows the corpus version and re-tokenizes only templates that changed.
+ * <p>
+ * Each retrieval logs how many templates were returned and an estimate of the prompt tokens saved
+ * compared to sending the full corpus (about four characters per token).
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * app.retrieval.top-k=5
+ * }</pre>
+ * A value of {@code 0} disables retrieval and always returns the whole corpus.
+ *
+ * @see MessageTemplateTool
+ * @see MessageTemplateContextProvider
+ */
+@ApplicationScoped
+public class MessageTemplateRetriever {
+
+    static final int CHARACTERS_PER_TOKEN = 4;
+
+    private final MessageTemplateCorpus corpus;
+
+    private final MessageTemplateIndex index = new MessageTemplateIndex();
+
+    private final int topK;
+
+    private volatile long indexedVersion;
+
+    public MessageTemplateRetriever(MessageTemplateCorpus corpus,
+                                    @ConfigProperty(name = "app.retrieval.top-k", defaultValue = "0") int topK) {
+        this.corpus = corpus;
+        this.topK = topK;
+    }
+
+    /**
+     * Returns the templates relevant to the given description.
+     *
+     * @param description the description of the requested template; {@code null} or blank returns all templates
+     * @param limit       the maximum number of templates; {@code null} uses the configured {@code top-k}
+     * @return the most relevant templates, or all templates if retrieval is disabled or nothing matches
+     */
+    public List<MessageTemplate> find(String description, Integer limit) {
+        return find(corpus.snapshot(), description, limit);
+    }
+
+    /**
+     * Returns the templates of the given snapshot that are relevant to the description.
+     *
+     * @param snapshot    the corpus snapshot to select from
+     * @param description the description of the requested template; {@code null} or blank returns all templates
+     * @param limit       the maximum number of templates; {@code null} uses the configured {@code top-k}
+     * @return the most relevant templates, or all templates if retrieval is disabled or nothing matches
+     */
+    public List<MessageTemplate> find(MessageTemplateCorpusSnapshot snapshot, String description, Integer limit) {
+        if (!ranked(snapshot, description, limit)) {
+            return snapshot.templates();
+        }
+        var templates = search(snapshot, description, limit != null ? limit : topK);
+        if (templates.isEmpty()) {
+            Log.infof("No template matches the description, returning all %d templates", snapshot.templates().size());
+            return snapshot.templates();
+        }
+        Log.infof("Retrieved %d of %d templates, about %d prompt tokens saved",
+                templates.size(), snapshot.templates().size(), estimateTokens(snapshot.templates()) - estimateTokens(templates));
+        return templates;
+    }
+
+    /**
+     * Tells whether {@link #find(MessageTemplateCorpusSnapshot, String, Integer)} can answer without indexing,
+     * either because it does not rank the templates or because the index already follows the snapshot.
+     *
+     * @param snapshot    the corpus snapshot to select from
+     * @param description the description of the requested template
+     * @param limit       the maximum number of templates; {@code null} uses the configured {@code top-k}
+     * @return {@code true} if the selection costs no re-indexing
+     */
+    public boolean ready(MessageTemplateCorpusSnapshot snapshot, String description, Integer limit) {
+        return !ranked(snapshot, description, limit) || indexedVersion == snapshot.version();
+    }
+
+    /**
+     * Tells whether retrieval is enabled by configuration.
+     *
+     * @return {@code true} if {@code app.retrieval.top-k} is greater than zero
+     */
+    public boolean enabled() {
+        return topK > 0;
+    }
+
+    private boolean ranked(MessageTemplateCorpusSnapshot snapshot, String description, Integer limit) {
+        var k = limit != null ? limit : topK;
+        return k > 0 && description != null && !description.isBlank() && k < snapshot.templates().size();
+    }
+
+    private List<MessageTemplate> search(MessageTemplateCorpusSnapshot snapshot, String description, int limit) {
+        if (indexedVersion != snapshot.version()) {
+            synchronized (index) {
+                if (indexedVersion != snapshot.version()) {
+                    var indexed = index.update(snapshot.templates());
+                    indexedVersion = snapshot.version();
+                    Log.infof("Indexed %d changed templates for corpus version %d", indexed, snapshot.version());
+                }
+            }
+        }
+        return index.search(description, limit);
+    }
+
+    static long estimateTokens(List<MessageTemplate> templates) {
+        long characters = 0;
+        for (var template : templates) {
+            characters += length(template.name()) + length(template.description()) + length(template.content());
+        }
+        return characters / CHARACTERS_PER_TOKEN;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
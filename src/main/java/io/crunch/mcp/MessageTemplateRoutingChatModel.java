@@ -0,0 +1,74 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.quarkus.arc.Arc;
+
+import java.util.Set;
+
+/**
+ * Chat model of the {@link MessageTemplateAssistant} that sends every call to the model chosen by the
+ * {@link MessageTemplateModelRouter}, and repeats a call that timed out on the small model on the large one.
+ * <p>
+ * The delegates are the chat model beans themselves, so their listeners see every call exactly once.
+ *
+ * @see MessageTemplateRoutingStreamingChatModel
+ */
+public class MessageTemplateRoutingChatModel implements ChatModel {
+
+    private final MessageTemplateModelRouter router;
+
+    MessageTemplateRoutingChatModel(MessageTemplateModelRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        var model = router.route(request);
+        try {
+            return chat(model, request);
+        } catch (RuntimeException e) {
+            var fallback = router.fallback(model, e);
+            if (fallback == null) {
+                throw e;
+            }
+            return chat(fallback, request);
+        }
+    }
+
+    private ChatResponse chat(MessageTemplateModel model, ChatRequest request) {
+        var start = router.started(model);
+        try {
+            var response = router.chatModel(model).chat(request);
+            router.finished(model, start, null);
+            return response;
+        } catch (RuntimeException e) {
+            router.finished(model, start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return router.chatModel(MessageTemplateModel.LARGE).supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return router.chatModel(MessageTemplateModel.LARGE).provider();
+    }
+
+    /**
+     * Supplies the routing chat model to {@code @RegisterAiService}.
+     */
+    public static class Supplier implements java.util.function.Supplier<ChatModel> {
+
+        @Override
+        public ChatModel get() {
+            return new MessageTemplateRoutingChatModel(Arc.container().instance(MessageTemplateModelRouter.class).get());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.CompleteToolCall;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.PartialThinking;
+import dev.langchain4j.model.chat.response.PartialThinkingContext;
+import dev.langchain4j.model.chat.response.PartialToolCall;
+import dev.langchain4j.model.chat.response.PartialToolCallContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.quarkus.arc.Arc;
+
+import java.util.Set;
+
+/**
+ * Streaming counterpart of {@link MessageTemplateRoutingChatModel}.
+ * <p>
+ * A call that timed out on the small model is repeated on the large one only if nothing has been passed to the handler
+ * yet, so the caller never receives output of two models.
+ */
+public class MessageTemplateRoutingStreamingChatModel implements StreamingChatModel {
+
+    private final MessageTemplateModelRouter router;
+
+    MessageTemplateRoutingStreamingChatModel(MessageTemplateModelRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public void chat(ChatRequest request, StreamingChatResponseHandler handler) {
+        chat(router.route(request), request, handler, true);
+    }
+
+    private void chat(MessageTemplateModel model, ChatRequest request, StreamingChatResponseHandler handler, boolean mayFallBack) {
+        var start = router.started(model);
+        try {
+            router.streamingChatModel(model).chat(request, new RoutedHandler(handler) {
+
+                @Override
+                public void onCompleteResponse(ChatResponse response) {
+                    router.finished(model, start, null);
+                    handler.onCompleteResponse(response);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    router.finished(model, start, error);
+                    var fallback = mayFallBack && !emitted ? router.fallback(model, error) : null;
+                    if (fallback == null) {
+                        handler.onError(error);
+                    } else {
+                        chat(fallback, request, handler, false);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            router.finished(model, start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return router.streamingChatModel(MessageTemplateModel.LARGE).supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return router.streamingChatModel(MessageTemplateModel.LARGE).provider();
+    }
+
+    /**
+     * Forwards all callbacks and remembers whether any output has been passed on.
+     */
+    private abstract static class RoutedHandler implements StreamingChatResponseHandler {
+
+        private final StreamingChatResponseHandler handler;
+
+        volatile boolean emitted;
+
+        RoutedHandler(StreamingChatResponseHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            emitted = true;
+            handler.onPartialResponse(partialResponse);
+        }
+
+        @Override
+        public void onPartialResponse(PartialResponse partialResponse, PartialResponseContext context) {
+            emitted = true;
+            handler.onPartialResponse(partialResponse, context);
+        }
+
+        @Override
+        public void onPartialThinking(PartialThinking partialThinking) {
+            emitted = true;
+            handler.onPartialThinking(partialThinking);
+        }
+
+        @Override
+        public void onPartialThinking(PartialThinking partialThinking, PartialThinkingContext context) {
+            emitted = true;
+            handler.onPartialThinking(partialThinking, context);
+        }
+
+        @Override
+        public void onPartialToolCall(PartialToolCall partialToolCall) {
+            emitted = true;
+            handler.onPartialToolCall(partialToolCall);
+        }
+
+        @Override
+        public void onPartialToolCall(PartialToolCall partialToolCall, PartialToolCallContext context) {
+            emitted = true;
+            handler.onPartialToolCall(partialToolCall, context);
+        }
+
+        @Override
+        public void onCompleteToolCall(CompleteToolCall completeToolCall) {
+            emitted = true;
+            handler.onCompleteToolCall(completeToolCall);
+        }
+    }
+
+    /**
+     * Supplies the routing streaming chat model to {@code @RegisterAiService}.
+     */
+    public static class Supplier implements java.util.function.Supplier<StreamingChatModel> {
+
+        @Override
+        public StreamingChatModel get() {
+            return new MessageTemplateRoutingStreamingChatModel(Arc.container().instance(MessageTemplateModelRouter.class).get());
+        }
+    }
+}
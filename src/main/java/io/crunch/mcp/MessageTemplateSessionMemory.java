@@ -0,0 +1,177 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chat memory of a template generation or refinement session, bounded by an estimated token budget.
+ * <p>
+ * The first exchange of a session carries the expensive part of the conversation: the system message,
+ * the original request and the tool results or the prefetched context. This part is the session context;
+ * it is kept as long as the session lives, so follow-up requests do not have to fetch the corpus again.
+ * When the messages exceed the budget, everything after the context is reduced, oldest first:
+ * <ol>
+ *   <li>earlier template versions are replaced by a short note; the latest answer is always kept;</li>
+ *   <li>complete refinement turns, i.e. an instruction and its answer, are evicted.</li>
+ * </ol>
+ * Tokens are estimated at about four characters per token.
+ *
+ * @see MessageTemplateChatMemoryProvider
+ */
+public final class MessageTemplateSessionMemory implements ChatMemory {
+
+    static final AiMessage OMITTED_ANSWER = AiMessage.from("(earlier template version omitted)");
+
+    private final Object id;
+
+    private final long tokenBudget;
+
+    private final Runnable onClear;
+
+    private final List<ChatMessage> messages = new ArrayList<>();
+
+    private volatile Instant lastAccess = Instant.now();
+
+    MessageTemplateSessionMemory(Object id, long tokenBudget, Runnable onClear) {
+        this.id = id;
+        this.tokenBudget = tokenBudget;
+        this.onClear = onClear;
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public synchronized void add(ChatMessage message) {
+        lastAccess = Instant.now();
+        if (message instanceof SystemMessage) {
+            if (!messages.isEmpty() && messages.getFirst() instanceof SystemMessage) {
+                messages.set(0, message);
+            } else {
+                messages.addFirst(message);
+            }
+        } else {
+            messages.add(message);
+        }
+        compact();
+    }
+
+    @Override
+    public synchronized List<ChatMessage> messages() {
+        lastAccess = Instant.now();
+        return List.copyOf(messages);
+    }
+
+    @Override
+    public synchronized void clear() {
+        messages.clear();
+        onClear.run();
+    }
+
+    /**
+     * Tells whether the session has produced a template that can be refined.
+     *
+     * @return {@code true} if the memory holds at least one answer of the model
+     */
+    public synchronized boolean hasAnswer() {
+        return lastAnswer() >= 0;
+    }
+
+    /**
+     * Returns the estimated size of the memory.
+     *
+     * @return the estimated number of tokens of all messages
+     */
+    public synchronized long tokens() {
+        return messages.stream().mapToLong(MessageTemplateSessionMemory::tokens).sum();
+    }
+
+    Instant lastAccess() {
+        return lastAccess;
+    }
+
+    private void compact() {
+        var tokens = tokens();
+        if (tokens <= tokenBudget) {
+            return;
+        }
+        var contextEnd = contextEnd();
+        var lastAnswer = lastAnswer();
+        for (int i = contextEnd; i < messages.size() && tokens > tokenBudget; i++) {
+            if (i != lastAnswer && isAnswer(messages.get(i)) && messages.get(i) != OMITTED_ANSWER) {
+                tokens -= tokens(messages.get(i)) - tokens(OMITTED_ANSWER);
+                messages.set(i, OMITTED_ANSWER);
+            }
+        }
+        while (tokens > tokenBudget) {
+            var start = nextUserMessage(contextEnd);
+            var end = start < 0 ? -1 : nextUserMessage(start + 1);
+            if (start < 0 || end < 0 || (lastAnswer >= start && lastAnswer < end)) {
+                return;
+            }
+            var turn = messages.subList(start, end);
+            tokens -= turn.stream().mapToLong(MessageTemplateSessionMemory::tokens).sum();
+            turn.clear();
+            lastAnswer -= end - start;
+        }
+    }
+
+    /**
+     * Returns the index of the first answer; everything before it is the session context.
+     */
+    private int contextEnd() {
+        for (int i = 0; i < messages.size(); i++) {
+            if (isAnswer(messages.get(i))) {
+                return i;
+            }
+        }
+        return messages.size();
+    }
+
+    private int lastAnswer() {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (isAnswer(messages.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int nextUserMessage(int from) {
+        for (int i = from; i < messages.size(); i++) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isAnswer(ChatMessage message) {
+        return message instanceof AiMessage ai && !ai.hasToolExecutionRequests() && ai.text() != null;
+    }
+
+    static long tokens(ChatMessage message) {
+        long characters = switch (message) {
+            case SystemMessage system -> system.text().length();
+            case UserMessage user -> user.contents().stream()
+                    .mapToLong(content -> content instanceof TextContent text ? text.text().length() : 0)
+                    .sum();
+            case AiMessage ai -> (ai.text() == null ? 0 : ai.text().length())
+                    + ai.toolExecutionRequests().stream().mapToLong(request -> request.arguments().length()).sum();
+            case ToolExecutionResultMessage result -> result.text().length();
+            default -> 0;
+        };
+        return characters / MessageTemplateRetriever.CHARACTERS_PER_TOKEN;
+    }
+}
@@ -0,0 +1,125 @@
+package io.crunch.mcp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical generation requests into a single model run.
+ * <p>
+ * The first caller for a {@link MessageTemplateRequestKey} becomes the leader and starts the generation on a virtual
+ * thread; callers arriving with the same key while it is in flight attach to it and receive the same result
+ * or the same failure. Every caller, the leader included, waits at most its own
+ * {@link MessageTemplateGenerationOptions#timeout() timeout} and gets a {@link MessageTemplateTimeoutException}
+ * afterwards, without affecting the running generation or the other callers. A generation whose callers all gave up
+ * still runs to the end and is bound by the model timeout, so its result can still be cached.
+ * <p>
+ * The generation runs in its own request context, because it may outlive the request of the leader.
+ * <p>
+ * This works independently of the {@link MessageTemplateResultCache}: requests are collapsed even when
+ * the cache is bypassed. Collapsed requests are counted by {@code template.generation.coalesced}.
+ *
+ * @see MessageTemplateGenerator
+ */
+@ApplicationScoped
+public class MessageTemplateSingleFlight {
+
+    private final ConcurrentMap<MessageTemplateRequestKey, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter coalesced;
+
+    public MessageTemplateSingleFlight(MeterRegistry registry) {
+        this.coalesced = Counter.builder("template.generation.coalesced")
+                .description("Generation requests that attached to an identical in-flight generation")
+                .register(registry);
+    }
+
+    /**
+     * Runs the generation, or waits for the identical generation that is already in flight.
+     *
+     * @param key        the key of the generation request
+     * @param timeout    the maximum time to wait for the generation, whether started by this or by another caller
+     * @param generation the generation to run if no identical generation is in flight
+     * @return the generated template
+     * @throws MessageTemplateTimeoutException if the generation did not finish within {@code timeout}
+     */
+    public String run(MessageTemplateRequestKey key, Duration timeout, Supplier<String> generation) {
+        var flight = new CompletableFuture<String>();
+        var existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            Log.infof("Attached to an in-flight generation, %d generations in flight", inFlight.size());
+            return await(existing, timeout);
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    flight.complete(execute(generation));
+                } catch (Throwable e) {
+                    flight.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, flight);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, flight);
+            throw new MessageTemplateException("Generation could not be started", e);
+        }
+        return await(flight, timeout);
+    }
+
+    /**
+     * Runs a generation on the flight thread; intercepted, so the generation has a request context of its own.
+     */
+    @ActivateRequestContext
+    String execute(Supplier<String> generation) {
+        return generation.get();
+    }
+
+    /**
+     * Returns the number of distinct generations currently in flight.
+     *
+     * @return the in-flight generation count
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private static String await(CompletableFuture<String> flight, Duration timeout) {
+        try {
+            return flight.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new MessageTemplateTimeoutException("Generation did not complete within " + timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageTemplateTimeoutException("Interrupted while waiting for the generation");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new MessageTemplateException("Generation failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,367 @@
+package io.crunch.mcp;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.impl.MimeMapping;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Vert.x handler that serves classpath assets from memory, precompressed and with validators.
+ * <p>
+ * An asset is read and compressed once, on its first request, and then kept for the lifetime of the application;
+ * later requests are answered from memory without touching the class path or compressing again.
+ *
+ * <h2>Content Negotiation</h2>
+ * Compressible assets (text, scripts, style sheets, JSON, SVG) are stored in up to three representations:
+ * identity, gzip and brotli. The representation is chosen from {@code Accept-Encoding}, preferring brotli over gzip,
+ * and a compressed representation is only kept when it is smaller than the original. Brotli is skipped when its
+ * native library cannot be loaded on the current platform.
+ *
+ * <h2>Validation and Caching</h2>
+ * Every representation carries a strong {@code ETag} derived from the SHA-256 of the original content, suffixed with
+ * the content coding, so intermediaries never mix up encodings. A request whose {@code If-None-Match} matches the
+ * selected representation is answered with {@code 304 Not Modified}. Assets whose file name contains a build hash
+ * (such as {@code main-2ZKV3NXC.js}) are served as {@code immutable} for a year; everything else is
+ * {@code no-cache}, so browsers revalidate it with the ETag.
+ *
+ * <h2>Metrics</h2>
+ * Each response is reported to {@link MessageTemplateMetrics#recordStaticAsset(String, String, long, long)}: whether
+ * it was a {@code not-modified} answer, a memory {@code hit} or a {@code miss} that had to load the asset, and how many
+ * body bytes were sent compared to the uncompressed size.
+ *
+ * @see MessageTemplateStaticResources
+ */
+final class MessageTemplateStaticAssets implements Handler<RoutingContext> {
+
+    static final String IDENTITY = "identity";
+
+    static final String GZIP = "gzip";
+
+    static final String BROTLI = "br";
+
+    private static final Pattern HASHED = Pattern.compile("[-.]([0-9A-Z]{8}|[0-9a-f]{16,})\\.[A-Za-z0-9]+$");
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final String REVALIDATE = "no-cache";
+
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "application/javascript", "application/json", "application/manifest+json", "application/xml",
+            "application/wasm", "image/svg+xml", "image/x-icon");
+
+    private final String mountPath;
+
+    private final String classpathRoot;
+
+    private final String indexPage;
+
+    private final MessageTemplateMetrics metrics;
+
+    private final boolean brotli;
+
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+
+    /**
+     * @param mountPath     the request path prefix that is stripped before the asset is looked up, ending with {@code /}
+     * @param classpathRoot the class path folder the assets are read from, ending with {@code /}
+     * @param indexPage     the asset served for directory requests, {@code null} to pass them on
+     * @param metrics       receives the outcome and size of each response
+     */
+    MessageTemplateStaticAssets(String mountPath, String classpathRoot, String indexPage, MessageTemplateMetrics metrics) {
+        this.mountPath = mountPath;
+        this.classpathRoot = classpathRoot;
+        this.indexPage = indexPage;
+        this.metrics = metrics;
+        this.brotli = Brotli4jLoader.isAvailable();
+    }
+
+    @Override
+    public void handle(RoutingContext context) {
+        var name = assetName(context.normalizedPath());
+        if (name == null) {
+            context.next();
+            return;
+        }
+        var cached = assets.get(name);
+        if (cached != null) {
+            send(context, cached, "hit");
+            return;
+        }
+        // Reading and compressing may take a while for large bundles; keep it off the event loop.
+        context.vertx().executeBlocking(() -> load(name), false).onComplete(result -> {
+            if (result.failed()) {
+                context.fail(result.cause());
+            } else if (result.result().isEmpty()) {
+                context.next();
+            } else {
+                send(context, result.result().get(), "miss");
+            }
+        });
+    }
+
+    private String assetName(String path) {
+        if (path == null || !path.startsWith(mountPath)) {
+            return null;
+        }
+        var name = path.substring(mountPath.length());
+        if (name.isEmpty() || name.endsWith("/")) {
+            if (indexPage == null) {
+                return null;
+            }
+            name += indexPage;
+        } else if (name.lastIndexOf('.') <= name.lastIndexOf('/')) {
+            // Without a file extension the request targets an API or a client-side route, not an asset.
+            return null;
+        }
+        return name.contains("..") || name.contains("\\") ? null : name;
+    }
+
+    private Optional<Asset> load(String name) {
+        var cached = assets.get(name);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        var classLoader = Thread.currentThread().getContextClassLoader();
+        try (var stream = classLoader.getResourceAsStream(classpathRoot + name)) {
+            if (stream == null) {
+                return Optional.empty();
+            }
+            var asset = Asset.of(name, stream.readAllBytes(), brotli);
+            var previous = assets.putIfAbsent(name, asset);
+            return Optional.of(previous != null ? previous : asset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read static asset " + name, e);
+        }
+    }
+
+    private void send(RoutingContext context, Asset asset, String result) {
+        var request = context.request();
+        var response = context.response();
+        var representation = asset.select(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        var headers = response.headers();
+        headers.set(HttpHeaders.ETAG, representation.etag());
+        headers.set(HttpHeaders.CACHE_CONTROL, asset.immutable() ? IMMUTABLE : REVALIDATE);
+        if (asset.compressible()) {
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (notModified(request.getHeader(HttpHeaders.IF_NONE_MATCH), representation.etag())) {
+            metrics.recordStaticAsset("not-modified", representation.encoding(), 0, 0);
+            response.setStatusCode(304).end();
+            return;
+        }
+        headers.set(HttpHeaders.CONTENT_TYPE, asset.contentType());
+        headers.set(HttpHeaders.CONTENT_LENGTH, String.valueOf(representation.content().length));
+        if (!IDENTITY.equals(representation.encoding())) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, representation.encoding());
+        }
+        if (request.method() == HttpMethod.HEAD) {
+            metrics.recordStaticAsset(result, representation.encoding(), 0, 0);
+            response.end();
+            return;
+        }
+        metrics.recordStaticAsset(result, representation.encoding(), representation.content().length, asset.size());
+        response.end(Buffer.buffer(representation.content()));
+    }
+
+    /**
+     * Checks an {@code If-None-Match} header against the ETag of the selected representation.
+     * <p>
+     * Uses the weak comparison required for {@code If-None-Match}, so a client that echoes a tag with a {@code W/}
+     * prefix still revalidates.
+     *
+     * @param ifNoneMatch the header value, may be {@code null}
+     * @param etag        the strong ETag of the representation
+     * @return {@code true} if a {@code 304} should be sent
+     */
+    static boolean notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
+    /**
+     * Picks the content coding for an {@code Accept-Encoding} header.
+     *
+     * @param acceptEncoding the header value, may be {@code null}
+     * @param brotli         whether a brotli representation exists
+     * @param gzip           whether a gzip representation exists
+     * @return {@value #BROTLI}, {@value #GZIP} or {@value #IDENTITY}
+     */
+    static String encoding(String acceptEncoding, boolean brotli, boolean gzip) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        Double brotliQuality = null;
+        Double gzipQuality = null;
+        double wildcardQuality = 0;
+        for (var entry : acceptEncoding.split(",")) {
+            var parts = entry.split(";");
+            var quality = quality(parts);
+            switch (parts[0].trim().toLowerCase()) {
+                case BROTLI -> brotliQuality = quality;
+                case GZIP, "x-gzip" -> gzipQuality = quality;
+                case "*" -> wildcardQuality = quality;
+                default -> {
+                }
+            }
+        }
+        double brotliPreference = brotliQuality != null ? brotliQuality : wildcardQuality;
+        double gzipPreference = gzipQuality != null ? gzipQuality : wildcardQuality;
+        if (brotli && brotliPreference > 0 && (brotliPreference >= gzipPreference || !gzip)) {
+            return BROTLI;
+        }
+        return gzip && gzipPreference > 0 ? GZIP : IDENTITY;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            var parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Returns whether the file name carries a build hash, which makes its content immutable.
+     *
+     * @param name the asset name
+     * @return {@code true} for names like {@code main-2ZKV3NXC.js} or {@code main.3f2a1b9c8d7e6f5a.js}
+     */
+    static boolean hashed(String name) {
+        return HASHED.matcher(name).find();
+    }
+
+    /**
+     * One encoded form of an asset.
+     *
+     * @param encoding the content coding
+     * @param etag     the strong ETag of this representation
+     * @param content  the bytes sent on the wire
+     */
+    record Representation(String encoding, String etag, byte[] content) {
+    }
+
+    /**
+     * A loaded asset with its precompressed representations.
+     *
+     * @param contentType the {@code Content-Type} header value
+     * @param immutable   whether the asset name carries a build hash
+     * @param identity    the original content
+     * @param gzip        the gzip representation, {@code null} if not worth keeping
+     * @param brotli      the brotli representation, {@code null} if not worth keeping or unavailable
+     */
+    record Asset(String contentType, boolean immutable, Representation identity, Representation gzip, Representation brotli) {
+
+        static Asset of(String name, byte[] content, boolean brotliAvailable) {
+            var contentType = contentType(name);
+            var etag = etag(content);
+            var identity = new Representation(IDENTITY, "\"" + etag + "\"", content);
+            Representation gzip = null;
+            Representation brotli = null;
+            if (compressible(contentType)) {
+                gzip = smaller(GZIP, etag, gzip(content), content);
+                if (brotliAvailable) {
+                    brotli = smaller(BROTLI, etag, brotli(content), content);
+                }
+            }
+            return new Asset(contentType, hashed(name), identity, gzip, brotli);
+        }
+
+        Representation select(String acceptEncoding) {
+            return switch (encoding(acceptEncoding, brotli != null, gzip != null)) {
+                case BROTLI -> brotli;
+                case GZIP -> gzip;
+                default -> identity;
+            };
+        }
+
+        boolean compressible() {
+            return compressible(contentType);
+        }
+
+        int size() {
+            return identity.content().length;
+        }
+
+        private static Representation smaller(String encoding, String etag, byte[] compressed, byte[] content) {
+            return compressed.length < content.length
+                    ? new Representation(encoding, "\"" + etag + "-" + encoding + "\"", compressed)
+                    : null;
+        }
+
+        private static String contentType(String name) {
+            var type = MimeMapping.getMimeTypeForFilename(name);
+            if (type == null) {
+                return "application/octet-stream";
+            }
+            return type.startsWith("text/") || type.equals("application/javascript") || type.equals("application/json")
+                    ? type + ";charset=UTF-8"
+                    : type;
+        }
+
+        private static boolean compressible(String contentType) {
+            var type = contentType.split(";")[0];
+            return type.startsWith("text/") || COMPRESSIBLE_TYPES.contains(type);
+        }
+
+        private static String etag(byte[] content) {
+            try {
+                var digest = MessageDigest.getInstance("SHA-256").digest(content);
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static byte[] gzip(byte[] content) {
+            var buffer = new ByteArrayOutputStream(content.length / 2 + 64);
+            try (var stream = new GZIPOutputStream(buffer) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                stream.write(content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return buffer.toByteArray();
+        }
+
+        private static byte[] brotli(byte[] content) {
+            try {
+                return Encoder.compress(content, new Encoder.Parameters().setQuality(11));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -1,38 +1,46 @@
 package io.crunch.mcp;
 
 import io.quarkus.runtime.StartupEvent;
+import io.quarkus.vertx.http.runtime.RouteConstants;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.handler.StaticHandler;
 import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /**
- * Registers a static resources route for the application.
+ * Registers the static resources routes for the application.
  *
  * <p>
  * This CDI-managed type contributes a listener method that is invoked during
  * Quarkus startup. When the application starts it installs a Vert.x route that
  * serves files from the local {@code static/} directory at the HTTP path
- * {@code /static/*}.
+ * {@code /static/*}, and a route in front of the Quinoa-built Angular bundle.
  * </p>
  *
  * <p>Behavior</p>
  * <ul>
  *   <li>A call to {@code installRoute} is made by the CDI container on the
  *       {@code StartupEvent} lifecycle event.</li>
- *   <li>The route uses Vert.x {@link StaticHandler} created with the static
- *       filesystem path {@code static/} and matches requests under
- *       {@code /static/*}.</li>
- *   <li>The class itself is stateless and side-effecting only by registering
- *       the route on the provided {@link Router} instance.</li>
+ *   <li>With {@code app.static.precompress} enabled, both routes are served by
+ *       {@link MessageTemplateStaticAssets}: assets are compressed once with gzip
+ *       and brotli, negotiated via {@code Accept-Encoding}, validated with strong
+ *       ETags ({@code 304 Not Modified}) and hashed bundle files are cached as
+ *       {@code immutable}.</li>
+ *   <li>The bundle route runs before the default static resources handler and
+ *       reads the files Quinoa packaged under {@code META-INF/resources}; requests
+ *       it cannot answer, such as client-side routes, fall through to Quinoa.</li>
+ *   <li>With {@code app.static.precompress} disabled (the dev profile, where
+ *       Quinoa proxies the Angular dev server and files change while editing),
+ *       {@code /static/*} is served by a plain Vert.x {@link StaticHandler}
+ *       without caching and the bundle is left to Quinoa.</li>
  * </ul>
  *
  * <p>Configuration &amp; Extension</p>
  * <p>
- * The static directory and request path are hard-coded in this implementation.
- * To change the served path or file location, update the call to
- * {@link StaticHandler#create(String)} or the route path. For more advanced
- * behavior (caching, index pages, security), configure or replace the
- * {@link StaticHandler} instance.
+ * The static directory and request paths are hard-coded in this implementation.
+ * Response counts, bytes sent and cache hits are reported through
+ * {@link MessageTemplateMetrics}.
  * </p>
  *
  * @see io.vertx.ext.web.Router
@@ -41,25 +49,49 @@ import jakarta.enterprise.event.Observes;
  */
 public class MessageTemplateStaticResources {
 
+	private final MessageTemplateMetrics metrics;
+
+	private final boolean precompress;
+
+	public MessageTemplateStaticResources(MessageTemplateMetrics metrics,
+										  @ConfigProperty(name = "app.static.precompress", defaultValue = "true") boolean precompress) {
+		this.metrics = metrics;
+		this.precompress = precompress;
+	}
+
 	/**
-	 * Installs the static resource route on the supplied {@link Router}.
+	 * Installs the static resource routes on the supplied {@link Router}.
 	 *
 	 * <p>
 	 * This method observes the Quarkus {@link StartupEvent} and is executed once
 	 * during application startup. It registers a handler that serves files from
-	 * the local {@code static/} directory under the HTTP path {@code /static/*}.
+	 * the local {@code static/} directory under the HTTP path {@code /static/*}
+	 * and, when precompression is enabled, a handler for the Angular bundle.
 	 * </p>
 	 *
 	 * @param startupEvent the startup event emitted by the Quarkus runtime;
 	 *                     observed to trigger route installation
-	 * @param router the Vert.x router to which the static handler will be added
-	 * @implNote the route path and directory are hard-coded; change the
-	 *           arguments to {@link StaticHandler#create(String)} and
+	 * @param router the Vert.x router to which the static handlers will be added
+	 * @implNote the route paths and directories are hard-coded; change the
+	 *           arguments to {@link MessageTemplateStaticAssets} and
 	 *           {@code router.route().path(...)} to modify behavior
 	 */
 	void installRoute(@Observes StartupEvent startupEvent, Router router) {
+		if (!precompress) {
+			router.route()
+					.path("/static/*")
+					.handler(StaticHandler.create("static/").setCachingEnabled(false));
+			return;
+		}
 		router.route()
 				.path("/static/*")
-				.handler(StaticHandler.create("static/"));
+				.method(HttpMethod.GET)
+				.method(HttpMethod.HEAD)
+				.handler(new MessageTemplateStaticAssets("/static/", "static/", null, metrics));
+		router.route()
+				.order(RouteConstants.ROUTE_ORDER_BEFORE_DEFAULT)
+				.method(HttpMethod.GET)
+				.method(HttpMethod.HEAD)
+				.handler(new MessageTemplateStaticAssets("/", "META-INF/resources/", "index.html", metrics));
 	}
 }
@@ -0,0 +1,23 @@
+package io.crunch.mcp;
+
+/**
+ * Defines where the HTML content of the message templates is stored.
+ *
+ * <ul>
+ *   <li>{@link #FILE}: every template is a file in the templates folder, named after its
+ *       {@link MessageTemplateDescriptor descriptor}; the corpus load reads one file per template and the
+ *       folder is watched for changes.</li>
+ *   <li>{@link #DATABASE}: the content is stored in the {@code CONTENT} column of {@code TEMPLATE_DESCRIPTOR};
+ *       the corpus is loaded with a single query and all application nodes sharing the database see the same
+ *       corpus, without a shared volume. Descriptors without content are filled from the templates folder on
+ *       startup, which migrates an existing file installation.</li>
+ * </ul>
+ *
+ * Configured with {@code app.corpus.storage}; the default is {@code file}.
+ *
+ * @see MessageTemplateCorpus
+ */
+public enum MessageTemplateStorage {
+    FILE,
+    DATABASE
+}
@@ -0,0 +1,66 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.quarkiverse.langchain4j.runtime.aiservice.ChatEvent;
+
+import java.util.Optional;
+
+/**
+ * A server-sent event of the streaming template generation endpoint.
+ *
+ * <ul>
+ *   <li>{@link Type#TOOL_CALL}: the model requested a tool; {@code data} holds the tool name.</li>
+ *   <li>{@link Type#TOOL_RESULT}: a tool finished; {@code data} holds the tool name.</li>
+ *   <li>{@link Type#TOKEN}: the next chunk of the generated template.</li>
+ *   <li>{@link Type#COMPLETED}: the generation finished; {@code data} holds the complete template and
+ *       {@code validation} the result of its validation.</li>
+ *   <li>{@link Type#RETRY}: the output so far violates the formatting rules; the generation was stopped and restarts
+ *       with a corrective instruction. {@code validation} holds the violations; tokens received so far must be discarded.</li>
+ *   <li>{@link Type#INVALID}: the output still violates the rules after all retries; the stream ends without a template.</li>
+ * </ul>
+ *
+ * @param type       the event type
+ * @param data       the payload of the event, see {@link Type}
+ * @param validation the validation result of {@link Type#COMPLETED}, {@link Type#RETRY} and {@link Type#INVALID} events
+ * @see MessageTemplateResource#streamTemplate(MessageTemplateRequest, String)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record MessageTemplateStreamEvent(Type type, String data, MessageTemplateValidationResult validation) {
+
+    public enum Type {
+        TOOL_CALL,
+        TOOL_RESULT,
+        TOKEN,
+        COMPLETED,
+        RETRY,
+        INVALID
+    }
+
+    public MessageTemplateStreamEvent(Type type, String data) {
+        this(type, data, null);
+    }
+
+    MessageTemplateStreamEvent withValidation(MessageTemplateValidationResult validation) {
+        return new MessageTemplateStreamEvent(type, data, validation);
+    }
+
+    /**
+     * Converts a LangChain4j chat event into a stream event.
+     * <p>
+     * The AI service also emits events the client does not need, such as intermediate responses of tool turns,
+     * fetched content and the accumulated response. They map to an empty result, so a stream can drop them with
+     * {@code transformToIterable} before they reach Mutiny as {@code null} items.
+     *
+     * @param event the chat event emitted by the AI service
+     * @return the matching stream event, or an empty {@link Optional} if the event is not relevant for the client
+     */
+    static Optional<MessageTemplateStreamEvent> of(ChatEvent event) {
+        return Optional.ofNullable(switch (event) {
+            case ChatEvent.PartialResponseEvent partial -> new MessageTemplateStreamEvent(Type.TOKEN, partial.getChunk());
+            case ChatEvent.BeforeToolExecutionEvent toolCall -> new MessageTemplateStreamEvent(Type.TOOL_CALL, toolCall.getRequest().name());
+            case ChatEvent.ToolExecutedEvent toolResult -> new MessageTemplateStreamEvent(Type.TOOL_RESULT, toolResult.getExecution().request().name());
+            case ChatEvent.ChatCompletedEvent completed -> new MessageTemplateStreamEvent(Type.COMPLETED, completed.getChatResponse().aiMessage().text());
+            default -> null;
+        });
+    }
+}
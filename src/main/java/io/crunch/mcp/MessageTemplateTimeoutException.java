@@ -0,0 +1,15 @@
+package io.crunch.mcp;
+
+/**
+ * Thrown when a caller stops waiting for a generation before it completed.
+ * <p>
+ * The exception is translated into a {@code 504 Gateway Timeout} response (see {@link MessageTemplateResource}).
+ *
+ * @see MessageTemplateSingleFlight
+ */
+public class MessageTemplateTimeoutException extends MessageTemplateException {
+
+    public MessageTemplateTimeoutException(String message) {
+        super(message);
+    }
+}
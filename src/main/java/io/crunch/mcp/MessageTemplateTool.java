@@ -1,14 +1,19 @@
 package io.crunch.mcp;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkiverse.mcp.server.TextContent;
 import io.quarkiverse.mcp.server.Tool;
+import io.quarkiverse.mcp.server.ToolArg;
+import io.quarkiverse.mcp.server.ToolResponse;
 import io.quarkus.logging.Log;
-import org.eclipse.microprofile.config.inject.ConfigProperty;
+import io.smallrye.mutiny.Uni;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * The {@code MessageTemplateTool} provides a set of MCP (Model Context Protocol) tools
@@ -24,19 +29,35 @@ import java.util.List;
  * which automatically registers each method annotated with {@link Tool} as an available callable tool
  * for the AI model at runtime.
  *
- * <h2>Configuration</h2>
- * The path to the message templates directory must be defined in the Quarkus configuration:
- * <pre>{@code
- * app.resources.location=resources/templates
- * }</pre>
- * The path is resolved relative to the application root and normalized to an absolute location.
+ * <h2>Data Source</h2>
+ * Both tools read from the {@link MessageTemplateCorpus}, which keeps a read-only snapshot of the
+ * parameters and templates in memory and refreshes it when the underlying files or entities change.
+ *
+ * <h2>Threading</h2>
+ * The MCP tools return a {@link Uni}, so the MCP server invokes them on the I/O thread instead of dispatching
+ * them to a worker thread. They take the snapshot from {@link MessageTemplateCorpus#snapshotAsync(java.util.function.Predicate)}:
+ * while the snapshot is fresh and the retrieval index and compact fragments already follow it, the answer is built
+ * right away, without any I/O. A reload after an invalidation, the re-indexing and fragment detection for a new
+ * snapshot, and the rendering of a captured exchange run on a virtual thread instead, so the I/O thread never
+ * waits for them. The in-process tools call the blocking variants on the generating thread.
  *
  * <h2>Usage in AI Services</h2>
  * <ul>
  *   <li>{@code list_template_parameters}: returns all valid placeholders (e.g., [[customer_id]], [[bank_name]]).</li>
- *   <li>{@code get_message_templates}: returns a list of all available message templates along with their names and descriptions.</li>
+ *   <li>{@code get_message_templates}: returns the available message templates along with their names and descriptions;
+ *       optionally only the ones most relevant to a given description.</li>
  * </ul>
  *
+ * <h2>Payload Format</h2>
+ * With {@code app.tool.payload-format=full} every parameter and template is returned as a separate JSON object.
+ * With {@code compact}, the parameters are returned as one {@code name -> description} object and the blocks shared
+ * by the templates are sent once (see {@link MessageTemplateCompactor}); the bytes and estimated prompt tokens saved
+ * are logged and recorded as {@code template.tool.payload.saved}.
+ *
+ * <h2>Capture</h2>
+ * Sampled MCP calls are kept in the {@link MessageTemplateCapture} buffer with their arguments and the returned
+ * content, so the MCP traffic log can stay off in production.
+ *
  * The AI model can use these tool results to:
  * <ul>
  *   <li>Determine which placeholders are allowed and their meaning.</li>
@@ -47,28 +68,70 @@ import java.util.List;
  * @see MessageTemplate
  * @see MessageTemplateParameter
  * @see MessageTemplateDescriptor
+ * @see MessageTemplateCorpus
+ * @see MessageTemplateInProcessTool
  */
 public class MessageTemplateTool {
 
+    static final String LIST_TEMPLATE_PARAMETERS = "list_template_parameters";
+
+    static final String LIST_TEMPLATE_PARAMETERS_DESCRIPTION = "List available message template parameters.";
+
+    static final String GET_MESSAGE_TEMPLATES = "get_message_templates";
+
+    static final String GET_MESSAGE_TEMPLATES_DESCRIPTION =
+            "Fetch message templates; when a description is given, only the templates most relevant to it are returned. "
+                    + "Only if the result has a fragments field, a {{id}} in a template content stands for the block listed under that id there";
+
+    static final String DESCRIPTION_ARG_DESCRIPTION = "Description of the template to be generated, used to rank the reference templates";
+
+    static final String LIMIT_ARG_DESCRIPTION = "Maximum number of templates to return";
+
     /**
-     * Absolute path to the folder where message templates are stored.
-     * <p>
-     * This folder is configured using the {@code app.resources.location} configuration key.
-     * The path is resolved relative to the application's working directory and normalized
-     * to ensure consistent file resolution across environments.
+     * The in-memory corpus that backs the tools.
+     */
+    private final MessageTemplateCorpus corpus;
+
+    /**
+     * Ranks the templates of the corpus against a description.
+     */
+    private final MessageTemplateRetriever retriever;
+
+    /**
+     * Builds the compact payloads if the compact format is enabled.
      */
-    private final Path templatesFolder;
+    private final MessageTemplateCompactor compactor;
+
+    /**
+     * Records the duration and payload size of every tool call.
+     */
+    private final MessageTemplateMetrics metrics;
+
+    /**
+     * Keeps sampled MCP exchanges for diagnosis.
+     */
+    private final MessageTemplateCapture capture;
+
+    private final ObjectMapper objectMapper;
 
     /**
      * Constructs a new {@code MessageTemplateTool} instance.
      *
-     * @param resourcesFolder the base folder path for message templates, injected from configuration
+     * @param corpus       the template corpus holding the current parameters and templates
+     * @param retriever    the retriever selecting the templates relevant to a description
+     * @param compactor    the compactor building the compact payload format
+     * @param metrics      the metrics recording tool durations and payload sizes
+     * @param capture      the buffer keeping sampled MCP exchanges
+     * @param objectMapper the mapper serializing the tool results
      */
-    public MessageTemplateTool(@ConfigProperty(name = "app.resources.location") Path resourcesFolder) {
-        this.templatesFolder = Paths.get(".")
-                .resolve(resourcesFolder)
-                .resolve("templates")
-                .toAbsolutePath().normalize();
+    public MessageTemplateTool(MessageTemplateCorpus corpus, MessageTemplateRetriever retriever, MessageTemplateCompactor compactor,
+                               MessageTemplateMetrics metrics, MessageTemplateCapture capture, ObjectMapper objectMapper) {
+        this.corpus = corpus;
+        this.retriever = retriever;
+        this.compactor = compactor;
+        this.metrics = metrics;
+        this.capture = capture;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -81,70 +144,186 @@ public class MessageTemplateTool {
      * The method is typically called by the AI model before generating or updating templates,
      * ensuring that only valid placeholders are used.
      *
-     * @return a list of {@link MessageTemplateParameter} objects representing all available placeholders
+     * @return one content per {@link MessageTemplateParameter}, or a single content in the compact format
      */
     @Tool(
-            name = "list_template_parameters",
-            description = "List available message template parameters."
+            name = LIST_TEMPLATE_PARAMETERS,
+            description = LIST_TEMPLATE_PARAMETERS_DESCRIPTION
     )
-    public List<MessageTemplateParameter> getTemplateParameters() {
-        Log.info("Getting template parameters");
-        return MessageTemplateParameter.listAll();
+    public Uni<ToolResponse> listTemplateParameters() {
+        var start = System.nanoTime();
+        var exchange = captureRequest(LIST_TEMPLATE_PARAMETERS, Map.of());
+        return corpus.snapshotAsync(snapshot -> exchange == MessageTemplateCapture.NOT_SAMPLED && compactor.ready(snapshot))
+                .map(snapshot -> respond(exchange, start, templateParameters(snapshot)));
+    }
+
+    /**
+     * Returns the template parameters in the configured payload format, serialized as the model receives them.
+     *
+     * @return the JSON list of {@link MessageTemplateParameter}s, or their descriptions by name in the compact format
+     */
+    public String getTemplateParameters() {
+        var start = System.nanoTime();
+        return serialized(start, templateParameters(corpus.snapshot()));
+    }
+
+    private Payload templateParameters(MessageTemplateCorpusSnapshot snapshot) {
+        Log.infof("Getting template parameters from corpus version %d", snapshot.version());
+        var parameters = snapshot.parameters();
+        if (!compactor.enabled()) {
+            return new Payload(LIST_TEMPLATE_PARAMETERS, parameters, 0);
+        }
+        return new Payload(LIST_TEMPLATE_PARAMETERS, compactor.parameters(parameters), compactor.parametersSize(parameters));
     }
 
     /**
-     * MCP tool that retrieves all message templates from the configured directory.
+     * MCP tool that retrieves the message templates.
      * <p>
      * Each template includes its name, description, and full HTML content.
      * This allows the AI model to analyze existing templates for tone, structure,
      * formatting, and common block conventions.
      * <p>
-     * The templates are discovered via {@link MessageTemplateDescriptor} entries
-     * stored in the database, and their corresponding content files are loaded from disk.
+     * The templates are served from the current {@link MessageTemplateCorpusSnapshot};
+     * no database query or file read happens unless the corpus has been invalidated.
+     * If a {@code description} is given and retrieval is enabled, only the most relevant
+     * templates are returned (see {@link MessageTemplateRetriever}).
      *
-     * @return a list of {@link MessageTemplate} objects representing all message templates
+     * @param description optional description of the template to be generated
+     * @param limit       optional maximum number of templates; defaults to {@code app.retrieval.top-k}
+     * @return one content per {@link MessageTemplate}, or a single {@link MessageTemplateCompactPayload} in the compact format
      */
     @Tool(
-            name = "get_message_templates",
-            description = "Fetch all message templates"
+            name = GET_MESSAGE_TEMPLATES,
+            description = GET_MESSAGE_TEMPLATES_DESCRIPTION
     )
-    public List<MessageTemplate> getMessageTemplates() {
-        Log.infof("Loading all templates from folder: %s", templatesFolder);
-        return MessageTemplateDescriptor.<MessageTemplateDescriptor>streamAll()
-                .map(this::getMessageTemplate)
-                .toList();
+    public Uni<ToolResponse> listMessageTemplates(
+            @ToolArg(description = DESCRIPTION_ARG_DESCRIPTION, required = false) String description,
+            @ToolArg(description = LIMIT_ARG_DESCRIPTION, required = false) Integer limit) {
+        var start = System.nanoTime();
+        var arguments = new LinkedHashMap<String, Object>();
+        arguments.put("description", description);
+        arguments.put("limit", limit);
+        var exchange = captureRequest(GET_MESSAGE_TEMPLATES, arguments);
+        return corpus.snapshotAsync(snapshot -> exchange == MessageTemplateCapture.NOT_SAMPLED
+                        && retriever.ready(snapshot, description, limit) && compactor.ready(snapshot))
+                .map(snapshot -> respond(exchange, start, messageTemplates(snapshot, description, limit)));
     }
 
     /**
-     * Converts a {@link MessageTemplateDescriptor} into a {@link MessageTemplate}
-     * by reading the corresponding template file from the configured folder.
+     * Returns the selected message templates in the configured payload format, serialized as the model receives them.
      *
-     * @param descriptor the template descriptor containing name and description
-     * @return a fully populated {@link MessageTemplate} with HTML content
+     * @param description optional description of the template to be generated
+     * @param limit       optional maximum number of templates; defaults to {@code app.retrieval.top-k}
+     * @return the JSON list of {@link MessageTemplate}s, or a {@link MessageTemplateCompactPayload} in the compact format
      */
-    private MessageTemplate getMessageTemplate(MessageTemplateDescriptor descriptor) {
-        return new MessageTemplate(
-                descriptor.getName(),
-                descriptor.getDescription(),
-                loadTemplate(descriptor.getName())
-        );
+    public String getMessageTemplates(String description, Integer limit) {
+        var start = System.nanoTime();
+        return serialized(start, messageTemplates(corpus.snapshot(), description, limit));
+    }
+
+    private Payload messageTemplates(MessageTemplateCorpusSnapshot snapshot, String description, Integer limit) {
+        Log.infof("Getting templates for description: %s", description);
+        var templates = retriever.find(snapshot, description, limit);
+        if (!compactor.enabled()) {
+            return new Payload(GET_MESSAGE_TEMPLATES, templates, 0);
+        }
+        return new Payload(GET_MESSAGE_TEMPLATES, compactor.templates(templates), compactor.templatesSize(templates));
     }
 
     /**
-     * Loads the content of a message template file as a string.
-     * <p>
-     * The file is located inside the configured {@code templatesFolder}.
-     * If the file cannot be read, an exception is thrown.
+     * A tool result before serialization.
      *
-     * @param name the file name of the template to load
-     * @return the HTML content of the template file
-     * @throws MessageTemplateException if the file cannot be found or read
+     * @param tool     the tool name
+     * @param value    the result in the configured payload format
+     * @param fullSize the size of the result in the full format if {@code value} is compact, {@code 0} otherwise
+     */
+    private record Payload(String tool, Object value, long fullSize) {
+    }
+
+    private ToolResponse respond(long exchange, long start, Payload payload) {
+        var response = response(payload.value());
+        long size = 0;
+        for (var content : response.content()) {
+            if (content instanceof TextContent text) {
+                size += utf8Length(text.text());
+            }
+        }
+        record(start, payload, size);
+        return captureResponse(exchange, payload.tool(), start, response);
+    }
+
+    private String serialized(long start, Payload payload) {
+        var json = json(payload.value());
+        record(start, payload, utf8Length(json));
+        return json;
+    }
+
+    /**
+     * Records the tool metrics with the size of the result the caller already serialized, so measuring costs no
+     * second serialization.
      */
-    private String loadTemplate(String name) {
+    private void record(long start, Payload payload, long size) {
+        metrics.recordTool(payload.tool(), start, size);
+        if (payload.fullSize() > 0) {
+            recordCompaction(payload.tool(), payload.fullSize(), size);
+        }
+    }
+
+    private void recordCompaction(String tool, long fullSize, long compactSize) {
+        metrics.recordCompaction(tool, fullSize, compactSize);
+        Log.infof("Compact %s payload: %d instead of %d bytes, about %d prompt tokens saved",
+                tool, compactSize, fullSize, (fullSize - compactSize) / MessageTemplateRetriever.CHARACTERS_PER_TOKEN);
+    }
+
+    private long captureRequest(String tool, Map<String, Object> arguments) {
+        var exchange = capture.sample();
+        capture.record(exchange, MessageTemplateCaptureType.MCP_REQUEST, tool, 0, () -> json(arguments));
+        return exchange;
+    }
+
+    private ToolResponse captureResponse(long exchange, String tool, long start, ToolResponse response) {
+        capture.record(exchange, MessageTemplateCaptureType.MCP_RESPONSE, tool,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                () -> response.content().stream()
+                        .map(content -> content instanceof TextContent text ? text.text() : content.toString())
+                        .collect(Collectors.joining("\n")));
+        return response;
+    }
+
+    /**
+     * Encodes a payload the same way the MCP server encodes a plain return value:
+     * one JSON text content per list element, or a single one for any other object.
+     */
+    private ToolResponse response(Object payload) {
+        if (payload instanceof List<?> list) {
+            return ToolResponse.success(list.stream().map(this::text).toList());
+        }
+        return ToolResponse.success(text(payload));
+    }
+
+    private static long utf8Length(String text) {
+        long length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (c >= 0x800) {
+                // three bytes, or four for a surrogate pair, which is two chars
+                length += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private TextContent text(Object value) {
+        return new TextContent(json(value));
+    }
+
+    private String json(Object value) {
         try {
-            return Files.readString(Paths.get(templatesFolder.toString(), name));
-        } catch (IOException e) {
-            throw new MessageTemplateException("Error reading template file: " + name, e);
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new MessageTemplateException("Error serializing tool result", e);
         }
     }
 }
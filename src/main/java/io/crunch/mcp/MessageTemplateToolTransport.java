@@ -0,0 +1,22 @@
+package io.crunch.mcp;
+
+/**
+ * Defines how the AI service reaches the message template tools in
+ * {@link MessageTemplateGenerationMode#TOOLS tools} mode.
+ *
+ * <ul>
+ *   <li>{@link #IN_PROCESS}: tool calls are dispatched directly to the {@link MessageTemplateTool} methods
+ *       inside the JVM through {@link MessageTemplateInProcessTool}; no HTTP, SSE or JSON-RPC round trip is involved.</li>
+ *   <li>{@link #HTTP}: tool calls go through the {@code template-generator} MCP client and the HTTP/SSE endpoint
+ *       of the MCP server, exactly as an external MCP client would see them.</li>
+ * </ul>
+ *
+ * Configured with {@code app.mcp.transport}; the default is {@code in-process}. The MCP HTTP endpoint
+ * stays available for external clients in both cases.
+ *
+ * @see MessageTemplateGenerator
+ */
+public enum MessageTemplateToolTransport {
+    IN_PROCESS,
+    HTTP
+}
@@ -0,0 +1,21 @@
+package io.crunch.mcp;
+
+/**
+ * Defines how the model updates a template when the request carries existing content.
+ *
+ * <ul>
+ *   <li>{@link #FULL}: the model returns the complete updated template.</li>
+ *   <li>{@link #PATCH}: the model returns a {@link MessageTemplatePatch} with the edits to the supplied content,
+ *       which the server applies and validates; if the patch does not apply, the template is regenerated in full.
+ *       A small change then costs a few dozen output tokens instead of the whole template.</li>
+ * </ul>
+ *
+ * Configured with {@code app.generation.update-mode}; the default is {@code full}. Streamed generations and
+ * refinement sessions always return the full template.
+ *
+ * @see MessageTemplateGenerator
+ */
+public enum MessageTemplateUpdateMode {
+    FULL,
+    PATCH
+}
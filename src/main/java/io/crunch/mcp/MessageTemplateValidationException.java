@@ -0,0 +1,23 @@
+package io.crunch.mcp;
+
+/**
+ * Thrown when a generated template still violates the formatting rules after all corrective retries.
+ * <p>
+ * The exception is translated into a {@code 422 Unprocessable Content} response carrying the
+ * {@link MessageTemplateValidationResult} (see {@link MessageTemplateResource}).
+ *
+ * @see MessageTemplateValidator
+ */
+public class MessageTemplateValidationException extends MessageTemplateException {
+
+    private final MessageTemplateValidationResult result;
+
+    public MessageTemplateValidationException(MessageTemplateValidationResult result) {
+        super("Generated template violates the formatting rules:\n" + result.describe());
+        this.result = result;
+    }
+
+    public MessageTemplateValidationResult getResult() {
+        return result;
+    }
+}
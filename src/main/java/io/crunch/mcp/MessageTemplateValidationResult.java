@@ -0,0 +1,38 @@
+package io.crunch.mcp;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of validating a generated template.
+ *
+ * @param valid      {@code true} if no rule is violated
+ * @param violations the distinct violations in order of first occurrence
+ * @see MessageTemplateValidator
+ */
+public record MessageTemplateValidationResult(boolean valid, List<MessageTemplateViolation> violations) {
+
+    public MessageTemplateValidationResult {
+        violations = List.copyOf(violations);
+    }
+
+    static MessageTemplateValidationResult of(List<MessageTemplateViolation> violations) {
+        return new MessageTemplateValidationResult(violations.isEmpty(), violations);
+    }
+
+    /**
+     * Describes the violations as a bullet list, as fed back to the model for a corrective retry.
+     *
+     * @return one line per violation
+     */
+    public String describe() {
+        return violations.stream()
+                .map(violation -> "- " + switch (violation.type()) {
+                    case UNKNOWN_PLACEHOLDER -> "unknown placeholder " + violation.value() + "; use only the provided placeholders";
+                    case MALFORMED_PLACEHOLDER -> "malformed placeholder " + violation.value() + "; placeholders have the format [[placeholder_name]]";
+                    case UNTERMINATED_PLACEHOLDER -> "unterminated placeholder " + violation.value();
+                    case DISALLOWED_TAG -> "disallowed HTML tag " + violation.value();
+                })
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,214 @@
+package io.crunch.mcp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Incremental, single-pass validation of model output.
+ * <p>
+ * Output is fed chunk by chunk through {@link #accept(CharSequence)}; placeholders and tags may be split
+ * across chunks. Every character is inspected exactly once by a small state machine, so a violation is
+ * detected as soon as the offending placeholder or tag name is complete, which allows the caller to abort
+ * the generation at that point. An instance validates one output and is not thread-safe.
+ *
+ * @see MessageTemplateValidator#start()
+ */
+public final class MessageTemplateValidationScan {
+
+    /**
+     * Longest placeholder name considered; longer bracketed text is treated as plain text.
+     */
+    static final int MAX_PLACEHOLDER_LENGTH = 64;
+
+    private enum State {
+        TEXT,
+        OPEN_BRACKET,
+        PLACEHOLDER,
+        CLOSE_BRACKET,
+        TAG_START,
+        TAG_NAME,
+        TAG_ATTRIBUTES
+    }
+
+    private final Set<String> placeholders;
+
+    private final Set<String> allowedTags;
+
+    private final List<MessageTemplateViolation> violations = new ArrayList<>();
+
+    private final Set<String> reported = new HashSet<>();
+
+    private final StringBuilder name = new StringBuilder();
+
+    private State state = State.TEXT;
+
+    private int position;
+
+    private int tokenStart;
+
+    MessageTemplateValidationScan(Set<String> placeholders, Set<String> allowedTags) {
+        this(placeholders, allowedTags, List.of());
+    }
+
+    /**
+     * Creates a scan that does not report the given violations, because the output is an edit of a template that
+     * already had them.
+     */
+    MessageTemplateValidationScan(Set<String> placeholders, Set<String> allowedTags, List<MessageTemplateViolation> tolerated) {
+        this.placeholders = placeholders;
+        this.allowedTags = allowedTags;
+        tolerated.forEach(violation -> reported.add(violation.type() + violation.value()));
+    }
+
+    /**
+     * Validates the next chunk of output.
+     *
+     * @param chunk the next characters of the output
+     * @return {@code true} if no violation has been found so far
+     */
+    public boolean accept(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++, position++) {
+            step(chunk.charAt(i));
+        }
+        return violations.isEmpty();
+    }
+
+    /**
+     * Tells whether a violation has been found so far.
+     *
+     * @return {@code true} if the output is already known to be invalid
+     */
+    public boolean hasViolations() {
+        return !violations.isEmpty();
+    }
+
+    /**
+     * Returns the violations found so far, without the checks that only apply at the end of the output.
+     *
+     * @return the intermediate validation result
+     */
+    public MessageTemplateValidationResult result() {
+        return MessageTemplateValidationResult.of(violations);
+    }
+
+    /**
+     * Completes the validation at the end of the output.
+     *
+     * @return the validation result
+     */
+    public MessageTemplateValidationResult finish() {
+        if (state == State.PLACEHOLDER || state == State.CLOSE_BRACKET) {
+            report(MessageTemplateViolation.Type.UNTERMINATED_PLACEHOLDER, "[[" + name);
+        }
+        state = State.TEXT;
+        return MessageTemplateValidationResult.of(violations);
+    }
+
+    private void step(char c) {
+        switch (state) {
+            case TEXT -> {
+                if (c == '[') {
+                    state = State.OPEN_BRACKET;
+                    tokenStart = position;
+                } else if (c == '<') {
+                    state = State.TAG_START;
+                    tokenStart = position;
+                }
+            }
+            case OPEN_BRACKET -> {
+                if (c == '[') {
+                    state = State.PLACEHOLDER;
+                    name.setLength(0);
+                } else {
+                    state = State.TEXT;
+                    step(c);
+                }
+            }
+            case PLACEHOLDER -> {
+                if (c == ']') {
+                    state = State.CLOSE_BRACKET;
+                } else if (c == '[' && name.isEmpty()) {
+                    tokenStart = position - 1;
+                } else if (c == '<' || c == '\n' || name.length() >= MAX_PLACEHOLDER_LENGTH) {
+                    state = State.TEXT;
+                    step(c);
+                } else {
+                    name.append(c);
+                }
+            }
+            case CLOSE_BRACKET -> {
+                if (c == ']') {
+                    checkPlaceholder();
+                    state = State.TEXT;
+                } else {
+                    name.append(']');
+                    state = State.PLACEHOLDER;
+                    step(c);
+                }
+            }
+            case TAG_START -> {
+                if (c == '/' || c == '!') {
+                    name.setLength(0);
+                    name.append(c == '!' ? "!" : "");
+                    state = State.TAG_NAME;
+                } else if (Character.isLetter(c)) {
+                    name.setLength(0);
+                    name.append(Character.toLowerCase(c));
+                    state = State.TAG_NAME;
+                } else {
+                    state = State.TEXT;
+                    step(c);
+                }
+            }
+            case TAG_NAME -> {
+                if (Character.isLetterOrDigit(c) || c == '-') {
+                    name.append(Character.toLowerCase(c));
+                } else if (name.isEmpty()) {
+                    state = State.TEXT;
+                    step(c);
+                } else {
+                    checkTag();
+                    state = c == '>' ? State.TEXT : State.TAG_ATTRIBUTES;
+                }
+            }
+            case TAG_ATTRIBUTES -> {
+                if (c == '>') {
+                    state = State.TEXT;
+                }
+            }
+        }
+    }
+
+    private void checkPlaceholder() {
+        if (name.isEmpty() || !isName(name)) {
+            report(MessageTemplateViolation.Type.MALFORMED_PLACEHOLDER, "[[" + name + "]]");
+        } else if (!placeholders.contains(name.toString())) {
+            report(MessageTemplateViolation.Type.UNKNOWN_PLACEHOLDER, "[[" + name + "]]");
+        }
+    }
+
+    private void checkTag() {
+        var tag = name.toString();
+        if (!allowedTags.contains(tag)) {
+            report(MessageTemplateViolation.Type.DISALLOWED_TAG, "<" + tag + ">");
+        }
+    }
+
+    private void report(MessageTemplateViolation.Type type, String value) {
+        if (reported.add(type + value)) {
+            violations.add(new MessageTemplateViolation(type, value, tokenStart));
+        }
+    }
+
+    private static boolean isName(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,128 @@
+package io.crunch.mcp;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Checks generated templates against the formatting rules of the system prompt.
+ * <p>
+ * A template is valid if every {@code [[placeholder]]} names a {@link MessageTemplateParameter} of the
+ * current corpus and every HTML tag is in the allowed list. Validation runs incrementally over the model
+ * output (see {@link MessageTemplateValidationScan}), so the {@link MessageTemplateGenerator} can stop a
+ * streamed generation at the first violation instead of waiting for the full answer.
+ * <p>
+ * An invalid template is not returned to the caller as is: the generator sends the violations back to the
+ * model in the same conversation and asks for a corrected template, up to {@code max-retries} times.
+ * Edits to an existing template are checked with {@link #validateChange(String, String)} or {@link #start(String)},
+ * which only report the violations the edits introduced, so markup the caller supplied is preserved.
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * app.validation.enabled=true
+ * app.validation.max-retries=1
+ * app.validation.allowed-tags=p,b,strong,i,u,a,ul,ol,li,br,h2,h3
+ * }</pre>
+ *
+ * @see MessageTemplateValidationResult
+ */
+@ApplicationScoped
+public class MessageTemplateValidator {
+
+    private final MessageTemplateCorpus corpus;
+
+    private final boolean enabled;
+
+    private final int maxRetries;
+
+    private final Set<String> allowedTags;
+
+    private volatile Placeholders placeholders;
+
+    public MessageTemplateValidator(MessageTemplateCorpus corpus,
+                                    @ConfigProperty(name = "app.validation.enabled", defaultValue = "true") boolean enabled,
+                                    @ConfigProperty(name = "app.validation.max-retries", defaultValue = "1") int maxRetries,
+                                    @ConfigProperty(name = "app.validation.allowed-tags", defaultValue = "p,b,strong,i,u,a,ul,ol,li,br,h2,h3") Set<String> allowedTags) {
+        this.corpus = corpus;
+        this.enabled = enabled;
+        this.maxRetries = maxRetries;
+        this.allowedTags = allowedTags.stream().map(String::toLowerCase).collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Starts the incremental validation of a new output against the current corpus.
+     *
+     * @return a fresh scan
+     */
+    public MessageTemplateValidationScan start() {
+        return new MessageTemplateValidationScan(placeholders(), allowedTags);
+    }
+
+    /**
+     * Starts the incremental validation of an edit of the given template; like
+     * {@link #validateChange(String, String)}, the scan reports only the violations the edit introduces.
+     *
+     * @param original the template before the edit; {@code null} or blank starts a plain scan
+     * @return a fresh scan
+     */
+    public MessageTemplateValidationScan start(String original) {
+        if (original == null || original.isBlank()) {
+            return start();
+        }
+        return new MessageTemplateValidationScan(placeholders(), allowedTags, validate(original).violations());
+    }
+
+    /**
+     * Validates a complete template.
+     *
+     * @param html the template content
+     * @return the validation result
+     */
+    public MessageTemplateValidationResult validate(String html) {
+        var scan = start();
+        scan.accept(html == null ? "" : html);
+        return scan.finish();
+    }
+
+    /**
+     * Validates an edited template and reports only the violations the edits introduced.
+     * <p>
+     * A violation counts as introduced if the original has no violation of the same type and value. Violations
+     * the original already had, such as a tag removed from the allowed list after the template was written, are not reported, because the
+     * edits did not cause them.
+     *
+     * @param original the template before the edits
+     * @param changed  the template after the edits
+     * @return the validation result of the introduced violations
+     */
+    public MessageTemplateValidationResult validateChange(String original, String changed) {
+        var scan = start(original);
+        scan.accept(changed == null ? "" : changed);
+        return scan.finish();
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public int maxRetries() {
+        return maxRetries;
+    }
+
+    private Set<String> placeholders() {
+        var snapshot = corpus.snapshot();
+        var current = placeholders;
+        if (current == null || current.version() != snapshot.version()) {
+            current = new Placeholders(snapshot.version(), snapshot.parameters().stream()
+                    .map(MessageTemplateParameter::getName)
+                    .collect(Collectors.toUnmodifiableSet()));
+            placeholders = current;
+        }
+        return current.names();
+    }
+
+    private record Placeholders(long version, Set<String> names) {
+    }
+}
@@ -0,0 +1,26 @@
+package io.crunch.mcp;
+
+/**
+ * A rule violation found in a generated template.
+ *
+ * <ul>
+ *   <li>{@link Type#UNKNOWN_PLACEHOLDER}: a well-formed placeholder that is not a {@link MessageTemplateParameter}.</li>
+ *   <li>{@link Type#MALFORMED_PLACEHOLDER}: a {@code [[...]]} reference whose name is not of the form {@code placeholder_name}.</li>
+ *   <li>{@link Type#UNTERMINATED_PLACEHOLDER}: the output ends inside a placeholder.</li>
+ *   <li>{@link Type#DISALLOWED_TAG}: an HTML tag that is not in the allowed list.</li>
+ * </ul>
+ *
+ * @param type     the kind of violation
+ * @param value    the offending placeholder or tag, e.g. {@code [[customer_full_name]]} or {@code <strong>}
+ * @param position the character offset of the first occurrence in the output
+ * @see MessageTemplateValidator
+ */
+public record MessageTemplateViolation(Type type, String value, int position) {
+
+    public enum Type {
+        UNKNOWN_PLACEHOLDER,
+        MALFORMED_PLACEHOLDER,
+        UNTERMINATED_PLACEHOLDER,
+        DISALLOWED_TAG
+    }
+}
@@ -0,0 +1,18 @@
+package io.crunch.mcp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the template content in the database; the content is imported from the template files on startup.
+ */
+public class DatabaseStorageTestProfile extends McpTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        var overrides = new HashMap<>(super.getConfigOverrides());
+        overrides.put("app.corpus.storage", "database");
+        overrides.put("app.corpus.poll-interval", "0s");
+        return overrides;
+    }
+}
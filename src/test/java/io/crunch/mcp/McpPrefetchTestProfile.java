@@ -0,0 +1,14 @@
+package io.crunch.mcp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class McpPrefetchTestProfile extends McpTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        var overrides = new HashMap<>(super.getConfigOverrides());
+        overrides.put("app.generation.mode", "prefetch");
+        return overrides;
+    }
+}
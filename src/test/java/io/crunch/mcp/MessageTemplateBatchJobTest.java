@@ -0,0 +1,54 @@
+package io.crunch.mcp;
+
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTemplateBatchJobTest {
+
+    private static final MessageTemplateCorpusSnapshot SNAPSHOT =
+            new MessageTemplateCorpusSnapshot(3, "hash", List.of(), List.of(), Instant.now());
+
+    private static final List<MessageTemplateRequest> REQUESTS = List.of(
+            new MessageTemplateRequest(null, "welcome email"),
+            new MessageTemplateRequest(null, "payment reminder"));
+
+    @Test
+    void shouldRecordPartialFailuresAndComplete() {
+        var job = new MessageTemplateBatchJob("job", SNAPSHOT, REQUESTS);
+
+        job.started(0);
+        job.succeeded(0, "<p>Welcome</p>");
+        assertThat(job.state()).isEqualTo(MessageTemplateBatchJob.State.RUNNING);
+
+        job.started(1);
+        job.failed(1, "model unavailable");
+
+        var status = job.status();
+        assertThat(status.state()).isEqualTo(MessageTemplateBatchJob.State.COMPLETED);
+        assertThat(status.corpusVersion()).isEqualTo(3);
+        assertThat(status.succeeded()).isEqualTo(1);
+        assertThat(status.failed()).isEqualTo(1);
+        assertThat(status.items()).extracting(MessageTemplateBatchItem::status)
+                .containsExactly(MessageTemplateBatchItem.Status.SUCCEEDED, MessageTemplateBatchItem.Status.FAILED);
+        assertThat(status.completedAt()).isNotNull();
+    }
+
+    @Test
+    void shouldReplayFinishedItemsAndStreamTheRest() {
+        var job = new MessageTemplateBatchJob("job", SNAPSHOT, REQUESTS);
+        job.succeeded(1, "<p>Pay now</p>");
+
+        var subscriber = job.results().subscribe().withSubscriber(AssertSubscriber.<MessageTemplateBatchItem>create(10));
+        subscriber.assertItems(job.status().items().get(1)).assertNotTerminated();
+
+        job.succeeded(0, "<p>Welcome</p>");
+
+        subscriber.assertCompleted();
+        assertThat(subscriber.getItems()).extracting(MessageTemplateBatchItem::index).containsExactly(1, 0);
+    }
+}
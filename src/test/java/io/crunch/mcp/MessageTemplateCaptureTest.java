@@ -0,0 +1,65 @@
+package io.crunch.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static io.crunch.mcp.MessageTemplateCaptureType.MCP_REQUEST;
+import static io.crunch.mcp.MessageTemplateCaptureType.MCP_RESPONSE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTemplateCaptureTest {
+
+    @Test
+    void shouldKeepOnlyTheMostRecentEntries() {
+        var capture = new MessageTemplateCapture(true, 3, 1.0, 100);
+
+        IntStream.range(0, 5).forEach(i -> capture.record(capture.sample(), MCP_REQUEST, "tool", 0, () -> "call " + i));
+
+        assertThat(capture.entries()).extracting(MessageTemplateCaptureEntry::content)
+                .containsExactly("call 2", "call 3", "call 4");
+        assertThat(capture.recent(null, 2)).extracting(MessageTemplateCaptureEntry::content)
+                .containsExactly("call 4", "call 3");
+    }
+
+    @Test
+    void shouldLinkRequestAndResponseAndFilterByType() {
+        var capture = new MessageTemplateCapture(true, 10, 1.0, 100);
+
+        var exchange = capture.sample();
+        capture.record(exchange, MCP_REQUEST, "get_message_templates", 0, () -> "{\"limit\":5}");
+        capture.record(exchange, MCP_RESPONSE, "get_message_templates", 12, () -> "[]");
+
+        var responses = capture.recent(MCP_RESPONSE, 10);
+        assertThat(responses).hasSize(1);
+        assertThat(responses.getFirst().exchange()).isEqualTo(exchange);
+        assertThat(responses.getFirst().durationMillis()).isEqualTo(12);
+        assertThat(capture.recent(MCP_REQUEST, 10).getFirst().exchange()).isEqualTo(exchange);
+    }
+
+    @Test
+    void shouldCutLongContentAndKeepItsLength() {
+        var capture = new MessageTemplateCapture(true, 10, 1.0, 5);
+
+        capture.record(capture.sample(), MCP_RESPONSE, "tool", 0, () -> "0123456789");
+
+        var entry = capture.entries().getFirst();
+        assertThat(entry.content()).isEqualTo("01234");
+        assertThat(entry.length()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldNotRenderContentOfUnsampledExchanges() {
+        var rendered = new AtomicInteger();
+        var disabled = new MessageTemplateCapture(false, 10, 1.0, 100);
+        var neverSampled = new MessageTemplateCapture(true, 10, 0.0, 100);
+
+        disabled.record(disabled.sample(), MCP_REQUEST, "tool", 0, () -> "call " + rendered.incrementAndGet());
+        neverSampled.record(neverSampled.sample(), MCP_REQUEST, "tool", 0, () -> "call " + rendered.incrementAndGet());
+
+        assertThat(rendered).hasValue(0);
+        assertThat(disabled.entries()).isEmpty();
+        assertThat(neverSampled.entries()).isEmpty();
+    }
+}
@@ -0,0 +1,89 @@
+package io.crunch.mcp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageTemplateConcurrencyLimiterTest {
+
+    @Test
+    void shouldRejectImmediatelyWhenQueueIsFull() {
+        var registry = new SimpleMeterRegistry();
+        var limiter = new MessageTemplateConcurrencyLimiter(registry, 1, 0, Duration.ofSeconds(5), Duration.ofSeconds(30));
+        limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire)
+                .isInstanceOf(MessageTemplateRejectedException.class)
+                .extracting(e -> ((MessageTemplateRejectedException) e).getRetryAfter())
+                .isEqualTo(Duration.ofSeconds(30));
+        assertThat(registry.get("template.generation.rejected").tag("reason", "queue-full").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectWhenWaitTimesOut() {
+        var registry = new SimpleMeterRegistry();
+        var limiter = new MessageTemplateConcurrencyLimiter(registry, 1, 1, Duration.ofMillis(50), Duration.ofSeconds(30));
+        limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire).isInstanceOf(MessageTemplateRejectedException.class);
+        assertThat(limiter.queueDepth()).isZero();
+        assertThat(registry.get("template.generation.rejected").tag("reason", "queue-timeout").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAdmitWaitingRequestWhenSlotIsReleased() throws InterruptedException {
+        var limiter = new MessageTemplateConcurrencyLimiter(new SimpleMeterRegistry(), 1, 1, Duration.ofSeconds(5), Duration.ofSeconds(30));
+        limiter.acquire();
+
+        var waiting = Thread.ofVirtual().start(() -> assertThat(limiter.call(() -> "done")).isEqualTo("done"));
+        while (limiter.queueDepth() == 0) {
+            Thread.sleep(5);
+        }
+        limiter.release();
+        waiting.join(Duration.ofSeconds(5));
+
+        assertThat(waiting.isAlive()).isFalse();
+        assertThat(limiter.queueDepth()).isZero();
+    }
+
+    @Test
+    void shouldTakeSpareSlotsWithoutWaiting() throws InterruptedException {
+        var limiter = new MessageTemplateConcurrencyLimiter(new SimpleMeterRegistry(), 2, 1, Duration.ofSeconds(5), Duration.ofSeconds(30));
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        var waiting = Thread.ofVirtual().start(() -> limiter.call(() -> "done"));
+        while (limiter.queueDepth() == 0) {
+            Thread.sleep(5);
+        }
+        limiter.release();
+        waiting.join(Duration.ofSeconds(5));
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void shouldAdmitBackgroundWorkWithoutQueueLimits() throws InterruptedException {
+        var registry = new SimpleMeterRegistry();
+        var limiter = new MessageTemplateConcurrencyLimiter(registry, 1, 0, Duration.ofMillis(50), Duration.ofSeconds(30));
+        limiter.acquire();
+
+        var background = Thread.ofVirtual().start(() -> assertThat(limiter.callInBackground(() -> "done")).isEqualTo("done"));
+        while (registry.get("template.generation.background.depth").gauge().value() == 0) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(100);
+        assertThat(background.isAlive()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        limiter.release();
+        background.join(Duration.ofSeconds(5));
+
+        assertThat(background.isAlive()).isFalse();
+        assertThat(registry.find("template.generation.rejected").counters())
+                .allSatisfy(counter -> assertThat(counter.count()).isZero());
+    }
+}
@@ -0,0 +1,69 @@
+package io.crunch.mcp;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@QuarkusTest
+@TestProfile(McpTestProfile.class)
+class MessageTemplateCorpusTest {
+
+    @Inject
+    MessageTemplateCorpus corpus;
+
+    @Test
+    void shouldReturnSameSnapshotUntilInvalidated() {
+        var snapshot = corpus.snapshot();
+        assertThat(corpus.snapshot()).isSameAs(snapshot);
+        assertThat(snapshot.templates())
+                .extracting(MessageTemplate::name)
+                .contains("account_activation_reminder", "account_opening_confirmation");
+    }
+
+    @Test
+    void shouldKeepVersionWhenContentIsUnchanged() {
+        var snapshot = corpus.snapshot();
+        corpus.invalidate();
+        assertThat(corpus.snapshot().version()).isEqualTo(snapshot.version());
+        assertThat(corpus.snapshot().hash()).isEqualTo(snapshot.hash());
+    }
+
+    @Test
+    void shouldReloadWhenParameterChanges() {
+        var snapshot = corpus.snapshot();
+        var parameter = new MessageTemplateParameter();
+        parameter.setName("corpus_test_parameter");
+        parameter.setDescription("Parameter created by the corpus test.");
+        QuarkusTransaction.requiringNew().run(parameter::persist);
+        try {
+            var reloaded = corpus.snapshot();
+            assertThat(reloaded.version()).isGreaterThan(snapshot.version());
+            assertThat(reloaded.parameters())
+                    .extracting(MessageTemplateParameter::getName)
+                    .contains("corpus_test_parameter");
+        } finally {
+            QuarkusTransaction.requiringNew().run(() -> MessageTemplateParameter.deleteById(parameter.id));
+        }
+    }
+
+    @Test
+    void shouldRetryReloadAfterFailedLoad() {
+        var snapshot = corpus.snapshot();
+        var descriptor = new MessageTemplateDescriptor();
+        descriptor.setName("corpus_test_missing_file");
+        descriptor.setDescription("Descriptor without a template file.");
+        QuarkusTransaction.requiringNew().run(descriptor::persist);
+        try {
+            assertThatThrownBy(corpus::snapshot).isInstanceOf(MessageTemplateException.class);
+            assertThatThrownBy(corpus::snapshot).isInstanceOf(MessageTemplateException.class);
+        } finally {
+            QuarkusTransaction.requiringNew().run(() -> MessageTemplateDescriptor.deleteById(descriptor.id));
+        }
+        assertThat(corpus.snapshot().hash()).isEqualTo(snapshot.hash());
+    }
+}
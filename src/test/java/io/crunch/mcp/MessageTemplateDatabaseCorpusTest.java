@@ -0,0 +1,55 @@
+package io.crunch.mcp;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+@TestProfile(DatabaseStorageTestProfile.class)
+class MessageTemplateDatabaseCorpusTest {
+
+    @Inject
+    MessageTemplateCorpus corpus;
+
+    @Test
+    void shouldImportTemplateFilesIntoDatabase() throws IOException {
+        var template = corpus.snapshot().templates().stream()
+                .filter(candidate -> candidate.name().equals("account_activation_reminder"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(template.content())
+                .isEqualTo(Files.readString(corpus.templatesFolder().resolve("account_activation_reminder")));
+        assertThat(QuarkusTransaction.requiringNew().call(() -> MessageTemplateDescriptor.count("content is null")))
+                .isZero();
+    }
+
+    @Test
+    void shouldReloadWhenContentChanges() {
+        var snapshot = corpus.snapshot();
+        var original = QuarkusTransaction.requiringNew().call(() -> updateContent(null));
+        try {
+            var reloaded = corpus.snapshot();
+            assertThat(reloaded.version()).isGreaterThan(snapshot.version());
+            assertThat(reloaded.templates())
+                    .filteredOn(template -> template.name().equals("account_activation_reminder"))
+                    .extracting(MessageTemplate::content)
+                    .containsExactly("<p>Changed by the database corpus test.</p>");
+        } finally {
+            QuarkusTransaction.requiringNew().run(() -> updateContent(original));
+        }
+    }
+
+    private static String updateContent(String content) {
+        MessageTemplateDescriptor descriptor = MessageTemplateDescriptor.find("name", "account_activation_reminder").firstResult();
+        var previous = descriptor.getContent();
+        descriptor.setContent(content == null ? "<p>Changed by the database corpus test.</p>" : content);
+        return previous;
+    }
+}
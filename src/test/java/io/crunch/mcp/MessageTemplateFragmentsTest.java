@@ -0,0 +1,76 @@
+package io.crunch.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTemplateFragmentsTest {
+
+    private static final String HEADER = "<p><strong>Customer ID:</strong> [[customer_id]]</p>\n<p><strong>Account Number:</strong> [[account_number]]</p>\n";
+
+    private static final String CLOSING = "<p>Sincerely,</p><p>Your [[bank_name]] Customer Care Team</p>";
+
+    @Test
+    void shouldFactorOutSharedBlocks() {
+        var templates = List.of(
+                new MessageTemplate("first", "First", "<h3>First</h3>\n" + HEADER + "\n<p>First body.</p>\n\n" + CLOSING),
+                new MessageTemplate("second", "Second", "<h3>Second</h3>\n" + HEADER + "\n<p>Second body.</p>\n\n" + CLOSING),
+                new MessageTemplate("third", "Third", "<h3>Third</h3>\n<p>No shared blocks.</p>"));
+
+        var fragments = MessageTemplateFragments.detect(templates, 40, 2);
+
+        assertThat(fragments.fragments()).containsValues(HEADER.strip(), CLOSING);
+        assertThat(fragments.compact(templates.get(0))).isEqualTo("<h3>First</h3>\n{{f1}}\n\n<p>First body.</p>\n\n{{f2}}");
+        assertThat(fragments.compact(templates.get(2))).isEqualTo(templates.get(2).content());
+        assertThat(fragments.referencedBy(List.of(templates.get(1)))).containsOnlyKeys("f1", "f2");
+        assertThat(fragments.referencedBy(List.of(templates.get(2)))).isEmpty();
+    }
+
+    @Test
+    void shouldCompactCorpusLosslessly() throws IOException {
+        var folder = Path.of("src/main/jib/resources/templates");
+        List<MessageTemplate> templates;
+        try (var files = Files.list(folder)) {
+            templates = files.sorted().map(file -> new MessageTemplate(file.getFileName().toString(), null, read(file))).toList();
+        }
+
+        var fragments = MessageTemplateFragments.detect(templates, 40, 2);
+
+        assertThat(fragments.fragments()).isNotEmpty();
+        long original = 0;
+        long compacted = fragments.fragments().values().stream().mapToLong(String::length).sum();
+        for (var template : templates) {
+            var content = fragments.compact(template);
+            assertThat(MessageTemplateFragments.expand(content, fragments.fragments())).isEqualTo(template.content());
+            original += template.content().length();
+            compacted += content.length();
+        }
+        assertThat(compacted).isLessThan(original * 3 / 4);
+    }
+
+    @Test
+    void shouldIgnoreChangedTemplates() {
+        var templates = List.of(
+                new MessageTemplate("first", null, HEADER + "<p>First</p>"),
+                new MessageTemplate("second", null, HEADER + "<p>Second</p>"));
+        var fragments = MessageTemplateFragments.detect(templates, 40, 2);
+
+        var changed = new MessageTemplate("first", null, "<p>Changed</p>");
+
+        assertThat(fragments.compact(changed)).isEqualTo("<p>Changed</p>");
+        assertThat(fragments.referencedBy(List.of(changed))).isEmpty();
+    }
+
+    private static String read(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.crunch.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTemplateIndexTest {
+
+    private static final MessageTemplate LOAN_APPROVAL = new MessageTemplate("loan_approval_notification",
+            "Template to notify the customer that their loan application has been approved.",
+            "<p>Your loan of [[loan_amount]] has been approved.</p>");
+
+    private static final MessageTemplate SECURITY_ALERT = new MessageTemplate("security_alert",
+            "Template to notify the customer about suspicious activity detected on their account.",
+            "<p>Please review the activity at [[security_portal_link]].</p>");
+
+    private static final MessageTemplate PAYMENT_REMINDER = new MessageTemplate("payment_due_reminder",
+            "Template to remind the customer about an upcoming payment and its due date.",
+            "<p>Your payment of [[payment_amount]] is due on [[payment_due_date]].</p>");
+
+    @Test
+    void shouldRankMostRelevantTemplateFirst() {
+        var index = new MessageTemplateIndex();
+        index.update(List.of(LOAN_APPROVAL, SECURITY_ALERT, PAYMENT_REMINDER));
+
+        var result = index.search("Notify the customer that the loan was approved", 2);
+
+        assertThat(result).first().isEqualTo(LOAN_APPROVAL);
+        assertThat(result).hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void shouldReturnNothingWhenNoTermMatches() {
+        var index = new MessageTemplateIndex();
+        index.update(List.of(LOAN_APPROVAL, SECURITY_ALERT));
+
+        assertThat(index.search("quarterly dividend", 3)).isEmpty();
+    }
+
+    @Test
+    void shouldOnlyReindexChangedTemplates() {
+        var index = new MessageTemplateIndex();
+        assertThat(index.update(List.of(LOAN_APPROVAL, SECURITY_ALERT, PAYMENT_REMINDER))).isEqualTo(3);
+
+        var changedAlert = new MessageTemplate(SECURITY_ALERT.name(), SECURITY_ALERT.description(),
+                "<p>We blocked your card after a fraud attempt.</p>");
+        assertThat(index.update(List.of(LOAN_APPROVAL, changedAlert))).isEqualTo(1);
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("fraud card blocked", 1)).containsExactly(changedAlert);
+        assertThat(index.search("payment due", 3)).doesNotContain(PAYMENT_REMINDER);
+    }
+}
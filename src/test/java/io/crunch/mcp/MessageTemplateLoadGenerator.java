@@ -0,0 +1,115 @@
+package io.crunch.mcp;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Closed-loop load generator for the template generation and MCP endpoints.
+ * <p>
+ * {@code concurrency} virtual threads send requests back to back until {@code requests} requests have
+ * been sent; every request gets its own body from {@code bodies}, so neither the result cache nor the
+ * in-flight collapsing answer them. The {@link Report} contains the throughput and latency percentiles
+ * of the successful requests.
+ */
+class MessageTemplateLoadGenerator {
+
+    private final URI uri;
+
+    private final Map<String, String> headers;
+
+    private final int concurrency;
+
+    private final int requests;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    MessageTemplateLoadGenerator(URI uri, int concurrency, int requests) {
+        this(uri, Map.of(), concurrency, requests);
+    }
+
+    MessageTemplateLoadGenerator(URI uri, Map<String, String> headers, int concurrency, int requests) {
+        this.uri = uri;
+        this.headers = headers;
+        this.concurrency = concurrency;
+        this.requests = requests;
+    }
+
+    /**
+     * Runs the load and waits for all requests to finish.
+     *
+     * @param bodies creates the JSON body of the n-th request
+     * @return the measured throughput and latencies
+     */
+    Report run(IntFunction<String> bodies) throws InterruptedException {
+        var latencies = new long[requests];
+        var next = new AtomicInteger();
+        var errors = new AtomicInteger();
+        var start = System.nanoTime();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < concurrency; worker++) {
+                executor.execute(() -> {
+                    for (int index = next.getAndIncrement(); index < requests; index = next.getAndIncrement()) {
+                        latencies[index] = send(bodies.apply(index), errors);
+                    }
+                });
+            }
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        var successful = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        return new Report(requests, errors.get(), elapsed,
+                percentile(successful, 50), percentile(successful, 95), percentile(successful, 99));
+    }
+
+    private long send(String body, AtomicInteger errors) {
+        var builder = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        headers.forEach(builder::header);
+        var request = builder.build();
+        var start = System.nanoTime();
+        try {
+            var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 200) {
+                return System.nanoTime() - start;
+            }
+        } catch (IOException e) {
+            // counted as error below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        errors.incrementAndGet();
+        return -1;
+    }
+
+    private static Duration percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return Duration.ZERO;
+        }
+        var rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return Duration.ofNanos(sorted[Math.max(0, rank - 1)]);
+    }
+
+    record Report(int requests, int errors, Duration elapsed, Duration p50, Duration p95, Duration p99) {
+
+        double throughput() {
+            return (requests - errors) / (elapsed.toNanos() / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d errors in %d ms: %.1f req/s, p50 %d ms, p95 %d ms, p99 %d ms",
+                    requests, errors, elapsed.toMillis(), throughput(), p50.toMillis(), p95.toMillis(), p99.toMillis());
+        }
+    }
+}
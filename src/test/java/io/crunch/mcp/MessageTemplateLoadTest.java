@@ -0,0 +1,48 @@
+package io.crunch.mcp;
+
+import io.quarkus.logging.Log;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives {@code /api} against the {@link StubChatModel}, so the measured latency above the scripted model
+ * time is the overhead of the application (REST, tools, database, chat memory).
+ * <p>
+ * Load and model timing are configurable, for example:
+ * <pre>{@code
+ * mvn test -Pload -Dtest=MessageTemplateLoadTest -Dload.concurrency=32 -Dload.requests=2000 -Dstub.chat-model.latency=500ms
+ * }</pre>
+ * Tagged {@code load}: the default build skips it, the {@code load} profile runs only the load tests.
+ */
+@QuarkusTest
+@Tag("load")
+@TestProfile(StubModelTestProfile.class)
+class MessageTemplateLoadTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 8);
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 80);
+
+    @TestHTTPResource("/api")
+    URI uri;
+
+    @Test
+    void shouldGenerateTemplatesUnderLoad() throws InterruptedException {
+        var generator = new MessageTemplateLoadGenerator(uri, CONCURRENCY, REQUESTS);
+
+        var report = generator.run(index ->
+                "{\"content\":\"\",\"description\":\"Generate reminder template number " + index + ".\"}");
+
+        Log.infof("Load test at concurrency %d: %s", CONCURRENCY, report);
+        assertThat(report.errors()).isZero();
+        assertThat(report.p50()).isGreaterThan(Duration.ZERO);
+    }
+}
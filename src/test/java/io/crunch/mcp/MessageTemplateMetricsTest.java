@@ -0,0 +1,51 @@
+package io.crunch.mcp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTemplateMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final MessageTemplateMetrics metrics = new MessageTemplateMetrics(registry);
+
+    @Test
+    void shouldRecordToolDurationAndPayloadSize() {
+        metrics.recordTool(MessageTemplateTool.GET_MESSAGE_TEMPLATES, System.nanoTime(), 1234);
+
+        assertThat(registry.get("template.tool.duration").tag("tool", "get_message_templates").timer().count()).isEqualTo(1);
+        assertThat(registry.get("template.tool.payload").tag("tool", "get_message_templates").summary().totalAmount())
+                .isEqualTo(1234);
+    }
+
+    @Test
+    void shouldTagGenerationsWithOutcomeAndFailureReason() {
+        var start = System.nanoTime();
+
+        metrics.recordGeneration(MessageTemplateGenerationMode.TOOLS, MessageTemplateToolTransport.IN_PROCESS, start, null);
+        metrics.recordGeneration(MessageTemplateGenerationMode.PREFETCH, MessageTemplateToolTransport.IN_PROCESS, start,
+                new IllegalStateException("model unavailable"));
+        metrics.recordFailure(new MessageTemplateTimeoutException("timed out"));
+
+        assertThat(registry.get("template.generation.duration")
+                .tags("mode", "tools", "transport", "in-process", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(registry.get("template.generation.duration")
+                .tags("mode", "prefetch", "transport", "none", "outcome", "failure").timer().count()).isEqualTo(1);
+        assertThat(registry.get("template.generation.failures").tag("reason", "IllegalStateException").counter().count()).isEqualTo(1);
+        assertThat(registry.get("template.generation.failures").tag("reason", "timeout").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCountTokensOfModelCalls() {
+        metrics.recordModelCall(Duration.ofMillis(250).toNanos(), 1200, 300);
+        metrics.recordModelCall(Duration.ofMillis(150).toNanos(), 800, null);
+
+        assertThat(registry.get("template.llm.duration").timer().count()).isEqualTo(2);
+        assertThat(registry.get("template.llm.tokens").tag("type", "prompt").counter().count()).isEqualTo(2000);
+        assertThat(registry.get("template.llm.tokens").tag("type", "completion").counter().count()).isEqualTo(300);
+    }
+}
@@ -0,0 +1,112 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTemplateModelRouterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final ChatModel large = answering("large");
+
+    private final ChatModel small = answering("small");
+
+    @Test
+    void shouldSendNewTemplatesToLargeAndUpdatesToSmallModel() {
+        var router = router(small, true, 6000);
+        var initial = request(UserMessage.from("Generate a reminder."));
+        var followUp = request(UserMessage.from("Generate a reminder."), AiMessage.from("<p>Reminder</p>"), UserMessage.from("Make it shorter."));
+
+        assertThat(router.route(initial)).isEqualTo(MessageTemplateModel.LARGE);
+        assertThat(router.route(followUp)).isEqualTo(MessageTemplateModel.SMALL);
+        assertThat(router.call(true, () -> router.route(initial))).isEqualTo(MessageTemplateModel.SMALL);
+        assertThat(registry.get("template.routing.decisions").tag("model", "small").tag("reason", "update").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldSendLargeOrQueuedUpdatesToOtherModel() {
+        var router = router(small, true, 5);
+        var update = request(UserMessage.from("Generate a reminder."), AiMessage.from("<p>Reminder</p>"), UserMessage.from("Shorter."));
+        assertThat(router.route(update)).isEqualTo(MessageTemplateModel.LARGE);
+
+        var busy = router(small, true, 6000);
+        busy.started(MessageTemplateModel.SMALL);
+        assertThat(busy.route(update)).isEqualTo(MessageTemplateModel.LARGE);
+        assertThat(registry.get("template.routing.decisions").tag("reason", "queue").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepNewAndLargeRequestsOnBusyLargeModel() {
+        var router = router(small, true, 5);
+        router.started(MessageTemplateModel.LARGE);
+        var update = request(UserMessage.from("Generate a reminder."), AiMessage.from("<p>Reminder</p>"), UserMessage.from("Shorter."));
+
+        assertThat(router.route(request(UserMessage.from("Generate a reminder.")))).isEqualTo(MessageTemplateModel.LARGE);
+        assertThat(router.route(update)).isEqualTo(MessageTemplateModel.LARGE);
+        assertThat(registry.find("template.routing.decisions").tag("reason", "queue").counter()).isNull();
+    }
+
+    @Test
+    void shouldFallBackToOtherModelOnTimeout() {
+        ChatModel timingOut = new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest request) {
+                throw new RuntimeException(new TimeoutException("no answer"));
+            }
+        };
+        var router = router(timingOut, true, 6000);
+        var model = new MessageTemplateRoutingChatModel(router);
+
+        var response = router.call(true, () -> model.chat(request(UserMessage.from("Shorter."))));
+
+        assertThat(response.aiMessage().text()).isEqualTo("large");
+        assertThat(registry.get("template.routing.decisions").tag("model", "large").tag("reason", "fallback").counter().count()).isEqualTo(1);
+        assertThat(registry.get("template.routing.duration").tag("model", "small").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotFallBackFromLargeModel() {
+        var router = router(small, true, 6000);
+
+        assertThat(router.fallback(MessageTemplateModel.LARGE, new TimeoutException())).isNull();
+        assertThat(router.fallback(MessageTemplateModel.SMALL, new TimeoutException())).isEqualTo(MessageTemplateModel.LARGE);
+    }
+
+    @Test
+    void shouldUseLargeModelOnlyWhenDisabled() {
+        var router = router(small, false, 6000);
+
+        assertThat(router.call(true, () -> router.route(request(UserMessage.from("Shorter."))))).isEqualTo(MessageTemplateModel.LARGE);
+        assertThat(router.fallback(MessageTemplateModel.LARGE, new TimeoutException())).isNull();
+        assertThat(registry.find("template.routing.decisions").counter()).isNull();
+    }
+
+    private MessageTemplateModelRouter router(ChatModel smallModel, boolean enabled, long smallMaxInputTokens) {
+        return new MessageTemplateModelRouter(large, new StreamingChatModel() {
+        }, smallModel, new StreamingChatModel() {
+        }, registry, enabled, smallMaxInputTokens, 1);
+    }
+
+    private static ChatRequest request(dev.langchain4j.data.message.ChatMessage... messages) {
+        return ChatRequest.builder().messages(messages).build();
+    }
+
+    private static ChatModel answering(String answer) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest request) {
+                return ChatResponse.builder().aiMessage(AiMessage.from(answer)).build();
+            }
+        };
+    }
+}
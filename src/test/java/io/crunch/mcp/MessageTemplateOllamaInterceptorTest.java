@@ -0,0 +1,47 @@
+package io.crunch.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTemplateOllamaInterceptorTest {
+
+    private static final byte[] FIELD = "\"keep_alive\":\"30m\",".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void shouldInsertKeepAliveAfterOpeningBrace() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var stream = new MessageTemplateOllamaInterceptor.KeepAliveOutputStream(out, FIELD)) {
+            stream.write("{\"model\":\"gpt-oss\"".getBytes(StandardCharsets.UTF_8));
+            stream.write('}');
+        }
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("{\"keep_alive\":\"30m\",\"model\":\"gpt-oss\"}");
+    }
+
+    @Test
+    void shouldInsertKeepAliveWhenWrittenByteByByte() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var stream = new MessageTemplateOllamaInterceptor.KeepAliveOutputStream(out, FIELD)) {
+            for (var b : "{\"stream\":false}".getBytes(StandardCharsets.UTF_8)) {
+                stream.write(b);
+            }
+        }
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("{\"keep_alive\":\"30m\",\"stream\":false}");
+    }
+
+    @Test
+    void shouldLeaveNonObjectsUnchanged() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var stream = new MessageTemplateOllamaInterceptor.KeepAliveOutputStream(out, FIELD)) {
+            stream.write("[{}]".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("[{}]");
+    }
+}
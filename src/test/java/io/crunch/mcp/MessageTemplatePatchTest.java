@@ -0,0 +1,48 @@
+package io.crunch.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageTemplatePatchTest {
+
+    private static final String CONTENT = "<h3>Card Blocked</h3>\n<p>Dear [[customer_name]],</p>\n<p>Your card has been blocked.</p>\n<p>Sincerely,</p>";
+
+    @Test
+    void shouldApplyEditsInOrder() {
+        var patch = new MessageTemplatePatch(List.of(
+                new MessageTemplatePatch.Edit("Card Blocked", "Card Suspended"),
+                new MessageTemplatePatch.Edit("has been blocked.", "has been suspended."),
+                new MessageTemplatePatch.Edit("Card Suspended</h3>\n", "Card Suspended</h3>\n<p>Reference: [[reference_id]]</p>\n")));
+
+        assertThat(patch.apply(CONTENT)).isEqualTo(
+                "<h3>Card Suspended</h3>\n<p>Reference: [[reference_id]]</p>\n<p>Dear [[customer_name]],</p>\n<p>Your card has been suspended.</p>\n<p>Sincerely,</p>");
+        assertThat(patch.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldDeleteWithEmptyReplacement() {
+        var patch = new MessageTemplatePatch(List.of(new MessageTemplatePatch.Edit("<p>Your card has been blocked.</p>\n", null)));
+
+        assertThat(patch.apply(CONTENT)).isEqualTo("<h3>Card Blocked</h3>\n<p>Dear [[customer_name]],</p>\n<p>Sincerely,</p>");
+    }
+
+    @Test
+    void shouldKeepContentWithoutEdits() {
+        assertThat(new MessageTemplatePatch(List.of()).apply(CONTENT)).isEqualTo(CONTENT);
+        assertThat(new MessageTemplatePatch(null).apply(CONTENT)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void shouldRejectMissingOrAmbiguousPassages() {
+        assertThatThrownBy(() -> new MessageTemplatePatch(List.of(new MessageTemplatePatch.Edit("Card Expired", "x"))).apply(CONTENT))
+                .isInstanceOf(MessageTemplateException.class);
+        assertThatThrownBy(() -> new MessageTemplatePatch(List.of(new MessageTemplatePatch.Edit("<p>", "<p>x"))).apply(CONTENT))
+                .isInstanceOf(MessageTemplateException.class);
+        assertThatThrownBy(() -> new MessageTemplatePatch(List.of(new MessageTemplatePatch.Edit("", "x"))).apply(CONTENT))
+                .isInstanceOf(MessageTemplateException.class);
+    }
+}
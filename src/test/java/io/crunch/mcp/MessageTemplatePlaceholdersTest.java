@@ -0,0 +1,25 @@
+package io.crunch.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTemplatePlaceholdersTest {
+
+    @Test
+    void shouldExtractDistinctPlaceholdersInOrder() {
+        var html = "<p>Dear [[customer_name]],</p><p>[[payment_amount]] is due on [[payment_due_date]].</p>"
+                + "<p>Your [[bank_name]] team</p><p>[[customer_name]]</p>";
+
+        assertThat(MessageTemplatePlaceholders.extract(html))
+                .containsExactly("customer_name", "payment_amount", "payment_due_date", "bank_name");
+    }
+
+    @Test
+    void shouldIgnoreMalformedPlaceholders() {
+        var html = "<p>[[Customer Name]] [[]] [[[bank_name]] [[unterminated</p>";
+
+        assertThat(MessageTemplatePlaceholders.extract(html)).containsExactly("bank_name");
+        assertThat(MessageTemplatePlaceholders.extract(null)).isEmpty();
+    }
+}
@@ -0,0 +1,85 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageTemplateRendererTest {
+
+    private static final MessageTemplate REMINDER = new MessageTemplate("payment_due_reminder", "Payment reminder",
+            "<p>Dear [[customer_name]],</p><p>[[payment_amount]] is due.</p><p>Dear [[customer_name]]</p>");
+
+    private static final MessageTemplate BROKEN = new MessageTemplate("broken", "Broken", "<p>[[unknown_parameter]]</p>");
+
+    private final MessageTemplateRenderer renderer = new MessageTemplateRenderer(corpus(), new ObjectMapper());
+
+    @Test
+    void shouldRenderTemplateWithEscapedValues() {
+        var template = renderer.find("payment_due_reminder").orElseThrow();
+
+        var html = template.render(Map.of("customer_name", "Jane <Doe>", "payment_amount", "120 EUR"));
+
+        assertThat(html).isEqualTo("<p>Dear Jane &lt;Doe&gt;,</p><p>120 EUR is due.</p><p>Dear Jane &lt;Doe&gt;</p>");
+        assertThat(template.parameters()).extracting(MessageTemplateParameter::getName)
+                .containsExactly("customer_name", "payment_amount");
+    }
+
+    @Test
+    void shouldRenderNdjsonLinePerRecord() throws Exception {
+        var template = renderer.find("payment_due_reminder").orElseThrow();
+        var input = """
+                {"customer_name":"Jane \\"JD\\" Doe","payment_amount":120,"ignored":{"nested":true}}
+                {"customer_name":"John"}
+                {"customer_name":"Zoë 😀","payment_amount":"5 EUR"}
+                """;
+        var output = new ByteArrayOutputStream();
+
+        var count = renderer.renderNdjson(template, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+
+        var lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(count).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        var objectMapper = new ObjectMapper();
+        assertThat(objectMapper.readTree(lines.get(0)).get("content").asText())
+                .isEqualTo("<p>Dear Jane &quot;JD&quot; Doe,</p><p>120 is due.</p><p>Dear Jane &quot;JD&quot; Doe</p>");
+        assertThat(objectMapper.readTree(lines.get(1)).get("error").asText())
+                .isEqualTo("Missing value for parameter: payment_amount");
+        assertThat(objectMapper.readTree(lines.get(2)).get("content").asText()).startsWith("<p>Dear Zoë 😀,</p>");
+    }
+
+    @Test
+    void shouldRejectUnknownParametersAndTemplates() {
+        assertThatThrownBy(() -> renderer.find("broken"))
+                .isInstanceOf(MessageTemplateException.class)
+                .hasMessageContaining("unknown_parameter");
+        assertThat(renderer.find("missing")).isEmpty();
+    }
+
+    private static MessageTemplateCorpus corpus() {
+        var snapshot = new MessageTemplateCorpusSnapshot(1, "hash",
+                List.of(parameter("customer_name"), parameter("payment_amount")), List.of(REMINDER, BROKEN), Instant.now());
+        return new MessageTemplateCorpus(Path.of("."), MessageTemplateStorage.FILE, false, Duration.ZERO, false) {
+            @Override
+            public MessageTemplateCorpusSnapshot snapshot() {
+                return snapshot;
+            }
+        };
+    }
+
+    private static MessageTemplateParameter parameter(String name) {
+        var parameter = new MessageTemplateParameter();
+        parameter.setName(name);
+        return parameter;
+    }
+}
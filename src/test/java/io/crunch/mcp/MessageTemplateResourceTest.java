@@ -38,4 +38,53 @@ class MessageTemplateResourceTest {
         var placeholders = matcher.results().map(m -> m.group(1)).collect(Collectors.toSet());
         assertThat(templateParameters).containsAll(placeholders);
     }
+
+    @Test
+    void shouldStreamTemplateUntilCompleted() {
+        var events = given()
+                .when()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT, MediaType.SERVER_SENT_EVENTS)
+                .body("{\"content\":\"\",\"description\":\"Generate simple greeting template.\"}")
+                .post("/api/stream")
+                .then()
+                .statusCode(RestResponse.Status.OK.getStatusCode()).extract()
+                .response()
+                .getBody()
+                .asString();
+        assertThat(events).contains("\"type\":\"TOKEN\"").contains("\"type\":\"COMPLETED\"");
+    }
+
+    @Test
+    void shouldServeRepeatedRequestFromCache() {
+        var body = "{\"content\":\"\",\"description\":\"Generate a short birthday greeting template.\"}";
+        var first = postTemplate(body);
+        var second = postTemplate(body);
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    void shouldRejectNonPositiveRequestTimeout() {
+        given()
+                .when()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .header("X-Request-Timeout", "0")
+                .body("{\"content\":\"\",\"description\":\"Generate simple greeting template.\"}")
+                .post("/api")
+                .then()
+                .statusCode(RestResponse.Status.BAD_REQUEST.getStatusCode());
+    }
+
+    private String postTemplate(String body) {
+        return given()
+                .when()
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .body(body)
+                .post("/api")
+                .then()
+                .statusCode(RestResponse.Status.OK.getStatusCode()).extract()
+                .response()
+                .getBody()
+                .asString();
+    }
 }
@@ -0,0 +1,106 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageTemplateSessionMemoryTest {
+
+    private static final ToolExecutionRequest TOOL_CALL = ToolExecutionRequest.builder()
+            .id("1").name(MessageTemplateTool.GET_MESSAGE_TEMPLATES).arguments("{}").build();
+
+    @Test
+    void shouldKeepContextAndLatestAnswerWithinBudget() {
+        var memory = new MessageTemplateSessionMemory("session", 220, () -> {
+        });
+        var system = SystemMessage.from("rules");
+        var request = UserMessage.from("Payment reminder");
+        var toolCall = AiMessage.from(TOOL_CALL);
+        var toolResult = ToolExecutionResultMessage.from(TOOL_CALL, "x".repeat(400));
+        memory.add(system);
+        memory.add(request);
+        memory.add(toolCall);
+        memory.add(toolResult);
+        memory.add(AiMessage.from("<p>" + "a".repeat(400) + "</p>"));
+        var shorter = UserMessage.from("Make it shorter");
+        var firstRefinement = AiMessage.from("<p>" + "b".repeat(300) + "</p>");
+        memory.add(shorter);
+        memory.add(firstRefinement);
+        var formal = UserMessage.from("Make it more formal");
+        var secondRefinement = AiMessage.from("<p>" + "c".repeat(300) + "</p>");
+        memory.add(formal);
+        memory.add(secondRefinement);
+
+        assertThat(memory.messages()).containsExactly(
+                system, request, toolCall, toolResult, MessageTemplateSessionMemory.OMITTED_ANSWER,
+                shorter, MessageTemplateSessionMemory.OMITTED_ANSWER, formal, secondRefinement);
+        assertThat(memory.tokens()).isLessThanOrEqualTo(220);
+        assertThat(memory.hasAnswer()).isTrue();
+    }
+
+    @Test
+    void shouldEvictOldestRefinementTurns() {
+        var memory = new MessageTemplateSessionMemory("session", 60, () -> {
+        });
+        memory.add(SystemMessage.from("rules"));
+        memory.add(UserMessage.from("Payment reminder"));
+        memory.add(AiMessage.from("<p>first</p>"));
+        var last = AiMessage.from("<p>" + "d".repeat(200) + "</p>");
+        for (var instruction : new String[]{"x".repeat(100), "y".repeat(100), "Make it shorter"}) {
+            memory.add(UserMessage.from(instruction));
+            memory.add(instruction.startsWith("Make") ? last : AiMessage.from("<p>version</p>"));
+        }
+
+        assertThat(memory.messages()).hasSize(5);
+        assertThat(memory.messages().getFirst()).isInstanceOf(SystemMessage.class);
+        assertThat(memory.messages().get(3)).isEqualTo(UserMessage.from("Make it shorter"));
+        assertThat(memory.messages().getLast()).isSameAs(last);
+    }
+
+    @Test
+    void shouldReplaceSystemMessage() {
+        var memory = new MessageTemplateSessionMemory("session", 1000, () -> {
+        });
+        memory.add(SystemMessage.from("first"));
+        memory.add(UserMessage.from("request"));
+        memory.add(SystemMessage.from("second"));
+
+        assertThat(memory.messages()).containsExactly(SystemMessage.from("second"), UserMessage.from("request"));
+        assertThat(memory.hasAnswer()).isFalse();
+    }
+
+    @Test
+    void shouldExpireIdleSessions() throws InterruptedException {
+        var provider = new MessageTemplateChatMemoryProvider(1000, Duration.ofMillis(20), 10);
+        provider.get("idle").add(AiMessage.from("<p>template</p>"));
+        assertThat(provider.isActive("idle")).isTrue();
+
+        Thread.sleep(50);
+        provider.get("other");
+
+        assertThat(provider.isActive("idle")).isFalse();
+        assertThat(provider.end("other")).isTrue();
+        assertThat(provider.end("other")).isFalse();
+    }
+
+    @Test
+    void shouldAdmitOneRequestPerSessionAndLimitOpenSessions() {
+        var provider = new MessageTemplateChatMemoryProvider(1000, Duration.ofMinutes(1), 1);
+
+        assertThat(provider.begin("first")).isTrue();
+        provider.get("first");
+        assertThat(provider.begin("first")).isFalse();
+        assertThatThrownBy(() -> provider.begin("second")).isInstanceOf(MessageTemplateRejectedException.class);
+
+        provider.finish("first");
+        assertThat(provider.begin("first")).isTrue();
+    }
+}
@@ -0,0 +1,103 @@
+package io.crunch.mcp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageTemplateSingleFlightTest {
+
+    private static final MessageTemplateRequestKey KEY =
+            new MessageTemplateRequestKey("hash", MessageTemplateGenerationMode.TOOLS, "greeting", "");
+
+    @Test
+    void shouldRunIdenticalConcurrentRequestsOnce() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var singleFlight = new MessageTemplateSingleFlight(registry);
+        var runs = new AtomicInteger();
+        var release = new CountDownLatch(1);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var leader = executor.submit(() -> singleFlight.run(KEY, Duration.ofSeconds(5), () -> {
+                runs.incrementAndGet();
+                await(release);
+                return "<p>Hello</p>";
+            }));
+            while (singleFlight.inFlight() == 0) {
+                Thread.sleep(5);
+            }
+            var follower = executor.submit(() -> singleFlight.run(KEY, Duration.ofSeconds(5), () -> {
+                runs.incrementAndGet();
+                return "<p>Other</p>";
+            }));
+            while (registry.get("template.generation.coalesced").counter().count() == 0) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertThat(leader.get()).isEqualTo("<p>Hello</p>");
+            assertThat(follower.get()).isEqualTo("<p>Hello</p>");
+        }
+        assertThat(runs).hasValue(1);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldHonorFollowerTimeout() throws Exception {
+        var singleFlight = new MessageTemplateSingleFlight(new SimpleMeterRegistry());
+        var release = new CountDownLatch(1);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var leader = executor.submit(() -> singleFlight.run(KEY, Duration.ofSeconds(5), () -> {
+                await(release);
+                return "<p>Hello</p>";
+            }));
+            while (singleFlight.inFlight() == 0) {
+                Thread.sleep(5);
+            }
+            assertThatThrownBy(() -> singleFlight.run(KEY, Duration.ofMillis(50), () -> "<p>Other</p>"))
+                    .isInstanceOf(MessageTemplateTimeoutException.class);
+            release.countDown();
+            assertThat(leader.get()).isEqualTo("<p>Hello</p>");
+        }
+    }
+
+    @Test
+    void shouldHonorLeaderTimeoutAndKeepTheFlightRunning() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var singleFlight = new MessageTemplateSingleFlight(registry);
+        var release = new CountDownLatch(1);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            assertThatThrownBy(() -> singleFlight.run(KEY, Duration.ofMillis(50), () -> {
+                await(release);
+                return "<p>Hello</p>";
+            })).isInstanceOf(MessageTemplateTimeoutException.class);
+            assertThat(singleFlight.inFlight()).isOne();
+
+            var follower = executor.submit(() -> singleFlight.run(KEY, Duration.ofSeconds(5), () -> "<p>Other</p>"));
+            while (registry.get("template.generation.coalesced").counter().count() == 0) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            assertThat(follower.get()).isEqualTo("<p>Hello</p>");
+        }
+        while (singleFlight.inFlight() > 0) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
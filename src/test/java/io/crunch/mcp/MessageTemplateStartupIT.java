@@ -0,0 +1,128 @@
+package io.crunch.mcp;
+
+import io.quarkus.logging.Log;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusIntegrationTest;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures startup and first-request latency of the packaged application and doubles as the AppCDS training run.
+ * <p>
+ * Runs against the JAR or the native executable with the {@link StubOllamaServer} as model: it sends the first
+ * validation, MCP tool call and generation, each of which loads the classes and state of its path for the first
+ * time, then a short generation and tool call workload. The startup time reported by the application
+ * ({@code template.startup.duration}), the first-request latencies and the workload percentiles are appended to
+ * {@code target/startup-report.txt}, labelled with {@code -Dstartup.variant}, so the variants can be compared:
+ * <pre>{@code
+ * mvn verify -DskipITs=false -Dstartup.variant=jvm
+ * mvn verify -Pappcds                     # training run (appcds-training), then the run with the archive (appcds)
+ * mvn verify -Dnative -Dstartup.variant=native
+ * }</pre>
+ * In the {@code appcds} profile the JVM records every class loaded by this workload with
+ * {@code -XX:ArchiveClassesAtExit}, which produces the trained archive when the application stops.
+ */
+@QuarkusIntegrationTest
+@TestProfile(StubOllamaTestProfile.class)
+class MessageTemplateStartupIT {
+
+    private static final String VARIANT = System.getProperty("startup.variant", "jvm");
+
+    private static final int REQUESTS = Integer.getInteger("training.requests", 200);
+
+    private static final String ACCEPT = "application/json, text/event-stream";
+
+    private static final String GENERATION = "{\"content\":\"\",\"description\":\"Generate reminder template number %d.\"}";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @TestHTTPResource("/")
+    URI root;
+
+    @Test
+    void shouldMeasureStartupAndFirstRequests() throws IOException, InterruptedException {
+        var validation = firstRequest(HttpRequest.newBuilder(root.resolve("/api/validate"))
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString("<p>Dear [[customer_name]],</p>")));
+        var sessionId = initialize();
+        var toolCall = firstRequest(mcp(toolCall(1, "Reminder about an upcoming loan payment"), sessionId));
+        var generation = firstRequest(HttpRequest.newBuilder(root.resolve("/api"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(GENERATION.formatted(-1))));
+
+        var generations = new MessageTemplateLoadGenerator(root.resolve("/api"), 8, REQUESTS)
+                .run(index -> GENERATION.formatted(index));
+        var toolCalls = new MessageTemplateLoadGenerator(root.resolve("/mcp"),
+                Map.of("Accept", ACCEPT, "Mcp-Session-Id", sessionId), 8, REQUESTS)
+                .run(index -> toolCall(index + 2, "Reminder to activate the account " + index));
+
+        var line = String.format("%s: startup %d ms, first validation %d ms, first tool call %d ms, first generation %d ms, "
+                        + "generations [%s], tool calls [%s]%n",
+                VARIANT, startupMillis(), validation.toMillis(), toolCall.toMillis(), generation.toMillis(),
+                generations, toolCalls);
+        Log.info(line.strip());
+        Files.writeString(Path.of("target", "startup-report.txt"), line,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        assertThat(generations.errors()).isZero();
+        assertThat(toolCalls.errors()).isZero();
+    }
+
+    private Duration firstRequest(HttpRequest.Builder request) throws IOException, InterruptedException {
+        var start = System.nanoTime();
+        var response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        var latency = Duration.ofNanos(System.nanoTime() - start);
+        assertThat(response.statusCode()).isEqualTo(200);
+        return latency;
+    }
+
+    private String initialize() throws IOException, InterruptedException {
+        var response = client.send(mcp("{\"jsonrpc\":\"2.0\",\"id\":0,\"method\":\"initialize\",\"params\":{\"protocolVersion\":\"2025-03-26\","
+                + "\"capabilities\":{},\"clientInfo\":{\"name\":\"startup-test\",\"version\":\"1.0\"}}}", null).build(),
+                HttpResponse.BodyHandlers.discarding());
+        var sessionId = response.headers().firstValue("Mcp-Session-Id").orElseThrow();
+        client.send(mcp("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}", sessionId).build(),
+                HttpResponse.BodyHandlers.discarding());
+        return sessionId;
+    }
+
+    private HttpRequest.Builder mcp(String body, String sessionId) {
+        var builder = HttpRequest.newBuilder(root.resolve("/mcp"))
+                .header("Content-Type", "application/json")
+                .header("Accept", ACCEPT)
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (sessionId != null) {
+            builder.header("Mcp-Session-Id", sessionId);
+        }
+        return builder;
+    }
+
+    private static String toolCall(int id, String description) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/call\",\"params\":{\"name\":\"get_message_templates\","
+                + "\"arguments\":{\"description\":\"" + description + "\"}}}";
+    }
+
+    private long startupMillis() throws IOException, InterruptedException {
+        var metrics = client.send(HttpRequest.newBuilder(root.resolve("/q/metrics")).GET().build(),
+                HttpResponse.BodyHandlers.ofLines());
+        return metrics.body()
+                .filter(line -> line.startsWith("template_startup_duration_seconds"))
+                .map(line -> line.substring(line.lastIndexOf(' ') + 1))
+                .mapToLong(seconds -> Math.round(Double.parseDouble(seconds) * 1000))
+                .findFirst()
+                .orElse(-1);
+    }
+}
@@ -0,0 +1,81 @@
+package io.crunch.mcp;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static io.crunch.mcp.MessageTemplateStaticAssets.BROTLI;
+import static io.crunch.mcp.MessageTemplateStaticAssets.GZIP;
+import static io.crunch.mcp.MessageTemplateStaticAssets.IDENTITY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MessageTemplateStaticAssetsTest {
+
+    private static final byte[] SCRIPT = "console.log('message templates');\n".repeat(200).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void shouldNegotiateEncodingFromAcceptEncoding() {
+        assertThat(MessageTemplateStaticAssets.encoding("gzip, deflate, br, zstd", true, true)).isEqualTo(BROTLI);
+        assertThat(MessageTemplateStaticAssets.encoding("gzip, deflate, br", false, true)).isEqualTo(GZIP);
+        assertThat(MessageTemplateStaticAssets.encoding("br;q=0.5, gzip", true, true)).isEqualTo(GZIP);
+        assertThat(MessageTemplateStaticAssets.encoding("br;q=0, gzip;q=0", true, true)).isEqualTo(IDENTITY);
+        assertThat(MessageTemplateStaticAssets.encoding("*", true, true)).isEqualTo(BROTLI);
+        assertThat(MessageTemplateStaticAssets.encoding(null, true, true)).isEqualTo(IDENTITY);
+    }
+
+    @Test
+    void shouldPrecompressTextAssetsWithDistinctStrongEtags() throws IOException {
+        var asset = MessageTemplateStaticAssets.Asset.of("main-2ZKV3NXC.js", SCRIPT, false);
+
+        var identity = asset.select(null);
+        var gzip = asset.select("gzip");
+        assertThat(asset.contentType()).isEqualTo("text/javascript;charset=UTF-8");
+        assertThat(asset.immutable()).isTrue();
+        assertThat(identity.content()).isEqualTo(SCRIPT);
+        assertThat(gzip.encoding()).isEqualTo(GZIP);
+        assertThat(gzip.content().length).isLessThan(SCRIPT.length);
+        assertThat(new GZIPInputStream(new ByteArrayInputStream(gzip.content())).readAllBytes()).isEqualTo(SCRIPT);
+        assertThat(identity.etag()).startsWith("\"").endsWith("\"").doesNotStartWith("W/");
+        assertThat(gzip.etag()).isNotEqualTo(identity.etag()).endsWith("-gzip\"");
+    }
+
+    @Test
+    void shouldPreferBrotliWhenAvailable() {
+        assumeTrue(Brotli4jLoader.isAvailable(), "brotli native library not available");
+
+        var asset = MessageTemplateStaticAssets.Asset.of("styles-QW3RT6YZ.css", SCRIPT, true);
+
+        var brotli = asset.select("gzip, deflate, br");
+        assertThat(brotli.encoding()).isEqualTo(BROTLI);
+        assertThat(brotli.content().length).isLessThan(asset.select("gzip").content().length);
+        assertThat(brotli.etag()).endsWith("-br\"");
+    }
+
+    @Test
+    void shouldNotCompressBinaryAssets() {
+        var asset = MessageTemplateStaticAssets.Asset.of("quarkus.png", SCRIPT, false);
+
+        assertThat(asset.compressible()).isFalse();
+        assertThat(asset.immutable()).isFalse();
+        assertThat(asset.select("gzip, br").encoding()).isEqualTo(IDENTITY);
+    }
+
+    @Test
+    void shouldDetectHashedBundlesAndMatchConditionalRequests() {
+        assertThat(MessageTemplateStaticAssets.hashed("chunk-5FZ3NKTQ.js")).isTrue();
+        assertThat(MessageTemplateStaticAssets.hashed("main.3f2a1b9c8d7e6f5a.js")).isTrue();
+        assertThat(MessageTemplateStaticAssets.hashed("index.html")).isFalse();
+        assertThat(MessageTemplateStaticAssets.hashed("user-settings.js")).isFalse();
+
+        assertThat(MessageTemplateStaticAssets.notModified("\"abc\"", "\"abc\"")).isTrue();
+        assertThat(MessageTemplateStaticAssets.notModified("\"xyz\", W/\"abc\"", "\"abc\"")).isTrue();
+        assertThat(MessageTemplateStaticAssets.notModified("*", "\"abc\"")).isTrue();
+        assertThat(MessageTemplateStaticAssets.notModified("\"abc-gzip\"", "\"abc\"")).isFalse();
+        assertThat(MessageTemplateStaticAssets.notModified(null, "\"abc\"")).isFalse();
+    }
+}
@@ -0,0 +1,26 @@
+package io.crunch.mcp;
+
+import io.quarkiverse.langchain4j.runtime.aiservice.ChatEvent;
+import io.smallrye.mutiny.Multi;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTemplateStreamEventTest {
+
+    @Test
+    void shouldDropEventsThatAreNotRelevantForTheClient() {
+        var events = Multi.createFrom().<ChatEvent>items(
+                        new ChatEvent.PartialResponseEvent("<p>"),
+                        new ChatEvent.AccumulatedResponseEvent("<p>", null),
+                        new ChatEvent.PartialResponseEvent("Dear</p>"))
+                .onItem().transformToIterable(event -> MessageTemplateStreamEvent.of(event).stream().toList())
+                .collect().asList()
+                .await().indefinitely();
+
+        assertThat(events).containsExactly(
+                new MessageTemplateStreamEvent(MessageTemplateStreamEvent.Type.TOKEN, "<p>"),
+                new MessageTemplateStreamEvent(MessageTemplateStreamEvent.Type.TOKEN, "Dear</p>"));
+        assertThat(MessageTemplateStreamEvent.of(new ChatEvent.AccumulatedResponseEvent("", null))).isEmpty();
+    }
+}
@@ -0,0 +1,74 @@
+package io.crunch.mcp;
+
+import io.quarkus.logging.Log;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the MCP tools through the streamable HTTP endpoint with concurrent clients sharing one MCP session.
+ * <p>
+ * Load is configurable the same way as in {@link MessageTemplateLoadTest}, for example:
+ * <pre>{@code
+ * mvn test -Pload -Dtest=MessageTemplateToolLoadTest -Dload.concurrency=64 -Dload.requests=20000
+ * }</pre>
+ * Tagged {@code load}: the default build skips it, the {@code load} profile runs only the load tests.
+ */
+@QuarkusTest
+@Tag("load")
+@TestProfile(StubModelTestProfile.class)
+class MessageTemplateToolLoadTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 16);
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 2000);
+
+    private static final String ACCEPT = "application/json, text/event-stream";
+
+    @TestHTTPResource("/mcp")
+    URI uri;
+
+    @Test
+    void shouldServeToolCallsUnderLoad() throws IOException, InterruptedException {
+        var headers = Map.of("Accept", ACCEPT, "Mcp-Session-Id", initialize());
+        var generator = new MessageTemplateLoadGenerator(uri, headers, CONCURRENCY, REQUESTS);
+
+        var report = generator.run(index -> index % 2 == 0
+                ? "{\"jsonrpc\":\"2.0\",\"id\":" + index + ",\"method\":\"tools/call\",\"params\":{\"name\":\"list_template_parameters\",\"arguments\":{}}}"
+                : "{\"jsonrpc\":\"2.0\",\"id\":" + index + ",\"method\":\"tools/call\",\"params\":{\"name\":\"get_message_templates\",\"arguments\":{\"description\":\"Reminder to activate the account " + index + "\"}}}");
+
+        Log.infof("MCP tool load test at concurrency %d: %s", CONCURRENCY, report);
+        assertThat(report.errors()).isZero();
+    }
+
+    private String initialize() throws IOException, InterruptedException {
+        var client = HttpClient.newHttpClient();
+        var response = client.send(post("{\"jsonrpc\":\"2.0\",\"id\":0,\"method\":\"initialize\",\"params\":{\"protocolVersion\":\"2025-03-26\","
+                + "\"capabilities\":{},\"clientInfo\":{\"name\":\"load-test\",\"version\":\"1.0\"}}}", null), HttpResponse.BodyHandlers.discarding());
+        var sessionId = response.headers().firstValue("Mcp-Session-Id").orElseThrow();
+        client.send(post("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}", sessionId), HttpResponse.BodyHandlers.discarding());
+        return sessionId;
+    }
+
+    private HttpRequest post(String body, String sessionId) {
+        var builder = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .header("Accept", ACCEPT)
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (sessionId != null) {
+            builder.header("Mcp-Session-Id", sessionId);
+        }
+        return builder.build();
+    }
+}
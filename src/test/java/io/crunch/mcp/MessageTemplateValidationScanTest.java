@@ -0,0 +1,64 @@
+package io.crunch.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MessageTemplateValidationScanTest {
+
+    private static final Set<String> PLACEHOLDERS = Set.of("customer_name", "bank_name");
+
+    private static final Set<String> ALLOWED_TAGS = Set.of("p", "b", "br", "h2");
+
+    @Test
+    void shouldAcceptValidTemplateSplitAcrossChunks() {
+        var scan = new MessageTemplateValidationScan(PLACEHOLDERS, ALLOWED_TAGS);
+
+        for (var chunk : new String[]{"<h2>Title</h2><", "p class=\"x\">Dear [", "[customer", "_name]],<br/>", "</p><p>[[bank_name]", "]</P>"}) {
+            assertThat(scan.accept(chunk)).isTrue();
+        }
+
+        var result = scan.finish();
+        assertThat(result.valid()).isTrue();
+        assertThat(result.violations()).isEmpty();
+    }
+
+    @Test
+    void shouldStopAtFirstViolation() {
+        var scan = new MessageTemplateValidationScan(PLACEHOLDERS, ALLOWED_TAGS);
+
+        assertThat(scan.accept("<p>Dear [[customer_name]], ")).isTrue();
+        assertThat(scan.accept("your [[iban]] is")).isFalse();
+
+        assertThat(scan.hasViolations()).isTrue();
+        assertThat(scan.result().violations())
+                .extracting(MessageTemplateViolation::type, MessageTemplateViolation::value)
+                .containsExactly(tuple(MessageTemplateViolation.Type.UNKNOWN_PLACEHOLDER, "[[iban]]"));
+    }
+
+    @Test
+    void shouldReportEachViolationOnce() {
+        var scan = new MessageTemplateValidationScan(PLACEHOLDERS, ALLOWED_TAGS);
+
+        scan.accept("<p><strong>Hi</strong> [[Customer Name]] <strong>again</strong> [[bank_name");
+
+        assertThat(scan.finish().violations())
+                .extracting(MessageTemplateViolation::type)
+                .containsExactly(
+                        MessageTemplateViolation.Type.DISALLOWED_TAG,
+                        MessageTemplateViolation.Type.MALFORMED_PLACEHOLDER,
+                        MessageTemplateViolation.Type.UNTERMINATED_PLACEHOLDER);
+    }
+
+    @Test
+    void shouldIgnorePlainBracketsAndComparisons() {
+        var scan = new MessageTemplateValidationScan(PLACEHOLDERS, ALLOWED_TAGS);
+
+        scan.accept("<p>Amount [EUR] < 100 and a > b [[customer_name]]</p>");
+
+        assertThat(scan.finish().valid()).isTrue();
+    }
+}
@@ -0,0 +1,96 @@
+package io.crunch.mcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageTemplateValidatorTest {
+
+    private static final Path TEMPLATES = Path.of("src/main/jib/resources/templates");
+
+    private static final Pattern PARAMETER = Pattern.compile("nextval\\('TEMPLATE_PARAMETER_SEQ'\\), '([^']+)'");
+
+    private static final String ORIGINAL = "<p>Dear [[customer_name]],</p><p>Your card is <strong>blocked</strong>.</p>";
+
+    private final MessageTemplateValidator validator = new MessageTemplateValidator(corpus(), true, 1, Set.of("p", "b"));
+
+    @Test
+    void shouldIgnoreViolationsTheOriginalAlreadyHad() {
+        var changed = ORIGINAL.replace("blocked", "<strong>temporarily</strong> blocked");
+
+        assertThat(validator.validate(changed).valid()).isFalse();
+        assertThat(validator.validateChange(ORIGINAL, changed).valid()).isTrue();
+    }
+
+    @Test
+    void shouldReportViolationsTheEditsIntroduced() {
+        var changed = ORIGINAL.replace("Dear [[customer_name]]", "<i>Dear</i> [[customer_full_name]]");
+
+        assertThat(validator.validateChange(ORIGINAL, changed).violations())
+                .extracting(MessageTemplateViolation::value)
+                .containsExactly("<i>", "[[customer_full_name]]");
+    }
+
+    @Test
+    void shouldScanEditsIncrementallyAgainstTheOriginal() {
+        var scan = validator.start(ORIGINAL);
+
+        assertThat(scan.accept("<p>Dear [[customer_name]],</p><p>Your card is <str")).isTrue();
+        assertThat(scan.accept("ong>blocked</strong>.</p><i>")).isFalse();
+        assertThat(scan.finish().violations()).extracting(MessageTemplateViolation::value).containsExactly("<i>");
+    }
+
+    @Test
+    void shouldAcceptEveryShippedTemplateWithTheConfiguredTags() throws IOException {
+        var properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Path.of("src/main/resources/application.properties"))) {
+            properties.load(reader);
+        }
+        var allowedTags = Arrays.stream(properties.getProperty("app.validation.allowed-tags").split(","))
+                .map(String::strip)
+                .collect(Collectors.toSet());
+        var parameters = PARAMETER.matcher(Files.readString(Path.of("src/main/resources/import.sql"))).results()
+                .map(match -> match.group(1))
+                .toList();
+        var shipped = new MessageTemplateValidator(corpus(parameters), true, 1, allowedTags);
+
+        try (var templates = Files.list(TEMPLATES)) {
+            assertThat(templates.toList()).isNotEmpty().allSatisfy(template ->
+                    assertThat(shipped.validate(Files.readString(template)).violations())
+                            .as(template.getFileName().toString())
+                            .isEmpty());
+        }
+    }
+
+    private static MessageTemplateCorpus corpus() {
+        return corpus(List.of("customer_name"));
+    }
+
+    private static MessageTemplateCorpus corpus(List<String> names) {
+        var parameters = names.stream().map(name -> {
+            var parameter = new MessageTemplateParameter();
+            parameter.setName(name);
+            return parameter;
+        }).toList();
+        var snapshot = new MessageTemplateCorpusSnapshot(1, "hash", parameters, List.of(), Instant.now());
+        return new MessageTemplateCorpus(Path.of("."), MessageTemplateStorage.FILE, false, Duration.ZERO, false) {
+            @Override
+            public MessageTemplateCorpusSnapshot snapshot() {
+                return snapshot;
+            }
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.enterprise.inject.Instance;
+
+import java.util.List;
+
+/**
+ * Local stand-in for the Ollama chat model, enabled by the {@link StubModelTestProfile}.
+ *
+ * @see StubChatScript
+ */
+@Alternative
+@ApplicationScoped
+public class StubChatModel implements ChatModel {
+
+    private final StubChatScript script;
+
+    private final List<ChatModelListener> listeners;
+
+    public StubChatModel(StubChatScript script, Instance<ChatModelListener> listeners) {
+        this.script = script;
+        this.listeners = listeners.stream().toList();
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest request) {
+        var message = script.next(request);
+        script.awaitFirstToken();
+        script.awaitTokens(StubChatScript.chunks(message.text() != null ? message.text() : "").size());
+        return script.response(request, message);
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return listeners;
+    }
+}
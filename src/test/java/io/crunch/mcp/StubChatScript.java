@@ -0,0 +1,178 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Deterministic script behind the {@link StubChatModel} and the {@link StubStreamingChatModel}.
+ * <p>
+ * When the request offers tools and scripted tool calls are enabled, the script first calls
+ * {@code list_template_parameters}, then {@code get_message_templates} with the request description,
+ * one tool per turn like a small model does; afterwards it answers with a fixed HTML template of
+ * {@code response-tokens} tokens. Every turn waits {@code latency} before the first token and emits
+ * {@code tokens-per-second} tokens afterwards, so the model time of a generation is known up front.
+ *
+ * <h2>Configuration</h2>
+ * <pre>{@code
+ * stub.chat-model.latency=100ms
+ * stub.chat-model.tokens-per-second=500
+ * stub.chat-model.response-tokens=200
+ * stub.chat-model.tool-calls=true
+ * }</pre>
+ */
+@ApplicationScoped
+public class StubChatScript {
+
+    static final int CHARACTERS_PER_TOKEN = 4;
+
+    private static final String GREETING = "<p>Dear [[customer_name]],</p>";
+
+    private static final String SENTENCE = "<p>We would like to inform you about your account [[account_number]].</p>";
+
+    private static final String CLOSING = "<p>Sincerely,</p><p>Your [[bank_name]] Customer Care Team</p>";
+
+    private final Duration latency;
+
+    private final int tokensPerSecond;
+
+    private final int responseTokens;
+
+    private final boolean toolCalls;
+
+    public StubChatScript(@ConfigProperty(name = "stub.chat-model.latency", defaultValue = "100ms") Duration latency,
+                          @ConfigProperty(name = "stub.chat-model.tokens-per-second", defaultValue = "500") int tokensPerSecond,
+                          @ConfigProperty(name = "stub.chat-model.response-tokens", defaultValue = "200") int responseTokens,
+                          @ConfigProperty(name = "stub.chat-model.tool-calls", defaultValue = "true") boolean toolCalls) {
+        this.latency = latency;
+        this.tokensPerSecond = tokensPerSecond;
+        this.responseTokens = responseTokens;
+        this.toolCalls = toolCalls;
+    }
+
+    /**
+     * Returns the AI message for the next turn of the conversation.
+     *
+     * @param request the chat request sent by the AI service
+     * @return a tool execution request or the final template
+     */
+    AiMessage next(ChatRequest request) {
+        if (toolCalls && !request.toolSpecifications().isEmpty()) {
+            var called = calledTools(request.messages());
+            if (!called.contains(MessageTemplateTool.LIST_TEMPLATE_PARAMETERS)) {
+                return AiMessage.from(toolCall(called.size(), MessageTemplateTool.LIST_TEMPLATE_PARAMETERS, "{}"));
+            }
+            if (!called.contains(MessageTemplateTool.GET_MESSAGE_TEMPLATES)) {
+                return AiMessage.from(toolCall(called.size(), MessageTemplateTool.GET_MESSAGE_TEMPLATES,
+                        "{\"description\":\"" + escape(description(request.messages())) + "\"}"));
+            }
+        }
+        return AiMessage.from(template());
+    }
+
+    ChatResponse response(ChatRequest request, AiMessage message) {
+        return ChatResponse.builder()
+                .aiMessage(message)
+                .tokenUsage(new TokenUsage(tokens(request.messages()), tokens(message)))
+                .finishReason(message.hasToolExecutionRequests() ? FinishReason.TOOL_EXECUTION : FinishReason.STOP)
+                .build();
+    }
+
+    /**
+     * Splits a response text into the chunks a streaming model would emit, one token each.
+     */
+    static List<String> chunks(String text) {
+        var chunks = new ArrayList<String>();
+        for (int i = 0; i < text.length(); i += CHARACTERS_PER_TOKEN) {
+            chunks.add(text.substring(i, Math.min(text.length(), i + CHARACTERS_PER_TOKEN)));
+        }
+        return chunks;
+    }
+
+    void awaitFirstToken() {
+        pause(latency.toNanos());
+    }
+
+    void awaitTokens(int count) {
+        if (tokensPerSecond > 0) {
+            pause(count * 1_000_000_000L / tokensPerSecond);
+        }
+    }
+
+    private String template() {
+        return template(responseTokens);
+    }
+
+    /**
+     * Returns the fixed HTML template of about {@code responseTokens} tokens the script answers with.
+     */
+    static String template(int responseTokens) {
+        var builder = new StringBuilder(GREETING);
+        while ((builder.length() + CLOSING.length()) / CHARACTERS_PER_TOKEN < responseTokens) {
+            builder.append(SENTENCE);
+        }
+        return builder.append(CLOSING).toString();
+    }
+
+    private static ToolExecutionRequest toolCall(int sequence, String name, String arguments) {
+        return ToolExecutionRequest.builder()
+                .id("stub-call-" + sequence)
+                .name(name)
+                .arguments(arguments)
+                .build();
+    }
+
+    private static List<String> calledTools(List<ChatMessage> messages) {
+        var called = new ArrayList<String>();
+        for (var message : messages) {
+            if (message instanceof UserMessage) {
+                called.clear();
+            } else if (message instanceof ToolExecutionResultMessage result) {
+                called.add(result.toolName());
+            }
+        }
+        return called;
+    }
+
+    private static String description(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage user && user.hasSingleText()) {
+                var text = user.singleText();
+                return text.length() > 200 ? text.substring(0, 200) : text;
+            }
+        }
+        return "";
+    }
+
+    private static int tokens(List<ChatMessage> messages) {
+        return messages.stream().mapToInt(message -> message.toString().length() / CHARACTERS_PER_TOKEN).sum();
+    }
+
+    private static int tokens(AiMessage message) {
+        return message.text() != null ? message.text().length() / CHARACTERS_PER_TOKEN : 10;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "");
+    }
+
+    private static void pause(long nanos) {
+        var deadline = System.nanoTime() + nanos;
+        for (long remaining = nanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
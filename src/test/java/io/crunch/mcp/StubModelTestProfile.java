@@ -0,0 +1,34 @@
+package io.crunch.mcp;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs the application against the {@link StubChatModel} instead of Ollama.
+ * <p>
+ * Admission control is opened up so that the load generator measures the overhead of the application
+ * itself, and model routing is disabled, so every call reaches the stub; generation mode and tool transport keep their defaults and can be switched with
+ * {@code -Dapp.generation.mode=prefetch} or {@code -Dapp.mcp.transport=http}.
+ */
+public class StubModelTestProfile extends McpTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        var overrides = new HashMap<>(super.getConfigOverrides());
+        overrides.put("quarkus.langchain4j.devservices.enabled", "false");
+        overrides.put("quarkus.langchain4j.log-requests", "false");
+        overrides.put("quarkus.langchain4j.log-responses", "false");
+        overrides.put("quarkus.mcp.server.traffic-logging.enabled", "false");
+        overrides.put("quarkus.hibernate-orm.log.sql", "false");
+        overrides.put("app.generation.max-concurrent", "64");
+        overrides.put("app.generation.max-queued", "1000");
+        overrides.put("app.routing.enabled", "false");
+        return overrides;
+    }
+
+    @Override
+    public Set<Class<?>> getEnabledAlternatives() {
+        return Set.of(StubChatModel.class, StubStreamingChatModel.class);
+    }
+}
@@ -0,0 +1,92 @@
+package io.crunch.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal Ollama {@code /api/chat} endpoint answering with the {@link StubChatScript} template.
+ * <p>
+ * {@link StubChatModel} only exists in the test class path, so it cannot replace the model of the packaged
+ * application that {@code @QuarkusIntegrationTest} launches; this server stands in for Ollama on the HTTP level
+ * instead. It answers every request with the final template right away, both as a single response and as an
+ * NDJSON stream, and never calls tools.
+ */
+public class StubOllamaServer implements QuarkusTestResourceLifecycleManager {
+
+    private static final int RESPONSE_TOKENS = 200;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private HttpServer server;
+
+    @Override
+    public Map<String, String> start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot start the stub Ollama server", e);
+        }
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/chat", this::chat);
+        server.start();
+        var baseUrl = "http://localhost:" + server.getAddress().getPort();
+        return Map.of(
+                "quarkus.langchain4j.ollama.base-url", baseUrl,
+                "quarkus.langchain4j.ollama.small.base-url", baseUrl);
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var request = objectMapper.readTree(exchange.getRequestBody());
+            var model = request.path("model").asText("stub");
+            var template = StubChatScript.template(RESPONSE_TOKENS);
+            byte[] body;
+            if (request.path("stream").asBoolean(false)) {
+                exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+                var lines = new StringBuilder();
+                for (var chunk : StubChatScript.chunks(template)) {
+                    lines.append(objectMapper.writeValueAsString(response(model, chunk, false))).append('\n');
+                }
+                lines.append(objectMapper.writeValueAsString(response(model, "", true))).append('\n');
+                body = lines.toString().getBytes(StandardCharsets.UTF_8);
+            } else {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                body = objectMapper.writeValueAsBytes(response(model, template, true));
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static Map<String, Object> response(String model, String content, boolean done) {
+        var response = new LinkedHashMap<String, Object>();
+        response.put("model", model);
+        response.put("created_at", Instant.now().toString());
+        response.put("message", Map.of("role", "assistant", "content", content, "tool_calls", List.of()));
+        response.put("done", done);
+        if (done) {
+            response.put("done_reason", "stop");
+            response.put("prompt_eval_count", 1000);
+            response.put("eval_count", RESPONSE_TOKENS);
+        }
+        return response;
+    }
+}
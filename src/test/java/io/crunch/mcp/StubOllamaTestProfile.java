@@ -0,0 +1,30 @@
+package io.crunch.mcp;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the packaged application against the {@link StubOllamaServer} instead of Ollama.
+ * <p>
+ * The integration-test counterpart of the {@link StubModelTestProfile}: the same settings, but the model is
+ * replaced on the HTTP level, so it also works for the JAR and the native executable.
+ */
+public class StubOllamaTestProfile extends McpTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        var overrides = new HashMap<>(super.getConfigOverrides());
+        overrides.put("quarkus.langchain4j.devservices.enabled", "false");
+        overrides.put("quarkus.hibernate-orm.log.sql", "false");
+        overrides.put("app.generation.max-concurrent", "64");
+        overrides.put("app.generation.max-queued", "1000");
+        overrides.put("app.routing.enabled", "false");
+        return overrides;
+    }
+
+    @Override
+    public List<TestResourceEntry> testResources() {
+        return List.of(new TestResourceEntry(StubOllamaServer.class));
+    }
+}
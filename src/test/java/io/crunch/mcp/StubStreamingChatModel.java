@@ -0,0 +1,56 @@
+package io.crunch.mcp;
+
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.enterprise.inject.Instance;
+
+import java.util.List;
+
+/**
+ * Local stand-in for the Ollama streaming chat model, enabled by the {@link StubModelTestProfile}.
+ * <p>
+ * Tokens are emitted from a virtual thread at the configured token rate.
+ *
+ * @see StubChatScript
+ */
+@Alternative
+@ApplicationScoped
+public class StubStreamingChatModel implements StreamingChatModel {
+
+    private final StubChatScript script;
+
+    private final List<ChatModelListener> listeners;
+
+    public StubStreamingChatModel(StubChatScript script, Instance<ChatModelListener> listeners) {
+        this.script = script;
+        this.listeners = listeners.stream().toList();
+    }
+
+    @Override
+    public void doChat(ChatRequest request, StreamingChatResponseHandler handler) {
+        Thread.ofVirtual().name("stub-streaming-chat-model").start(() -> {
+            try {
+                var message = script.next(request);
+                script.awaitFirstToken();
+                if (message.text() != null) {
+                    for (var chunk : StubChatScript.chunks(message.text())) {
+                        handler.onPartialResponse(chunk);
+                        script.awaitTokens(1);
+                    }
+                }
+                handler.onCompleteResponse(script.response(request, message));
+            } catch (RuntimeException e) {
+                handler.onError(e);
+            }
+        });
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return listeners;
+    }
+}